@@ -0,0 +1,106 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.gb.test.springsecuritydemo.cache.JwtTokenCache;
+import com.gb.test.springsecuritydemo.cache.UserVersionRegistry;
+import com.gb.test.springsecuritydemo.config.JwtAuthenticationFilter;
+import com.gb.test.springsecuritydemo.config.MyUserDetailsService;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
+import com.gb.test.springsecuritydemo.entity.User;
+import com.gb.test.springsecuritydemo.model.UserAuthView;
+import com.gb.test.springsecuritydemo.repository.UserRepository;
+import com.gb.test.springsecuritydemo.service.LoginAttemptService;
+import com.gb.test.springsecuritydemo.service.TokenRevocationService;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基准测试共用的对象构造（不启动 Spring 容器，也不连数据库）
+ */
+final class BenchmarkFixtures {
+
+    // 一个格式合法的 BCrypt 哈希，基准测试里不做密码校验
+    static final String ENCODED_PASSWORD = "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5r0gY1Ji6gSUNpRwYXUOtKa";
+
+    private BenchmarkFixtures() {
+    }
+
+    static User user(String username, String role) {
+        User user = new User();
+        user.setId((long) username.hashCode());
+        user.setUsername(username);
+        user.setPassword(ENCODED_PASSWORD);
+        user.setRole(role);
+        user.setTokenVersion(0L);
+        return user;
+    }
+
+    /**
+     * 内存版 UserRepository：只实现认证路径用到的方法，其他方法直接抛异常
+     */
+    static UserRepository inMemoryRepository(User... users) {
+        return inMemoryRepository(Duration.ZERO, users);
+    }
+
+    /**
+     * 带固定延迟的内存版 UserRepository，用 sleep 模拟一次阻塞的 JDBC 往返
+     */
+    static UserRepository inMemoryRepository(Duration latency, User... users) {
+        Map<String, User> byUsername = new ConcurrentHashMap<>();
+        for (User user : users) {
+            byUsername.put(user.getUsername(), user);
+        }
+        return (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByUsername" -> {
+                        simulateLatency(latency);
+                        yield Optional.ofNullable(byUsername.get((String) args[0]));
+                    }
+                    case "findAuthViewByUsername" -> {
+                        simulateLatency(latency);
+                        yield Optional.ofNullable(byUsername.get((String) args[0])).map(user -> new UserAuthView(
+                                user.getUsername(), user.getPassword(), user.getRole(), user.getTokenVersion(),
+                                user.getFailedAttempts(), user.getLockedUntil()));
+                    }
+                    case "findTokenVersionByUsername" -> {
+                        simulateLatency(latency);
+                        yield Optional.ofNullable(byUsername.get((String) args[0])).map(User::currentTokenVersion);
+                    }
+                    case "toString" -> "InMemoryUserRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static void simulateLatency(Duration latency) throws InterruptedException {
+        if (!latency.isZero()) {
+            Thread.sleep(latency);
+        }
+    }
+
+    static MyUserDetailsService userDetailsService(UserRepository repository, boolean cacheEnabled) {
+        // 锁定状态只在内存中判断，基准测试里不会写回数据库，所以不需要 JdbcTemplate
+        LoginAttemptService loginAttemptService = new LoginAttemptService(null, true, 5, Duration.ofMinutes(15), Duration.ofMinutes(15), 100_000, 500);
+        return new MyUserDetailsService(repository, loginAttemptService, cacheEnabled, Duration.ofMinutes(5), 10_000);
+    }
+
+    static JwtAuthenticationFilter jwtFilter(JwtUtil jwtUtil, UserRepository repository,
+                                             MyUserDetailsService userDetailsService,
+                                             boolean tokenCacheEnabled, boolean stateless) {
+        return new JwtAuthenticationFilter(
+                new JwtTokenCache(jwtUtil, tokenCacheEnabled, 10_000),
+                userDetailsService,
+                new UserVersionRegistry(repository, Duration.ofSeconds(10), 10_000),
+                new TokenRevocationService(100_000, 0.01, "", event -> { }),
+                new SecurityMetrics(new SimpleMeterRegistry()),
+                stateless);
+    }
+}
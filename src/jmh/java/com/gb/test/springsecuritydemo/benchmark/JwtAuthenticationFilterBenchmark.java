@@ -0,0 +1,57 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.gb.test.springsecuritydemo.config.JwtAuthenticationFilter;
+import com.gb.test.springsecuritydemo.config.MyUserDetailsService;
+import com.gb.test.springsecuritydemo.repository.UserRepository;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * 一次完整的 JwtAuthenticationFilter.doFilterInternal：
+ * 取 Header -> 解析令牌 -> 加载用户 -> 写入 SecurityContext
+ */
+@State(Scope.Thread)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean tokenCacheEnabled;
+
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setup() {
+        JwtUtil jwtUtil = new JwtUtil();
+        UserRepository repository = BenchmarkFixtures.inMemoryRepository(BenchmarkFixtures.user("admin", "ROLE_ADMIN"));
+        MyUserDetailsService userDetailsService = BenchmarkFixtures.userDetailsService(repository, true);
+        filter = BenchmarkFixtures.jwtFilter(jwtUtil, repository, userDetailsService, tokenCacheEnabled, stateless);
+
+        String token = jwtUtil.generateToken(userDetailsService.loadUserByUsername("admin"));
+        request = new MockHttpServletRequest("GET", "/api/posts/protected/my-favorites");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        try {
+            filter.doFilter(request, response, chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
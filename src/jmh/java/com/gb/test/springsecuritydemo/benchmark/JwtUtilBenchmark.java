@@ -0,0 +1,62 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import com.gb.test.springsecuritydemo.model.JwtClaims;
+import com.gb.test.springsecuritydemo.utils.JwtKeyRing;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * JwtUtil 的签发和校验开销（按签名算法对比）
+ */
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    @Param({"HS256", "RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtUtil jwtUtil;
+    private AppUserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = "HS256".equals(algorithm)
+                ? new JwtUtil()
+                : new JwtUtil(JwtKeyRing.generate(algorithm, "bench-1"));
+        userDetails = new AppUserDetails("admin", BenchmarkFixtures.ENCODED_PASSWORD,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")), 0L);
+        token = jwtUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, "admin");
+    }
+
+    /**
+     * 单纯的验签 + 解析 (extractAllClaims)
+     */
+    @Benchmark
+    public Claims extractAllClaims() {
+        return jwtUtil.extractClaim(token, claims -> claims);
+    }
+
+    @Benchmark
+    public JwtClaims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+}
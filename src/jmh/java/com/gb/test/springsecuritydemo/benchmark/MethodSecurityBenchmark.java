@@ -0,0 +1,64 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.gb.test.springsecuritydemo.config.CompiledPreAuthorizeAuthorizationManager;
+import com.gb.test.springsecuritydemo.controller.AdminController;
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+/**
+ * 调用一个 @PreAuthorize("hasRole('ADMIN')") 的控制器方法 (经过方法级安全代理)：
+ * - spel: 框架默认的 PreAuthorizeAuthorizationManager，每次调用都执行一遍 SpEL
+ * - compiled: CompiledPreAuthorizeAuthorizationManager，表达式只解析一次，判断是一次位运算
+ * - none: 没有方法级安全的代理，作为基线
+ */
+@State(Scope.Thread)
+public class MethodSecurityBenchmark {
+
+    @Param({"spel", "compiled", "none"})
+    public String manager;
+
+    private AdminController controller;
+
+    @Setup
+    public void setup() {
+        ProxyFactory factory = new ProxyFactory(new AdminController(null, null));
+        factory.setProxyTargetClass(true);
+        switch (manager) {
+            case "spel" -> factory.addAdvisor(AuthorizationManagerBeforeMethodInterceptor.preAuthorize());
+            case "compiled" -> factory.addAdvisor(AuthorizationManagerBeforeMethodInterceptor.preAuthorize(
+                    new CompiledPreAuthorizeAuthorizationManager(new PreAuthorizeAuthorizationManager())));
+            case "none" -> { }
+            default -> throw new IllegalArgumentException(manager);
+        }
+        controller = (AdminController) factory.getProxy();
+
+        // 和 JwtAuthenticationFilter 一样：principal 是 (缓存里复制出来的) AppUserDetails
+        AppUserDetails admin = new AppUserDetails("admin", BenchmarkFixtures.ENCODED_PASSWORD,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN")), 0L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public String adminHello() {
+        return controller.adminHello();
+    }
+}
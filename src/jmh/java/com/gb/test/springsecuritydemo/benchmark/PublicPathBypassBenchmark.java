@@ -0,0 +1,127 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.config.JwtAuthenticationFilter;
+import com.gb.test.springsecuritydemo.config.LoginRateLimitFilter;
+import com.gb.test.springsecuritydemo.config.MyUserDetailsService;
+import com.gb.test.springsecuritydemo.config.PublicResponseCacheFilter;
+import com.gb.test.springsecuritydemo.config.SecurityConfig;
+import com.gb.test.springsecuritydemo.config.handlers.RestAccessDeniedHandler;
+import com.gb.test.springsecuritydemo.config.handlers.RestAuthenticationEntryPoint;
+import com.gb.test.springsecuritydemo.config.handlers.ResultResponseWriter;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
+import com.gb.test.springsecuritydemo.repository.UserRepository;
+import com.gb.test.springsecuritydemo.service.LoginRateLimiter;
+import com.gb.test.springsecuritydemo.service.audit.AuditService;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.web.servlet.context.AnnotationConfigServletWebApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
+
+import java.time.Duration;
+
+/**
+ * 带 Bearer 令牌的请求经过完整的 Spring Security 过滤器 (FilterChainProxy，SecurityConfig 里的两条链)：
+ * - publicPath: /hello 匹配 security.public-paths，走 publicFilterChain，不解析令牌
+ * - protectedPath: /api/posts/protected/my-favorites 走主过滤链，JwtAuthenticationFilter 验签、加载用户、做授权判断
+ * 两者的差值就是公开接口绕开主过滤链省下的开销
+ */
+@State(Scope.Thread)
+public class PublicPathBypassBenchmark {
+
+    @Param({"true", "false"})
+    public boolean tokenCacheEnabled;
+
+    private AnnotationConfigServletWebApplicationContext context;
+    private FilterChainProxy filterChainProxy;
+    private MockHttpServletRequest publicRequest;
+    private MockHttpServletRequest protectedRequest;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setup() {
+        JwtUtil jwtUtil = new JwtUtil();
+        UserRepository repository = BenchmarkFixtures.inMemoryRepository(BenchmarkFixtures.user("admin", "ROLE_ADMIN"));
+        MyUserDetailsService userDetailsService = BenchmarkFixtures.userDetailsService(repository, true);
+        JwtAuthenticationFilter jwtFilter = BenchmarkFixtures.jwtFilter(jwtUtil, repository, userDetailsService, tokenCacheEnabled, false);
+        ObjectMapper objectMapper = new ObjectMapper();
+        // 审计关掉：不启动后台线程，只看过滤链本身
+        AuditService auditService = new AuditService(events -> { }, false, 1024, 256,
+                Duration.ofMillis(200), "drop", 10, Duration.ofMillis(10));
+
+        // 只有 SecurityConfig 和它依赖的几个对象，其余配置 (security.public-paths 等) 都用默认值
+        context = new AnnotationConfigServletWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        // @Value 里的 "30s" 之类要转换成 Duration，和 Spring Boot 应用里一样
+        context.getBeanFactory().setConversionService(new ApplicationConversionService());
+        context.register(SecurityConfig.class, RestAuthenticationEntryPoint.class, RestAccessDeniedHandler.class,
+                ResultResponseWriter.class, LoginRateLimitFilter.class, LoginRateLimiter.class, PublicResponseCacheFilter.class);
+        // requestMatchers(String) 需要 Spring MVC 的 HandlerMappingIntrospector (应用里由 WebMvcAutoConfiguration 提供)
+        context.registerBean("mvcHandlerMappingIntrospector", HandlerMappingIntrospector.class);
+        context.registerBean(ObjectMapper.class, () -> objectMapper);
+        context.registerBean(SecurityMetrics.class, () -> new SecurityMetrics(new SimpleMeterRegistry()));
+        context.registerBean(AuditService.class, () -> auditService);
+        context.registerBean(JwtAuthenticationFilter.class, () -> jwtFilter);
+        context.registerBean(MyUserDetailsService.class, () -> userDetailsService);
+        context.registerBean(PasswordEncoder.class, () -> new BCryptPasswordEncoder());
+        context.refresh();
+        filterChainProxy = context.getBean(FilterChainProxy.class);
+
+        String token = jwtUtil.generateToken(userDetailsService.loadUserByUsername("admin"));
+        publicRequest = request("/hello", token);
+        protectedRequest = request("/api/posts/protected/my-favorites", token);
+        response = new MockHttpServletResponse();
+
+        // 两个请求都必须通过 (200)，否则测到的是 401 / 403 的处理开销
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{publicRequest, protectedRequest}) {
+            MockHttpServletResponse check = new MockHttpServletResponse();
+            try {
+                filterChainProxy.doFilter(request, check, chain);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            if (check.getStatus() != 200) {
+                throw new IllegalStateException(request.getRequestURI() + " returned " + check.getStatus());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int publicPath() throws Exception {
+        filterChainProxy.doFilter(publicRequest, response, chain);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int protectedPath() throws Exception {
+        filterChainProxy.doFilter(protectedRequest, response, chain);
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
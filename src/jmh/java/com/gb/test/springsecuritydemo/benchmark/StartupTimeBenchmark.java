@@ -0,0 +1,248 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时间：从启动进程到第一个认证请求成功 (time-to-first-authenticated-request)
+ * <p>
+ * 不是 JMH 基准 (每次测量都要启动一个新进程)，但和其他基准放在一起，用同一个 profile 运行：
+ * mvn -P benchmark test-compile exec:exec@startup -Dstartup.args="jvm cds aot-cds native --runs=5"
+ * <p>
+ * 每次测量：
+ * 1. 启动应用 (端口 --port，默认 18080)，同时开始计时
+ * 2. 轮询 POST /api/auth/login 直到拿到令牌 (连接被拒绝说明还没启动完，5ms 后重试)
+ * 3. 带令牌请求 /api/posts/protected/my-favorites，返回 200 时停止计时，然后关闭应用
+ * 登录里的一次 BCrypt 校验也算在内：扩容出来的新实例收到的第一个请求同样要走这些路径
+ * <p>
+ * 模式 (对应的产物不存在时跳过)：
+ * - jvm:     java -jar target/xxx.jar                              (mvn package)
+ * - cds:     解压后的 jar + CDS 归档                                  (mvn -P cds package)
+ * - aot-cds: 同上，再加 -Dspring.aot.enabled=true 使用构建时生成的 Bean 定义  (mvn -P cds package)
+ * - native:  GraalVM 原生镜像 target/spring-security-demo           (mvn -P native package)
+ * <p>
+ * 应用需要能连上数据库并且有可登录的用户 (--username / --password，默认 admin / 123456)；
+ * "--" 之后的参数原样传给应用，例如 -- --spring.datasource.url=jdbc:mysql://db:3306/demo
+ * 每次运行的输出保存在 target/startup-benchmark/&lt;模式&gt;-&lt;序号&gt;.log
+ */
+public final class StartupTimeBenchmark {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    private final Path targetDir;
+    private final String artifact;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final Duration timeout;
+    private final List<String> appArgs;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StartupTimeBenchmark(Map<String, String> options, List<String> appArgs) {
+        this.targetDir = Path.of(options.getOrDefault("dir", "target"));
+        this.artifact = options.getOrDefault("artifact", "spring-security-demo-0.0.1-SNAPSHOT");
+        this.port = Integer.parseInt(options.getOrDefault("port", "18080"));
+        this.username = options.getOrDefault("username", "admin");
+        this.password = options.getOrDefault("password", "123456");
+        this.timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout-seconds", "120")));
+        this.appArgs = appArgs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> modes = new ArrayList<>();
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--")) {
+                appArgs.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                break;
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                modes.add(arg);
+            }
+        }
+        if (modes.isEmpty()) {
+            modes = List.of("jvm", "cds", "aot-cds", "native");
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+
+        StartupTimeBenchmark benchmark = new StartupTimeBenchmark(options, appArgs);
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        for (String mode : modes) {
+            List<String> command = benchmark.command(mode);
+            if (command == null) {
+                continue;
+            }
+            List<Long> millis = new ArrayList<>(runs);
+            for (int run = 1; run <= runs; run++) {
+                long elapsed = benchmark.measure(mode, run, command);
+                System.out.printf("%-8s run %d: %d ms%n", mode, run, elapsed);
+                millis.add(elapsed);
+            }
+            results.put(mode, millis);
+        }
+
+        System.out.println();
+        System.out.printf("%-8s %6s %8s %8s %8s%n", "mode", "runs", "min(ms)", "p50(ms)", "max(ms)");
+        results.forEach((mode, millis) -> {
+            Collections.sort(millis);
+            System.out.printf("%-8s %6d %8d %8d %8d%n", mode, millis.size(),
+                    millis.get(0), millis.get(millis.size() / 2), millis.get(millis.size() - 1));
+        });
+    }
+
+    /**
+     * 每种模式的启动命令；产物不存在时返回 null
+     */
+    private List<String> command(String mode) {
+        Path jar = targetDir.resolve(artifact + ".jar");
+        Path cdsDir = targetDir.resolve("cds");
+        Path cdsJar = cdsDir.resolve(artifact + ".jar");
+        Path archive = cdsDir.resolve("application.jsa");
+        Path nativeImage = targetDir.resolve("spring-security-demo");
+        List<String> command = new ArrayList<>();
+        switch (mode) {
+            case "jvm" -> {
+                if (!exists(mode, jar, "mvn package")) {
+                    return null;
+                }
+                command.addAll(List.of(java(), "-jar", jar.toString()));
+            }
+            case "cds", "aot-cds" -> {
+                if (!exists(mode, archive, "mvn -P cds package")) {
+                    return null;
+                }
+                command.addAll(List.of(java(), "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=error"));
+                if (mode.equals("aot-cds")) {
+                    command.add("-Dspring.aot.enabled=true");
+                }
+                command.addAll(List.of("-jar", cdsJar.toString()));
+            }
+            case "native" -> {
+                if (!exists(mode, nativeImage, "mvn -P native package")) {
+                    return null;
+                }
+                command.add(nativeImage.toString());
+            }
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+        return command;
+    }
+
+    private static boolean exists(String mode, Path path, String buildCommand) {
+        if (Files.exists(path)) {
+            return true;
+        }
+        System.out.printf("%-8s skipped: %s not found (%s)%n", mode, path, buildCommand);
+        return false;
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private long measure(String mode, int run, List<String> command) throws IOException, InterruptedException {
+        Path log = targetDir.resolve("startup-benchmark").resolve(mode + "-" + run + ".log");
+        Files.createDirectories(log.getParent());
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+
+        final long startedAt = System.nanoTime();
+        Process process = builder.start();
+        try {
+            String token = login(process, startedAt, log);
+            awaitAuthenticated(process, startedAt, log, token);
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private String login(Process process, long startedAt, Path log) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        Map.of("username", username, "password", password))))
+                .build();
+        while (true) {
+            HttpResponse<String> response = poll(process, startedAt, log, request);
+            if (response == null) {
+                continue;
+            }
+            if (response.statusCode() == 200) {
+                JsonNode token = objectMapper.readTree(response.body()).get("token");
+                if (token != null) {
+                    return token.asText();
+                }
+            }
+            if (response.statusCode() == 401 || response.statusCode() == 403) {
+                throw new IllegalStateException("Login rejected for user '" + username + "': " + response.body());
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis()); // 启动中的其他状态 (如 503)：稍后重试
+        }
+    }
+
+    private void awaitAuthenticated(Process process, long startedAt, Path log, String token)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/posts/protected/my-favorites"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        while (true) {
+            HttpResponse<String> response = poll(process, startedAt, log, request);
+            if (response != null && response.statusCode() == 200) {
+                return;
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+    }
+
+    /**
+     * 发一次请求；应用还没开始监听时返回 null
+     */
+    private HttpResponse<String> poll(Process process, long startedAt, Path log, HttpRequest request)
+            throws IOException, InterruptedException {
+        if (!process.isAlive()) {
+            throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+        }
+        if (System.nanoTime() - startedAt > timeout.toNanos()) {
+            throw new IllegalStateException("No authenticated response within " + timeout + ", see " + log);
+        }
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (ConnectException e) {
+            Thread.sleep(POLL_INTERVAL.toMillis());
+            return null;
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,103 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.gb.test.springsecuritydemo.config.JwtAuthenticationFilter;
+import com.gb.test.springsecuritydemo.config.MyUserDetailsService;
+import com.gb.test.springsecuritydemo.repository.UserRepository;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 负载测试：平台线程池 vs 虚拟线程
+ * <p>
+ * 每次操作同时发起 concurrency 个 "请求"，每个请求完整走一遍 JwtAuthenticationFilter，
+ * 用户查询走的是带 5ms 延迟的内存仓库（模拟阻塞的 JDBC，且关闭用户缓存）
+ * - platform: 200 个平台线程，等同 Tomcat 默认的 server.tomcat.threads.max
+ * - virtual:  每个请求一个虚拟线程，等同 spring.threads.virtual.enabled=true
+ * 平台线程模式下，并发超过 200 后请求只能排队，耗时按 concurrency / 200 的倍数增长
+ * 同时校验每个请求都在自己的线程上拿到了正确的 SecurityContext
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadingModeBenchmark {
+
+    private static final int TOMCAT_DEFAULT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String threading;
+
+    @Param({"200", "1000", "4000"})
+    public int concurrency;
+
+    private ExecutorService executor;
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = "virtual".equals(threading)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_DEFAULT_MAX_THREADS);
+
+        JwtUtil jwtUtil = new JwtUtil();
+        UserRepository repository = BenchmarkFixtures.inMemoryRepository(Duration.ofMillis(5),
+                BenchmarkFixtures.user("admin", "ROLE_ADMIN"));
+        MyUserDetailsService userDetailsService = BenchmarkFixtures.userDetailsService(repository, false);
+        filter = BenchmarkFixtures.jwtFilter(jwtUtil, repository, userDetailsService, true, false);
+        authorization = "Bearer " + jwtUtil.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int concurrentRequests() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrency);
+        AtomicInteger authenticated = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> {
+                try {
+                    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/protected/my-favorites");
+                    request.addHeader("Authorization", authorization);
+                    filter.doFilter(request, new MockHttpServletResponse(), chain);
+                    if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                        authenticated.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (authenticated.get() != concurrency) {
+            throw new IllegalStateException("Only " + authenticated.get() + " of " + concurrency + " requests authenticated");
+        }
+        return authenticated.get();
+    }
+}
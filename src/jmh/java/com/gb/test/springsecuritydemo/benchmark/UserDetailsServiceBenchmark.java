@@ -0,0 +1,34 @@
+package com.gb.test.springsecuritydemo.benchmark;
+
+import com.gb.test.springsecuritydemo.config.MyUserDetailsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * MyUserDetailsService.loadUserByUsername，数据库换成内存版仓库，
+ * 测的是转换、缓存和复制的开销
+ */
+@State(Scope.Benchmark)
+public class UserDetailsServiceBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private MyUserDetailsService userDetailsService;
+
+    @Setup
+    public void setup() {
+        userDetailsService = BenchmarkFixtures.userDetailsService(
+                BenchmarkFixtures.inMemoryRepository(BenchmarkFixtures.user("admin", "ROLE_ADMIN")),
+                cacheEnabled);
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailsService.loadUserByUsername("admin");
+    }
+}
@@ -2,8 +2,10 @@ package com.gb.test.springsecuritydemo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // 开启定时任务（清理吊销列表等）
 public class SpringSecurityDemoApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,198 @@
+package com.gb.test.springsecuritydemo.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 一个简单的、线程安全的、有容量上限的过期缓存
+ * 每个条目都有自己的过期时间点，过期的条目永远不会被 get 返回
+ * 容量满时先清理过期条目，仍然不够再随机淘汰一批（约 10%），保证内存有上界
+ * getOrLoad 对同一个键的并发未命中做合并 (single-flight)：只有一个线程真正去加载，其余线程等待它的结果
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    // 正在加载中的键 -> 加载结果
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    // 统计计数器 (LongAdder 在高并发下比 AtomicLong 更快)
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 读取缓存，过期的条目会被顺手删除并视为未命中
+     */
+    public V get(K key, long nowMillis) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis() <= nowMillis) {
+            // 只删除我们读到的这个条目，避免误删别的线程刚放进去的新值
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    /**
+     * 只在命中时读取并计入命中次数；未命中时不计数，由随后的 getOrLoad 记一次未命中
+     * (给不能阻塞、未命中时要换个线程再加载的调用方用，避免一次未命中被记两次)
+     */
+    public V peek(K key, long nowMillis) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.expiresAtMillis() <= nowMillis) {
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    /**
+     * 写入缓存，已经过期的值直接忽略
+     */
+    public void put(K key, V value, long expiresAtMillis, long nowMillis) {
+        if (expiresAtMillis <= nowMillis) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            makeRoom(nowMillis);
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    /**
+     * 读取缓存，未命中时调用 loader 加载并缓存 ttlMillis 毫秒
+     * 同一个键同时只会有一个线程执行 loader，其他线程直接复用它的结果（包括异常）
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader, long ttlMillis) {
+        V value = get(key, System.currentTimeMillis());
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            // 已经有线程在加载这个键，等它的结果
+            return join(running);
+        }
+
+        try {
+            V loaded = loader.apply(key);
+            // 只有当加载期间没有被 remove() 过时才写入缓存，防止把旧数据放回去
+            // (写入动作在 inFlight 的同一个桶锁内完成，和 remove() 串行)
+            inFlight.computeIfPresent(key, (k, current) -> {
+                if (current == mine) {
+                    long now = System.currentTimeMillis();
+                    put(k, loaded, now + ttlMillis, now);
+                }
+                return current;
+            });
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public void remove(K key) {
+        // 先取消进行中的加载，再删除已有条目
+        inFlight.remove(key);
+        entries.remove(key);
+    }
+
+    public void clear() {
+        inFlight.clear();
+        entries.clear();
+    }
+
+    /**
+     * 清理所有已过期的条目
+     */
+    public void purgeExpired(long nowMillis) {
+        for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            if (it.next().getValue().expiresAtMillis() <= nowMillis) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void makeRoom(long nowMillis) {
+        purgeExpired(nowMillis);
+        if (entries.size() < maxSize) {
+            return;
+        }
+        // 仍然是满的：按 ConcurrentHashMap 的迭代顺序（近似随机）淘汰一批，
+        // 一次腾出约 10% 的空间，避免每次 put 都全表扫描
+        int toEvict = Math.max(1, maxSize / 10);
+        for (Iterator<K> it = entries.keySet().iterator(); it.hasNext() && toEvict > 0; toEvict--) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.gb.test.springsecuritydemo.cache;
+
+import com.gb.test.springsecuritydemo.model.JwtClaims;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * 已验证令牌的缓存 (放在 JwtUtil 前面)
+ * 同一个令牌在有效期内会被反复发送，命中缓存时就不必再做 HS256 验签和 JSON 解析
+ * <p>
+ * - 键是原始令牌的 SHA-256 摘要，不在内存里保存令牌原文
+ * - 条目在令牌自身的过期时间点失效，过期令牌永远不会从缓存中返回
+ * - 容量有上限 (jwt.cache.max-size)，可以通过 jwt.cache.enabled=false 关闭
+ */
+@Component
+public class JwtTokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final boolean enabled;
+    private final ExpiringCache<String, JwtClaims> cache;
+
+    public JwtTokenCache(JwtUtil jwtUtil,
+                         @Value("${jwt.cache.enabled:true}") boolean enabled,
+                         @Value("${jwt.cache.max-size:10000}") int maxSize) {
+        this.jwtUtil = jwtUtil;
+        this.enabled = enabled;
+        this.cache = new ExpiringCache<>(maxSize);
+    }
+
+    /**
+     * 解析并验证令牌，优先从缓存中取
+     * @throws io.jsonwebtoken.JwtException 令牌无效（未命中缓存时由 JwtUtil 抛出）
+     */
+    public JwtClaims parseToken(String token) {
+        if (!enabled) {
+            return jwtUtil.parseToken(token);
+        }
+        final long now = System.currentTimeMillis();
+        final String key = digest(token);
+
+        JwtClaims claims = cache.get(key, now);
+        if (claims == null) {
+            // 未命中：完整验签一次，然后按令牌的过期时间放入缓存
+            claims = jwtUtil.parseToken(token);
+            cache.put(key, claims, claims.expirationMillis(), now);
+        }
+        return claims;
+    }
+
+    /**
+     * 主动让某个令牌失效（比如用户登出）
+     */
+    public void invalidate(String token) {
+        cache.remove(digest(token));
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ExpiringCache<String, JwtClaims> getCache() {
+        return cache;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // 每个 JVM 都必须支持 SHA-256，走不到这里
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
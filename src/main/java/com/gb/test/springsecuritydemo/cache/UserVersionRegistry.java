@@ -0,0 +1,109 @@
+package com.gb.test.springsecuritydemo.cache;
+
+import com.gb.test.springsecuritydemo.event.InvalidationGapEvent;
+import com.gb.test.springsecuritydemo.event.UserChangedEvent;
+import com.gb.test.springsecuritydemo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录每个用户 "最低可接受的令牌版本号"
+ * 无状态模式下过滤器不查数据库，靠这里判断令牌是否因为改角色/改密码而作废：
+ * 1. 某个用户第一次出现时从 users.token_version 读一次作为初始值 (之后只在内存里判断)，
+ *    所以重启之后，重启前被作废的令牌仍然会被拒绝
+ * 2. 之后的修改由 UserChangedEvent 在事务提交后推进来
+ * 3. 版本号只增不减 (取最大值)：初始化时读到的旧值不会覆盖同时推进来的新值
+ * 4. 和其他节点之间的失效消息可能丢失时 (InvalidationGapEvent) 整体清空，重新从数据库读
+ * 5. 数据库里不存在的用户 (已删除) 记一个短期的否定结果，
+ *    带着这种令牌的请求不会每次都查一次数据库
+ * 表里最多是 "有过请求的用户" 个数的条目，每条只是一个 Long
+ * <p>
+ * peek 只查内存，load 会查数据库 (阻塞)：响应式版本在事件循环上只调 peek，未命中时换到别的线程调 load
+ */
+@Component
+public class UserVersionRegistry {
+
+    private final UserRepository userRepository;
+    private final ConcurrentHashMap<String, Long> minimumVersions = new ConcurrentHashMap<>();
+
+    // 不存在的用户 -> 占位值，过期后重新查库 (用户被重新创建时最多晚这么久才能用)
+    private final ExpiringCache<String, Boolean> absentUsers;
+    private final long absentTtlMillis;
+
+    public UserVersionRegistry(UserRepository userRepository,
+                               @Value("${security.user-version.absent-ttl:10s}") Duration absentTtl,
+                               @Value("${security.user-version.absent-max-size:10000}") int absentMaxSize) {
+        this.userRepository = userRepository;
+        this.absentTtlMillis = absentTtl.toMillis();
+        this.absentUsers = new ExpiringCache<>(absentMaxSize);
+    }
+
+    /**
+     * 令牌中的版本号是否仍然有效；用户已经不存在时返回 false
+     * 内存里没有这个用户时会查数据库
+     */
+    public boolean isCurrent(String username, long tokenVersion) {
+        Boolean current = peek(username, tokenVersion);
+        return current != null ? current : load(username, tokenVersion);
+    }
+
+    /**
+     * 只查内存，不访问数据库
+     * @return 还不知道这个用户 (需要调用 load) 时返回 null
+     */
+    public Boolean peek(String username, long tokenVersion) {
+        Long minimum = minimumVersions.get(username);
+        if (minimum != null) {
+            return tokenVersion >= minimum;
+        }
+        if (absentUsers.peek(username, System.currentTimeMillis()) != null) {
+            return false;
+        }
+        return null;
+    }
+
+    /**
+     * 从数据库读取用户当前的版本号并记下来，然后判断令牌是否有效 (阻塞)
+     */
+    public boolean load(String username, long tokenVersion) {
+        // 不在 computeIfAbsent 里查库，避免查询期间锁住同一个桶里的其他用户
+        Optional<Long> stored = userRepository.findTokenVersionByUsername(username);
+        if (stored.isEmpty()) {
+            long now = System.currentTimeMillis();
+            absentUsers.put(username, Boolean.TRUE, now + absentTtlMillis, now);
+            return false;
+        }
+        long minimum = minimumVersions.merge(username, stored.get(), Math::max);
+        return tokenVersion >= minimum;
+    }
+
+    /**
+     * 把某个用户的最低版本号提升到 version (只增不减)
+     */
+    public void advance(String username, long version) {
+        minimumVersions.merge(username, version, Math::max);
+    }
+
+    // 本节点的修改在事务提交后才生效 (回滚的修改不能作废令牌)；
+    // 其他节点上的修改由 InvalidationBus 转发过来，不在事务里，fallbackExecution 让它立即执行
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        advance(event.username(), event.tokenVersion());
+        absentUsers.remove(event.username());
+    }
+
+    /**
+     * 和其他节点之间的失效消息可能丢了 (见 InvalidationBus)：全部丢弃，之后每个用户再从数据库读一次
+     */
+    @EventListener
+    public void onInvalidationGap(InvalidationGapEvent event) {
+        minimumVersions.clear();
+        absentUsers.clear();
+    }
+}
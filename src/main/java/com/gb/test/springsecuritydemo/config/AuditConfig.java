@@ -0,0 +1,38 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.service.audit.AuditSink;
+import com.gb.test.springsecuritydemo.service.audit.FileAuditSink;
+import com.gb.test.springsecuritydemo.service.audit.JdbcAuditSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 安全审计日志的存储 (AuditService 的后台线程批量写入)
+ * security.audit.sink=file: 追加写到本地 NDJSON 文件 security.audit.file
+ * security.audit.sink=jdbc: 批量插入 security_audit_log 表
+ */
+@Configuration
+public class AuditConfig {
+
+    @Bean
+    public AuditSink auditSink(@Value("${security.audit.enabled:true}") boolean enabled,
+                               @Value("${security.audit.sink:file}") String sink,
+                               @Value("${security.audit.file:./data/security-audit.log}") String file,
+                               ObjectMapper objectMapper,
+                               JdbcTemplate jdbcTemplate) throws IOException {
+        if (!enabled) {
+            return events -> { }; // 关闭审计时不创建文件
+        }
+        return switch (sink) {
+            case "file" -> new FileAuditSink(Path.of(file), objectMapper);
+            case "jdbc" -> new JdbcAuditSink(jdbcTemplate);
+            default -> throw new IllegalStateException("Unsupported security.audit.sink: " + sink);
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import com.gb.test.springsecuritydemo.utils.AuthorityBits;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.authorization.method.MethodAuthorizationDeniedHandler;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @PreAuthorize 的 "编译版" 鉴权
+ * <p>
+ * 默认的 PreAuthorizeAuthorizationManager 每次调用都要创建 EvaluationContext、用反射执行 SpEL。
+ * 而项目里绝大部分表达式只是 hasRole('ADMIN') 这种角色判断，这里：
+ * 1. 每个方法第一次被调用时解析一次它的 @PreAuthorize，结果按 (方法, 目标类) 缓存
+ * 2. hasRole / hasAnyRole / hasAuthority / hasAnyAuthority (可以用 or 连接) 编译成一个权限掩码，
+ *    判断就是 (用户掩码 & 规则掩码) != 0；isAuthenticated()、permitAll、denyAll 也直接判断
+ * 3. 用户掩码在 AppUserDetails 创建时就算好了 (随 UserDetails 缓存)，其他类型的用户当场计算
+ * 4. 其他表达式 (and、not、#参数、@bean 引用等) 原样交给 SpEL 版本执行，行为和以前完全一致
+ * <p>
+ * 注意：没有配置 RoleHierarchy，角色之间不存在继承；如果以后加了角色继承，需要在编译时把它展开
+ */
+public class CompiledPreAuthorizeAuthorizationManager
+        implements AuthorizationManager<MethodInvocation>, MethodAuthorizationDeniedHandler {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    // 一个角色判断，例如 hasRole('ADMIN') 或 hasAnyAuthority('ROLE_A', 'ROLE_B')
+    private static final String TERM = "(hasRole|hasAnyRole|hasAuthority|hasAnyAuthority)\\(\\s*('[^']*'(?:\\s*,\\s*'[^']*')*)\\s*\\)";
+    private static final Pattern TERM_PATTERN = Pattern.compile(TERM);
+    // 用 or 连接的若干个角色判断
+    private static final Pattern ROLE_EXPRESSION = Pattern.compile(
+            "\\s*" + TERM + "(?:\\s*(?:or|\\|\\|)\\s*" + TERM + ")*\\s*");
+    private static final Pattern QUOTED = Pattern.compile("'([^']*)'");
+
+    /**
+     * 编译后的规则
+     */
+    private interface Rule {
+    }
+
+    private record Fixed(AuthorizationDecision decision) implements Rule {
+    }
+
+    private record Authenticated() implements Rule {
+    }
+
+    private record AnyAuthority(long mask) implements Rule {
+    }
+
+    // 交给 SpEL 执行
+    private record Fallback() implements Rule {
+    }
+
+    private static final Rule PERMIT_ALL = new Fixed(GRANTED);
+    private static final Rule DENY_ALL = new Fixed(DENIED);
+    private static final Rule NO_ANNOTATION = new Fixed(null);
+    private static final Rule AUTHENTICATED = new Authenticated();
+    private static final Rule FALLBACK = new Fallback();
+
+    private final PreAuthorizeAuthorizationManager spelManager;
+    private final String rolePrefix;
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+    private final Map<MethodClassKey, Rule> rules = new ConcurrentHashMap<>();
+
+    private final LongAdder compiledDecisions = new LongAdder();
+    private final LongAdder fallbackDecisions = new LongAdder();
+
+    /**
+     * @param spelManager 处理复杂表达式、以及拒绝后的处理 (@HandleAuthorizationDenied)
+     * @param rolePrefix  hasRole 自动加的前缀，和 SpEL 版本保持一致 (默认 "ROLE_")
+     */
+    public CompiledPreAuthorizeAuthorizationManager(PreAuthorizeAuthorizationManager spelManager, String rolePrefix) {
+        this.spelManager = spelManager;
+        this.rolePrefix = rolePrefix;
+    }
+
+    public CompiledPreAuthorizeAuthorizationManager(PreAuthorizeAuthorizationManager spelManager) {
+        this(spelManager, "ROLE_");
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        Rule rule = ruleFor(invocation);
+        if (rule instanceof Fallback) {
+            fallbackDecisions.increment();
+            return spelManager.check(authentication, invocation);
+        }
+        compiledDecisions.increment();
+        if (rule instanceof AnyAuthority any) {
+            return (authorityMask(authentication.get()) & any.mask()) != 0 ? GRANTED : DENIED;
+        }
+        if (rule instanceof Authenticated) {
+            return trustResolver.isAuthenticated(authentication.get()) ? GRANTED : DENIED;
+        }
+        return ((Fixed) rule).decision();
+    }
+
+    @Override
+    public Object handleDeniedInvocation(MethodInvocation invocation, AuthorizationResult result) {
+        return spelManager.handleDeniedInvocation(invocation, result);
+    }
+
+    /**
+     * 通过位运算完成的判断次数 / 交给 SpEL 的判断次数
+     */
+    public long getCompiledDecisions() {
+        return compiledDecisions.sum();
+    }
+
+    public long getFallbackDecisions() {
+        return fallbackDecisions.sum();
+    }
+
+    private Rule ruleFor(MethodInvocation invocation) {
+        Object target = invocation.getThis();
+        Class<?> targetClass = target != null ? AopUtils.getTargetClass(target) : null;
+        MethodClassKey key = new MethodClassKey(invocation.getMethod(), targetClass);
+        Rule rule = rules.get(key);
+        if (rule == null) {
+            rule = rules.computeIfAbsent(key, k -> compile(invocation.getMethod(), targetClass));
+        }
+        return rule;
+    }
+
+    private static long authorityMask(Authentication authentication) {
+        if (authentication == null) {
+            return 0L;
+        }
+        // JwtAuthenticationFilter 用 UserDetails 自己的权限创建认证令牌，两者一致，可以直接用提前算好的掩码
+        if (authentication.getPrincipal() instanceof AppUserDetails user) {
+            return user.getAuthorityMask();
+        }
+        return AuthorityBits.maskOf(authentication.getAuthorities());
+    }
+
+    /**
+     * 找到方法 (或所在类) 上的 @PreAuthorize 并编译；无法编译的都返回 FALLBACK
+     */
+    private Rule compile(Method method, Class<?> targetClass) {
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        PreAuthorize annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, PreAuthorize.class);
+        if (annotation == null) {
+            Class<?> type = targetClass != null ? targetClass : specificMethod.getDeclaringClass();
+            annotation = AnnotatedElementUtils.findMergedAnnotation(type, PreAuthorize.class);
+        }
+        if (annotation == null) {
+            return NO_ANNOTATION;
+        }
+        return compile(annotation.value());
+    }
+
+    private Rule compile(String expression) {
+        String trimmed = expression.strip();
+        switch (trimmed) {
+            case "permitAll", "permitAll()" -> {
+                return PERMIT_ALL;
+            }
+            case "denyAll", "denyAll()" -> {
+                return DENY_ALL;
+            }
+            case "isAuthenticated()" -> {
+                return AUTHENTICATED;
+            }
+            default -> {
+            }
+        }
+        if (!ROLE_EXPRESSION.matcher(trimmed).matches()) {
+            return FALLBACK;
+        }
+        long mask = 0L;
+        Matcher term = TERM_PATTERN.matcher(trimmed);
+        while (term.find()) {
+            boolean role = term.group(1).endsWith("Role");
+            Matcher quoted = QUOTED.matcher(term.group(2));
+            while (quoted.find()) {
+                String authority = quoted.group(1);
+                if (role && !authority.startsWith(rolePrefix)) {
+                    authority = rolePrefix + authority;
+                }
+                int bit = AuthorityBits.bitOf(authority);
+                if (bit < 0) {
+                    return FALLBACK; // 不同的权限名超过 64 个
+                }
+                mask |= 1L << bit;
+            }
+        }
+        return new AnyAuthority(mask);
+    }
+}
@@ -0,0 +1,48 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.service.invalidation.InJvmInvalidationTransport;
+import com.gb.test.springsecuritydemo.service.invalidation.InvalidationTransport;
+import com.gb.test.springsecuritydemo.service.invalidation.RespInvalidationTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 集群失效广播 (InvalidationBus) 的传输方式
+ * security.bus.transport=in-jvm: 同一个 JVM 内广播 (单节点、测试)
+ * security.bus.transport=resp: Redis (或兼容 RESP 协议的服务) 的 pub/sub，多个实例部署时使用
+ */
+@Configuration
+public class InvalidationBusConfig {
+
+    @Bean
+    public InvalidationTransport invalidationTransport(@Value("${security.bus.enabled:false}") boolean enabled,
+                                                       @Value("${security.bus.transport:in-jvm}") String transport,
+                                                       @Value("${security.bus.channel:security-invalidation}") String channel,
+                                                       @Value("${security.bus.resp.host:localhost}") String host,
+                                                       @Value("${security.bus.resp.port:6379}") int port,
+                                                       @Value("${security.bus.resp.password:}") String password,
+                                                       @Value("${security.bus.resp.timeout:2s}") Duration timeout,
+                                                       @Value("${security.bus.resp.max-reconnect-delay:30s}") Duration maxReconnectDelay,
+                                                       @Value("${security.bus.resp.ping-interval:5s}") Duration pingInterval) {
+        if (!enabled) {
+            return new InvalidationTransport() { // 关闭时不建立任何连接
+                @Override
+                public void publish(byte[] payload) {
+                }
+
+                @Override
+                public void subscribe(Listener listener) {
+                }
+            };
+        }
+        return switch (transport) {
+            case "in-jvm" -> new InJvmInvalidationTransport(channel);
+            case "resp" -> new RespInvalidationTransport(host, port, password, channel, timeout,
+                    maxReconnectDelay, pingInterval);
+            default -> throw new IllegalStateException("Unsupported security.bus.transport: " + transport);
+        };
+    }
+}
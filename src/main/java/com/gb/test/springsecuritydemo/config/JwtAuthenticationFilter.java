@@ -1,31 +1,67 @@
 package com.gb.test.springsecuritydemo.config;
 
-import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import com.gb.test.springsecuritydemo.cache.JwtTokenCache;
+import com.gb.test.springsecuritydemo.cache.UserVersionRegistry;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics.AuthOutcome;
+import com.gb.test.springsecuritydemo.model.JwtClaims;
+import com.gb.test.springsecuritydemo.service.TokenRevocationService;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component // 1. 把它也声明为一个 Spring 组件
+@Profile("!reactive")
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private final JwtTokenCache jwtTokenCache;
     private final UserDetailsService userDetailsService;
+    private final UserVersionRegistry userVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
+    private final SecurityMetrics securityMetrics;
+
+    // 无状态模式：直接用令牌里的角色构建认证信息，不调用 UserDetailsService
+    private final boolean statelessMode;
 
     // 2. 通过构造函数注入
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
-        this.jwtUtil = jwtUtil;
+    //    JwtTokenCache 包装了 JwtUtil：同一个令牌只在第一次出现时完整验签
+    public JwtAuthenticationFilter(JwtTokenCache jwtTokenCache,
+                                   UserDetailsService userDetailsService,
+                                   UserVersionRegistry userVersionRegistry,
+                                   TokenRevocationService tokenRevocationService,
+                                   SecurityMetrics securityMetrics,
+                                   @Value("${jwt.stateless:false}") boolean statelessMode) {
+        this.jwtTokenCache = jwtTokenCache;
         this.userDetailsService = userDetailsService;
+        this.userVersionRegistry = userVersionRegistry;
+        this.tokenRevocationService = tokenRevocationService;
+        this.securityMetrics = securityMetrics;
+        this.statelessMode = statelessMode;
     }
 
     @Override
@@ -37,61 +73,131 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // 3. 从请求头中获取 "Authorization"
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
 
         // 4. 检查 Header 是否存在，以及是否以 "Bearer " 开头
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            securityMetrics.outcome(AuthOutcome.MISSING_HEADER);
             filterChain.doFilter(request, response); // 如果不是 JWT，放行，让后续过滤器处理
             return;
         }
 
         // 5. 提取 JWT 令牌 (去掉 "Bearer " 前缀)
-        jwt = authHeader.substring(7);
+        final String jwt = authHeader.substring(7);
+
+        // 6 ~ 11. 认证，并把结果计入指标
+        securityMetrics.outcome(authenticate(jwt, request));
+
+        // 12. 无论是否认证成功，都放行请求
+        //    如果认证成功，后续的过滤器会看到 SecurityContext 中有认证信息
+        //    如果失败（比如令牌无效），SecurityContext 中没有认证信息，后续的过滤器（如 AuthorizationFilter）会拒绝访问
+        //    (放行放在 try/catch 之外：后续过滤器或控制器抛出的异常不能被当成令牌错误吞掉，更不能再放行第二次)
+        filterChain.doFilter(request, response);
+    }
 
+    /**
+     * 解析令牌并写入 SecurityContext
+     * @return 本次认证的结果（用于指标统计）
+     */
+    private AuthOutcome authenticate(String jwt, HttpServletRequest request) {
         try {
-            // 6. 从令牌中解析出用户名
-            username = jwtUtil.extractUsername(jwt);
+            // 6. 解析并验证令牌（签名、格式、过期时间只校验这一次，命中缓存则完全不用验签）
+            //    验证失败会直接抛出 JwtException，进入下面的 catch
+            final long startedAt = System.nanoTime();
+            final JwtClaims claims = jwtTokenCache.parseToken(jwt);
+            final long parsedAt = System.nanoTime();
+            securityMetrics.recordParse(parsedAt - startedAt);
+            final String username = claims.username();
 
             // 7. 检查用户名不为空，且 *当前的安全上下文中没有* 认证信息
             //    (SecurityContextHolder.getContext().getAuthentication() == null)
             //    这个检查是为了防止在一次请求中重复认证
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-                // 8. 根据用户名，从数据库加载 UserDetails
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (username == null) {
+                return AuthOutcome.MALFORMED;
+            }
+            if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                return AuthOutcome.ALREADY_AUTHENTICATED;
+            }
+            //    同时检查令牌是否已经被吊销（登出），布隆过滤器挡掉绝大多数查询，几乎零成本
+            //    (多实例部署时其他节点上的登出由 InvalidationBus 同步过来，用户缓存、版本号也一样)
+            if (tokenRevocationService.isRevoked(claims.tokenId())) {
+                return AuthOutcome.REVOKED;
+            }
 
-                // 9. 验证令牌是否有效（用户名匹配且未过期）
-                if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
+            // 8. 构建认证令牌
+            //    无状态模式（且令牌里带了角色）：只用令牌里的 claims，不访问数据库
+            //    普通模式：根据用户名从 UserDetailsService 加载用户
+            final UsernamePasswordAuthenticationToken authToken;
+            if (statelessMode && claims.roles() != null) {
+                if (!userVersionRegistry.isCurrent(username, claims.userVersion())) {
+                    return AuthOutcome.REVOKED;
+                }
+                authToken = authenticateFromClaims(claims);
+            } else {
+                authToken = authenticateFromUserDetails(username);
+                if (authToken == null) {
+                    return AuthOutcome.USER_NOT_FOUND;
+                }
+            }
+            final long loadedAt = System.nanoTime();
+            securityMetrics.recordUserLookup(loadedAt - parsedAt);
+
+            authToken.setDetails(
+                    new WebAuthenticationDetailsSource().buildDetails(request)
+            );
+
+            // 11. **将认证令牌设置到 Spring Security 的上下文中**
+            //    从这一刻起，Spring Security 就知道这个用户已经过认证了
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+            securityMetrics.recordContext(System.nanoTime() - loadedAt);
+            return AuthOutcome.SUCCESS;
+
+        } catch (ExpiredJwtException e) {
+            // 令牌解析或验证失败时不在这里返回 401，而是让请求保持 "未认证"，
+            // 由后续的安全机制处理（需要登录的接口会走到 RestAuthenticationEntryPoint）
+            return AuthOutcome.EXPIRED;
+        } catch (SignatureException e) {
+            return AuthOutcome.BAD_SIGNATURE;
+        } catch (JwtException | IllegalArgumentException e) {
+            return AuthOutcome.MALFORMED;
+        } catch (UsernameNotFoundException e) {
+            return AuthOutcome.USER_NOT_FOUND;
+        } catch (RuntimeException e) {
+            log.debug("JWT authentication failed", e);
+            return AuthOutcome.ERROR;
+        }
+    }
 
-                    // 10. **关键步骤**：如果令牌有效，创建一个认证令牌
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, // principal (当事人，即 UserDetails)
-                            null,        // credentials (凭证，JWT 模式下不需要)
-                            userDetails.getAuthorities() // 用户的权限
-                    );
+    /**
+     * 普通模式：从 UserDetailsService 加载用户（带缓存）
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromUserDetails(String username) {
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
 
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
+        // 9. 令牌已经验证过，这里只需确认用户名匹配（不再重复解析令牌）
+        if (!username.equals(userDetails.getUsername())) {
+            return null;
+        }
 
-                    // 11. **将认证令牌设置到 Spring Security 的上下文中**
-                    //    从这一刻起，Spring Security 就知道这个用户已经过认证了
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
-            }
+        // 10. **关键步骤**：如果令牌有效，创建一个认证令牌
+        return new UsernamePasswordAuthenticationToken(
+                userDetails, // principal (当事人，即 UserDetails)
+                null,        // credentials (凭证，JWT 模式下不需要)
+                userDetails.getAuthorities() // 用户的权限
+        );
+    }
 
-            // 12. 无论是否认证成功，都放行请求
-            //    如果认证成功，后续的过滤器会看到 SecurityContext 中有认证信息
-            //    如果失败（比如令牌无效），SecurityContext 中没有认证信息，后续的过滤器（如 AuthorizationFilter）会拒绝访问
-            filterChain.doFilter(request, response);
-
-        } catch (Exception e) {
-            // 如果 JWT 解析或验证失败（如过期、签名错误）
-            // 我们可以直接在这里处理异常，比如返回 401 或 403
-            // 为简单起见，我们先放行，让后续的安全机制处理（它会因为没有认证信息而拒绝）
-            // 在生产中，你可能想在这里直接返回 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid Token");
-            filterChain.doFilter(request, response);
+    /**
+     * 无状态模式：只凭已验证的 claims 构建认证信息
+     * (调用前已经检查过令牌版本号：用户改过角色/密码后，旧版本的令牌被拒绝，纯内存判断)
+     */
+    private UsernamePasswordAuthenticationToken authenticateFromClaims(JwtClaims claims) {
+        List<GrantedAuthority> authorities = new ArrayList<>(claims.roles().size());
+        for (String role : claims.roles()) {
+            authorities.add(new SimpleGrantedAuthority(role));
         }
+        // principal 仍然是 UserDetails，控制器里的用法和普通模式一致（密码为空字符串）
+        UserDetails principal = new org.springframework.security.core.userdetails.User(
+                claims.username(), "", authorities);
+        return new UsernamePasswordAuthenticationToken(principal, null, authorities);
     }
-}
\ No newline at end of file
+}
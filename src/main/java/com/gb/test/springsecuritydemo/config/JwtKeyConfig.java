@@ -0,0 +1,47 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.utils.JwtKeyRing;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * JWT 签名密钥配置
+ * <p>
+ * jwt.algorithm=HS256: 和之前一样，用 jwt.secret 对称签名，验证方必须持有同一个密钥
+ * jwt.algorithm=RS256 / ES256 / EdDSA: 用私钥签名，公钥通过 /.well-known/jwks.json 发布，
+ * 下游服务拿公钥自己验签，不需要再回调我们，也拿不到签名能力
+ * <p>
+ * 零停机轮换 (多实例滚动发布)：
+ * 1. 把新密钥对放进 jwt.keys.dir，先只发布（active-id 不变），新公钥出现在 JWKS 中
+ * 2. 把 jwt.keys.active-id 改成新 kid，之后签发的令牌都用新密钥
+ * 3. 旧令牌全部过期后，再删掉旧密钥的文件
+ * <p>
+ * 从 HS256 切换到非对称算法：切换前签发的令牌不带 kid，默认直接拒绝 (用户重新登录)。
+ * 如果希望它们在过期前继续有效，把切换前的 jwt.secret 配置到 jwt.keys.legacy-secret，
+ * 旧令牌全部过期后再删掉。不能是内置的示例密钥 (JwtUtil.DEFAULT_SECRET)：它是公开的，
+ * 任何人都能用它伪造不带 kid 的令牌
+ */
+@Configuration
+public class JwtKeyConfig {
+
+    @Bean
+    public JwtKeyRing jwtKeyRing(@Value("${jwt.algorithm:HS256}") String algorithm,
+                                 @Value("${jwt.secret:" + JwtUtil.DEFAULT_SECRET + "}") String secret,
+                                 @Value("${jwt.keys.active-id:key-1}") String activeKeyId,
+                                 @Value("${jwt.keys.dir:./data/jwt-keys}") String keysDir,
+                                 @Value("${jwt.keys.generate-if-missing:true}") boolean generateIfMissing,
+                                 @Value("${jwt.keys.legacy-secret:}") String legacySecret) {
+        if ("HS256".equals(algorithm)) {
+            return JwtKeyRing.hmac(secret);
+        }
+        if (JwtUtil.DEFAULT_SECRET.equals(legacySecret)) {
+            throw new IllegalStateException("jwt.keys.legacy-secret must not be the built-in demo secret");
+        }
+        // 非对称模式下不再使用 jwt.secret；legacy-secret 为空时不接受不带 kid 的旧令牌
+        return JwtKeyRing.load(algorithm, activeKeyId, Path.of(keysDir), generateIfMissing, legacySecret);
+    }
+}
@@ -0,0 +1,204 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.config.handlers.ResultResponseWriter;
+import com.gb.test.springsecuritydemo.enums.ResponseCodeEnum;
+import com.gb.test.springsecuritydemo.service.LoginRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录限流过滤器，只处理 POST /api/auth/login，在认证之前执行
+ * <p>
+ * 1. 先按客户端 IP 限流（不需要读请求体，最便宜）
+ * 2. 再读出请求体里的 username 按用户名限流；请求体被缓存下来，控制器照样能读
+ * 3. 被限流时直接写出预先编码好的 429 响应 (ResultVO 格式) 和 Retry-After，
+ *    不会走到 LoginExecutor，也就不会消耗任何密码哈希的 CPU
+ */
+@Component
+@Profile("!reactive")
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN_PATH = "/api/auth/login";
+
+    private final LoginRateLimiter rateLimiter;
+    private final ResultResponseWriter resultResponseWriter;
+    private final ObjectMapper objectMapper;
+    private final int maxBodyBytes;
+
+    public LoginRateLimitFilter(LoginRateLimiter rateLimiter,
+                                ResultResponseWriter resultResponseWriter,
+                                ObjectMapper objectMapper,
+                                @Value("${security.rate-limit.max-body-size:4096}") int maxBodyBytes) {
+        this.rateLimiter = rateLimiter;
+        this.resultResponseWriter = resultResponseWriter;
+        this.objectMapper = objectMapper;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !rateLimiter.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !LOGIN_PATH.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        // 1. 按 IP 限流 (部署在反向代理后面时需要配置 server.forward-headers-strategy，否则拿到的是代理的地址)
+        long wait = rateLimiter.acquireForIp(request.getRemoteAddr());
+        if (wait > 0) {
+            tooManyRequests(response, wait);
+            return;
+        }
+
+        // 2. 读出请求体；登录请求体很小，超过上限的直接拒绝，不会无限制地占用内存
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            resultResponseWriter.write(response, HttpStatus.PAYLOAD_TOO_LARGE.value(), ResponseCodeEnum.PAYLOAD_TOO_LARGE);
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            resultResponseWriter.write(response, HttpStatus.PAYLOAD_TOO_LARGE.value(), ResponseCodeEnum.PAYLOAD_TOO_LARGE);
+            return;
+        }
+
+        // 3. 按用户名限流；请求体不是合法 JSON 时交给控制器返回 400
+        String username = extractUsername(body);
+        if (username != null && !username.isBlank()) {
+            wait = rateLimiter.acquireForUsername(username);
+            if (wait > 0) {
+                tooManyRequests(response, wait);
+                return;
+            }
+        }
+
+        filterChain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    /**
+     * 流式地找到顶层的 "username" 字段，不把整个请求体反序列化成对象
+     */
+    private String extractUsername(byte[] body) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                token = parser.nextToken();
+                if ("username".equals(field)) {
+                    return token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void tooManyRequests(HttpServletResponse response, long waitNanos) throws IOException {
+        // Retry-After 以秒为单位，向上取整，至少 1 秒
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        resultResponseWriter.write(response, HttpStatus.TOO_MANY_REQUESTS.value(), ResponseCodeEnum.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * 请求体已经被读走了，用缓存的字节重新提供给后面的过滤器和控制器
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // 请求体已经全部在内存里：立即通知 "有数据" 和 "读完了" (和容器在数据到齐时的回调顺序一致)
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
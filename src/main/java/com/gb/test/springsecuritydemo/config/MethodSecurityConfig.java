@@ -0,0 +1,80 @@
+package com.gb.test.springsecuritydemo.config;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.Role;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.method.AuthorizationManagerAfterMethodInterceptor;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
+import org.springframework.security.authorization.method.PostFilterAuthorizationMethodInterceptor;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.authorization.method.PreFilterAuthorizationMethodInterceptor;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+
+/**
+ * 方法级安全 (@PreAuthorize 等)
+ * <p>
+ * prePostEnabled = false 关掉框架默认的四个拦截器，由这里自己注册：
+ * - @PreAuthorize 使用 CompiledPreAuthorizeAuthorizationManager (角色判断编译成位运算，复杂表达式仍走 SpEL)
+ * - @PostAuthorize / @PreFilter / @PostFilter 和框架默认的一样
+ * <p>
+ * 这些 Bean 在 BeanPostProcessor 阶段就会被创建，所以都是 static 方法、并标记为基础设施 Bean。
+ * Bean 名不能叫 xxxAuthorizationMethodInterceptor：框架会把这种名字的 Bean 再包装成一个 Advisor，拦截器就执行两遍了
+ * <p>
+ * 响应式版本的认证信息不在 SecurityContextHolder 里，改用 @EnableReactiveMethodSecurity (见 ReactiveSecurityConfig)
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@EnableMethodSecurity(prePostEnabled = false) // 开启“方法级安全”
+public class MethodSecurityConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static CompiledPreAuthorizeAuthorizationManager compiledPreAuthorizeAuthorizationManager(ApplicationContext context) {
+        PreAuthorizeAuthorizationManager spelManager = new PreAuthorizeAuthorizationManager();
+        spelManager.setApplicationContext(context); // 表达式里可以用 @bean 引用
+        return new CompiledPreAuthorizeAuthorizationManager(spelManager);
+    }
+
+    /**
+     * security.method-security.compiled=false 时退回框架默认的 SpEL 实现（用来对比或排查问题）
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor preAuthorizeAdvisor(
+            CompiledPreAuthorizeAuthorizationManager compiledManager,
+            ApplicationContext context,
+            @Value("${security.method-security.compiled:true}") boolean compiled) {
+        AuthorizationManager<MethodInvocation> manager = compiledManager;
+        if (!compiled) {
+            PreAuthorizeAuthorizationManager spelManager = new PreAuthorizeAuthorizationManager();
+            spelManager.setApplicationContext(context);
+            manager = spelManager;
+        }
+        return AuthorizationManagerBeforeMethodInterceptor.preAuthorize(manager);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor postAuthorizeAdvisor() {
+        return AuthorizationManagerAfterMethodInterceptor.postAuthorize();
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor preFilterAdvisor() {
+        return new PreFilterAuthorizationMethodInterceptor();
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor postFilterAdvisor() {
+        return new PostFilterAuthorizationMethodInterceptor();
+    }
+}
@@ -1,40 +1,158 @@
 package com.gb.test.springsecuritydemo.config;
 
-import com.gb.test.springsecuritydemo.entity.User; // 导入我们自己的 User 实体
+import com.gb.test.springsecuritydemo.cache.ExpiringCache;
+import com.gb.test.springsecuritydemo.event.InvalidationGapEvent;
+import com.gb.test.springsecuritydemo.event.UserChangedEvent;
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import com.gb.test.springsecuritydemo.model.UserAuthView;
 import com.gb.test.springsecuritydemo.repository.UserRepository;
+import com.gb.test.springsecuritydemo.service.LoginAttemptService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
 
 @Service
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final LoginAttemptService loginAttemptService;
 
-    public MyUserDetailsService(UserRepository userRepository) {
+    // UserDetails 缓存：JwtAuthenticationFilter 每个请求都会调用 loadUserByUsername，
+    // 有了缓存，大部分请求就不用再查一次数据库
+    private final boolean cacheEnabled;
+    private final long cacheTtlMillis;
+    private final ExpiringCache<String, UserDetails> userCache;
+
+    public MyUserDetailsService(UserRepository userRepository,
+                                LoginAttemptService loginAttemptService,
+                                @Value("${security.user-cache.enabled:true}") boolean cacheEnabled,
+                                @Value("${security.user-cache.ttl:5m}") Duration cacheTtl,
+                                @Value("${security.user-cache.max-size:10000}") int cacheMaxSize) {
         this.userRepository = userRepository;
+        this.loginAttemptService = loginAttemptService;
+        this.cacheEnabled = cacheEnabled;
+        this.cacheTtlMillis = cacheTtl.toMillis();
+        this.userCache = new ExpiringCache<>(cacheMaxSize);
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // 1. 从数据库中查询我们的 User 实体
-        User user = userRepository.findByUsername(username)
+        UserDetails user;
+        if (!cacheEnabled) {
+            user = loadFromDatabase(username);
+        } else {
+            // 同一个用户名的并发未命中只会查一次数据库 (single-flight)
+            user = userCache.getOrLoad(username, this::loadFromDatabase, cacheTtlMillis);
+        }
+
+        return forCaller(username, user, cacheEnabled);
+    }
+
+    /**
+     * 只查缓存，不访问数据库
+     * 响应式版本在事件循环线程上调用，命中时直接返回，未命中再切到别的线程调用 loadUserByUsername
+     * @return 缓存关闭或未命中时返回 null
+     */
+    public UserDetails loadCachedUser(String username) {
+        if (!cacheEnabled) {
+            return null;
+        }
+        UserDetails user = userCache.peek(username, System.currentTimeMillis());
+        return user == null ? null : forCaller(username, user, true);
+    }
+
+    private UserDetails forCaller(String username, UserDetails user, boolean cached) {
+        // 账户锁定只看内存中的登录状态，锁定 / 解锁不需要失效缓存；
+        // 锁定的账户由 DaoAuthenticationProvider 在校验密码之前拒绝 (LockedException)，不会再消耗一次哈希
+        if (loginAttemptService.isLocked(username)) {
+            return AppUserDetails.copyLocked(user);
+        }
+
+        // **必须返回副本**：ProviderManager 认证成功后会调用 eraseCredentials() 把密码置空，
+        // 如果直接返回缓存里的对象，缓存中的密码也会被清掉
+        return cached ? AppUserDetails.copyOf(user) : user;
+    }
+
+    private AppUserDetails loadFromDatabase(String username) {
+        // 1. 从数据库中查询用户 (只读投影：只取认证需要的列，不加载托管实体)
+        UserAuthView user = userRepository.findAuthViewByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        // 重启后内存里还没有登录状态，用数据库中写回的失败次数 / 锁定时间初始化
+        loginAttemptService.seed(user.username(), user.failedAttempts(), user.lockedUntil());
 
         // 2. **关键转换**：
         //    从我们的 User 实体中获取信息，
         //    并构建一个 Spring Security 认识的 'org.springframework.security.core.userdetails.User' 对象
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
+        //    (AppUserDetails 是它的子类，额外带上令牌版本号)
+        return new AppUserDetails(
+                user.username(),
+                user.password(),
                 // 3. 将我们的 "role" 字符串，转换成 Security 需要的 "权限集合"
                 //    注意：我们必须在角色名前加上 "ROLE_" 前缀，这是 Spring Security 的约定
-                List.of(new SimpleGrantedAuthority(user.getRole()))
+                List.of(new SimpleGrantedAuthority(user.role())),
+                user.currentTokenVersion()
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * 密码哈希升级：登录成功后，如果存储的哈希算法或成本和当前配置不一致，
+     * DaoAuthenticationProvider 会用新编码的密码调用这里
+     * @param user 刚认证成功的用户
+     * @param newPassword 用当前配置重新编码后的密码
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.findByUsername(user.getUsername()).ifPresent(entity -> {
+            entity.setPassword(newPassword);
+            // 同一个密码只是换了一种哈希，不算 "修改密码"，不提升令牌版本号
+            entity.setLoadedSecurityState(entity.securityState());
+            userRepository.save(entity);
+        });
+        // 缓存会在事务提交后由 UserChangedEvent 失效
+        return AppUserDetails.copyWithPassword(user, newPassword);
+    }
+
+    /**
+     * 失效钩子：用户的角色或密码被修改后调用，保证旧的权限不会继续生效
+     */
+    public void evictUser(String username) {
+        userCache.remove(username);
+    }
+
+    public void evictAll() {
+        userCache.clear();
+    }
+
+    /**
+     * 监听 UserChangedEvent (由 UserEntityListener 发布；其他节点上的修改由 InvalidationBus 转发过来)
+     * 在事务提交之后再失效，避免其他线程在提交前又把旧数据加载回缓存；
+     * 没有事务时 (fallbackExecution) 立即执行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        evictUser(event.username());
+    }
+
+    /**
+     * 和其他节点之间的失效消息可能丢了 (见 InvalidationBus)：不知道哪些用户变了，只能全部丢弃
+     */
+    @EventListener
+    public void onInvalidationGap(InvalidationGapEvent event) {
+        evictAll();
+    }
+
+    public ExpiringCache<String, UserDetails> getUserCache() {
+        return userCache;
+    }
+}
@@ -0,0 +1,96 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.entity.RefreshToken;
+import com.gb.test.springsecuritydemo.entity.SecurityAuditLog;
+import com.gb.test.springsecuritydemo.entity.User;
+import com.gb.test.springsecuritydemo.model.LoginResponse;
+import com.gb.test.springsecuritydemo.model.ResultVO;
+import com.gb.test.springsecuritydemo.model.UserAuthView;
+import com.gb.test.springsecuritydemo.service.audit.AuditEvent;
+import com.gb.test.springsecuritydemo.service.invalidation.InvalidationMessage;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.List;
+
+/**
+ * GraalVM 原生镜像 (mvn -P native) 需要的运行时提示
+ * <p>
+ * 原生镜像只包含构建时能静态分析到的类和成员，反射、ServiceLoader、按类名加载的都要提前登记。
+ * Spring AOT 已经自动处理了：所有 Bean、@RequestBody 参数、返回值类型明确的控制器方法、
+ * JPA 实体的字段和 @EntityListeners。这里补上它分析不到的部分：
+ * 1. 不经过控制器返回值、直接用 ObjectMapper 读写的类型 (@RegisterReflectionForBinding)：
+ *    401 / 403 的 ResultVO、异步登录返回的 LoginResponse、审计日志、失效广播消息
+ * 2. jjwt：jjwt-api 按类名反射创建 jjwt-impl 里的实现 (Jwts.parser()、Jwts.SIG 等)，
+ *    JSON 序列化器 (jjwt-jackson) 通过 ServiceLoader 查找
+ * 3. JPQL 构造表达式 "select new ...UserAuthView(...)"：Hibernate 反射调用构造函数
+ * 4. 实体类：Lombok 生成的 getter / setter 编译后就是普通方法，不需要额外处理；
+ *    这里再显式登记一遍，不依赖构建时实体扫描的结果 (比如以后改成手工列出实体)
+ * <p>
+ * 修改 JWT / 实体相关代码后，用 mvn -P native spring-boot:process-aot 生成的
+ * target/spring-aot/main/resources/META-INF/native-image 检查提示是否完整
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.SecurityRuntimeHints.class)
+@RegisterReflectionForBinding({ResultVO.class, LoginResponse.class, AuditEvent.class,
+        InvalidationMessage.class, InvalidationMessage.Batch.class})
+public class NativeHintsConfig {
+
+    static class SecurityRuntimeHints implements RuntimeHintsRegistrar {
+
+        // jjwt-api 里用 Classes.newInstance / invokeStatic 按名字访问的实现类 (0.12.x)
+        private static final List<String> JJWT_IMPL_TYPES = List.of(
+                "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+                "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+                "io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+                "io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+                "io.jsonwebtoken.impl.security.DefaultJwkSetBuilder",
+                "io.jsonwebtoken.impl.security.DefaultJwkSetParserBuilder",
+                "io.jsonwebtoken.impl.security.DefaultKeyOperationBuilder",
+                "io.jsonwebtoken.impl.security.DefaultKeyOperationPolicyBuilder",
+                "io.jsonwebtoken.impl.security.JwksBridge",
+                "io.jsonwebtoken.impl.security.KeysBridge",
+                "io.jsonwebtoken.impl.security.StandardCurves",
+                "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+                "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+                "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+                "io.jsonwebtoken.impl.security.StandardKeyOperations",
+                "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms");
+
+        // 通过 META-INF/services 查找的实现
+        private static final List<String> JJWT_SERVICE_TYPES = List.of(
+                "io.jsonwebtoken.jackson.io.JacksonSerializer",
+                "io.jsonwebtoken.jackson.io.JacksonDeserializer",
+                "io.jsonwebtoken.impl.compression.DeflateCompressionAlgorithm",
+                "io.jsonwebtoken.impl.compression.GzipCompressionAlgorithm");
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (String type : JJWT_IMPL_TYPES) {
+                hints.reflection().registerType(TypeReference.of(type),
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+            }
+            for (String type : JJWT_SERVICE_TYPES) {
+                hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+            hints.resources()
+                    .registerPattern("META-INF/services/io.jsonwebtoken.io.Serializer")
+                    .registerPattern("META-INF/services/io.jsonwebtoken.io.Deserializer")
+                    .registerPattern("META-INF/services/io.jsonwebtoken.CompressionCodec");
+
+            hints.reflection().registerType(UserAuthView.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+            for (Class<?> entity : List.of(User.class, RefreshToken.class, SecurityAuditLog.class)) {
+                hints.reflection().registerType(entity, MemberCategory.DECLARED_FIELDS,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.utils.CostAwareBCryptPasswordEncoder;
+import com.gb.test.springsecuritydemo.utils.CostAwarePbkdf2PasswordEncoder;
+import com.gb.test.springsecuritydemo.utils.PasswordCostCalibrator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration(proxyBeanMethods = false)
+public class PasswordEncoderConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    /**
+     * 密码编码器
+     * 必须将其声明为 Bean (servlet 和响应式两种安全配置都要用到，所以单独放在这里)
+     * <p>
+     * 使用 DelegatingPasswordEncoder：新哈希带上 {bcrypt} / {pbkdf2} 前缀，
+     * 旧的、没有前缀的 BCrypt 哈希照样能校验，并会在下次登录成功时被自动升级
+     * (见 MyUserDetailsService.updatePassword)
+     * <p>
+     * security.password.calibrate=true 时，启动时按目标耗时在当前硬件上实测选择成本。
+     * 两种哈希都记录了自己的成本 (BCrypt 本身就有，PBKDF2 见 CostAwarePbkdf2PasswordEncoder)，
+     * 重启后校准结果变了也能校验旧哈希，并在下次登录时按新成本重新计算
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${security.password.algorithm:bcrypt}") String algorithm,
+                                           @Value("${security.password.bcrypt-strength:10}") int bcryptStrength,
+                                           @Value("${security.password.pbkdf2-iterations:310000}") int pbkdf2Iterations,
+                                           @Value("${security.password.calibrate:false}") boolean calibrate,
+                                           @Value("${security.password.target-latency:250ms}") Duration targetLatency) {
+        // 没有记录迭代次数的旧 {pbkdf2} 哈希是按配置的次数算的
+        final int legacyPbkdf2Iterations = pbkdf2Iterations;
+        if (calibrate) {
+            if ("pbkdf2".equals(algorithm)) {
+                pbkdf2Iterations = PasswordCostCalibrator.calibratePbkdf2(targetLatency);
+                log.info("Calibrated PBKDF2 iterations to {} for target latency {}", pbkdf2Iterations, targetLatency);
+            } else {
+                bcryptStrength = PasswordCostCalibrator.calibrateBCrypt(targetLatency);
+                log.info("Calibrated BCrypt strength to {} for target latency {}", bcryptStrength, targetLatency);
+            }
+        }
+
+        CostAwareBCryptPasswordEncoder bcrypt = new CostAwareBCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", new CostAwarePbkdf2PasswordEncoder(pbkdf2Iterations, legacyPbkdf2Iterations));
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("Unsupported security.password.algorithm: " + algorithm);
+        }
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        // 数据库里现有的密码都是没有前缀的 BCrypt 哈希
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
+    }
+}
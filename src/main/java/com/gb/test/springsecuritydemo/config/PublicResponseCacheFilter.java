@@ -0,0 +1,270 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.cache.ExpiringCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 公开 GET 接口的响应缓存 + 条件请求 (ETag / If-None-Match)
+ * <p>
+ * 1. 命中缓存时直接写出已经编码好的响应体，不再调用控制器
+ * 2. 客户端带的 If-None-Match 和缓存的 ETag 一致时返回 304，连响应体都不用发
+ * 3. 响应带上强 ETag (响应体的 SHA-256) 和 Cache-Control，浏览器 / CDN 也可以缓存
+ * 4. 缓存键是路径 + 排好序的白名单查询参数 (security.response-cache.query-params)；
+ *    带了白名单以外参数的请求不缓存，不能靠随意拼接参数把缓存挤满
+ * 5. 控制器设置的响应头 (逐跳头、Content-Length 和这里自己写的头除外) 跟着响应体一起缓存，命中时原样写回
+ * <p>
+ * 安全性：这个过滤器只注册在 publicFilterChain 里 (见 SecurityConfig)，
+ * 需要登录的接口根本不会经过它，不会把某个用户的响应缓存给其他人；
+ * 另外只缓存 GET 返回 200 且没有 Set-Cookie 的响应
+ */
+@Component
+@Profile("!reactive")
+public class PublicResponseCacheFilter extends OncePerRequestFilter {
+
+    // 不缓存、不写回的响应头：逐跳头 (RFC 9110 7.6.1)，以及由容器或这个过滤器自己生成的头
+    private static final Set<String> UNCACHED_HEADERS = caseInsensitiveSet(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING, HttpHeaders.TE,
+            HttpHeaders.TRAILER, HttpHeaders.UPGRADE, HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE, HttpHeaders.DATE,
+            HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.SET_COOKIE);
+
+    private final boolean enabled;
+    private final List<PathPattern> cacheablePaths;
+    private final Set<String> queryParams;
+    private final long ttlMillis;
+    private final String cacheControl;
+    private final ExpiringCache<String, CachedResponse> cache;
+
+    public PublicResponseCacheFilter(@Value("${security.response-cache.enabled:true}") boolean enabled,
+                                     @Value("${security.response-cache.paths:/api/posts/public/**}") String[] paths,
+                                     @Value("${security.response-cache.ttl:30s}") Duration ttl,
+                                     @Value("${security.response-cache.max-age:30s}") Duration maxAge,
+                                     @Value("${security.response-cache.max-size:1000}") int maxSize,
+                                     @Value("${security.response-cache.query-params:}") String[] queryParams) {
+        this.enabled = enabled;
+        this.cacheablePaths = Arrays.stream(paths)
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        this.queryParams = Arrays.stream(queryParams)
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.ttlMillis = ttl.toMillis();
+        this.cacheControl = "public, max-age=" + maxAge.toSeconds();
+        this.cache = new ExpiringCache<>(maxSize);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+        PathContainer path = PathContainer.parsePath(request.getServletPath());
+        for (PathPattern pattern : cacheablePaths) {
+            if (pattern.matches(path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String key = cacheKey(request);
+        // 带了接口不认识的查询参数：照常执行，但不缓存
+        if (key == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        CachedResponse cached = cache.get(key, System.currentTimeMillis());
+
+        // 1. 命中缓存：不调用控制器
+        if (cached != null) {
+            writeCached(request, response, cached);
+            return;
+        }
+
+        // 2. 未命中：执行控制器，把响应体留在内存里
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        // HEAD 请求没有响应体，只有 GET 的结果才能放进缓存
+        if (!"GET".equals(request.getMethod())
+                || wrapper.getStatus() != HttpServletResponse.SC_OK
+                || wrapper.containsHeader(HttpHeaders.SET_COOKIE)
+                || request.isAsyncStarted()) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        // 3. 可以缓存：计算 ETag，放进缓存，再按条件请求的规则写出
+        byte[] body = wrapper.getContentAsByteArray();
+        CachedResponse fresh = new CachedResponse(body, wrapper.getContentType(), etag(body), cacheableHeaders(wrapper));
+        long now = System.currentTimeMillis();
+        cache.put(key, fresh, now + ttlMillis, now);
+
+        wrapper.resetBuffer();
+        writeCached(request, wrapper, fresh);
+        wrapper.copyBodyToResponse();
+    }
+
+    private void writeCached(HttpServletRequest request, HttpServletResponse response,
+                             CachedResponse cached) throws IOException {
+        // 未命中时这些头已经在响应上了，setHeader 再写一遍不会重复
+        for (Map.Entry<String, List<String>> header : cached.headers().entrySet()) {
+            List<String> values = header.getValue();
+            response.setHeader(header.getKey(), values.get(0));
+            for (int i = 1; i < values.size(); i++) {
+                response.addHeader(header.getKey(), values.get(i));
+            }
+        }
+        response.setHeader(HttpHeaders.ETAG, cached.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), cached.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (cached.contentType() != null) {
+            response.setContentType(cached.contentType());
+        }
+        response.setContentLength(cached.body().length);
+        if (!"HEAD".equals(request.getMethod())) {
+            ServletOutputStream out = response.getOutputStream();
+            out.write(cached.body());
+        }
+    }
+
+    /**
+     * If-None-Match 可能是 "*" 或逗号分隔的多个 ETag；按 RFC 9110 用弱比较 (忽略 W/ 前缀)
+     */
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 路径 + 按名字排序的白名单参数；有白名单以外的参数时返回 null (不缓存)
+     */
+    private String cacheKey(HttpServletRequest request) {
+        Map<String, String[]> parameters = request.getParameterMap();
+        if (parameters.isEmpty()) {
+            return request.getRequestURI();
+        }
+        if (!queryParams.containsAll(parameters.keySet())) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(parameters).entrySet()) {
+            for (String value : parameter.getValue()) {
+                key.append(separator).append(parameter.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private static Map<String, List<String>> cacheableHeaders(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(response.getHeaderNames())) {
+            if (!UNCACHED_HEADERS.contains(name)) {
+                Collection<String> values = response.getHeaders(name);
+                if (!values.isEmpty()) {
+                    headers.put(name, List.copyOf(values));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+
+    private static Set<String> caseInsensitiveSet(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(names));
+        return Collections.unmodifiableSet(set);
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            // 前 16 字节 (128 位) 足够区分内容
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 清空缓存（公开数据被修改后调用）
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public ExpiringCache<String, CachedResponse> getCache() {
+        return cache;
+    }
+
+    /**
+     * 缓存的响应：编码好的响应体、Content-Type、强 ETag 和控制器设置的其他响应头
+     */
+    public record CachedResponse(byte[] body, String contentType, String etag, Map<String, List<String>> headers) {
+    }
+}
@@ -3,48 +3,107 @@ package com.gb.test.springsecuritydemo.config;
 import com.gb.test.springsecuritydemo.config.JwtAuthenticationFilter;
 import com.gb.test.springsecuritydemo.config.handlers.RestAccessDeniedHandler;
 import com.gb.test.springsecuritydemo.config.handlers.RestAuthenticationEntryPoint;
+import com.gb.test.springsecuritydemo.service.PasswordHashingService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
-import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.List;
+
 @Configuration
+@Profile("!reactive") // 响应式版本 (WebFlux) 见 reactive.ReactiveSecurityConfig
 @EnableWebSecurity // (1) 确保这个注解存在
-@EnableMethodSecurity // 开启“方法级安全”
+// 方法级安全 (@PreAuthorize) 见 MethodSecurityConfig，密码编码器见 PasswordEncoderConfig
 public class SecurityConfig {
 
+    /**
+     * security.public-paths 的默认值 (响应式版本和基准测试共用)
+     * /actuator/prometheus 不在里面：指标只给管理员看，见 filterChain
+     */
+    public static final String DEFAULT_PUBLIC_PATHS = "/hello,/api/posts/public/**,/.well-known/jwks.json,/actuator/health";
+
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final RestAuthenticationEntryPoint restAuthenticationEntryPoint; // 3. 注入 401 处理器
     private final RestAccessDeniedHandler restAccessDeniedHandler;         // 4. 注入 403 处理器
+    private final LoginRateLimitFilter loginRateLimitFilter;
+    private final PublicResponseCacheFilter publicResponseCacheFilter;
 
     // 5. 更新构造函数
     public SecurityConfig(JwtAuthenticationFilter jwtAuthFilter,
                           RestAuthenticationEntryPoint restAuthenticationEntryPoint,
-                          RestAccessDeniedHandler restAccessDeniedHandler) {
+                          RestAccessDeniedHandler restAccessDeniedHandler,
+                          LoginRateLimitFilter loginRateLimitFilter,
+                          PublicResponseCacheFilter publicResponseCacheFilter) {
         this.jwtAuthFilter = jwtAuthFilter;
         this.restAuthenticationEntryPoint = restAuthenticationEntryPoint;
         this.restAccessDeniedHandler = restAccessDeniedHandler;
+        this.loginRateLimitFilter = loginRateLimitFilter;
+        this.publicResponseCacheFilter = publicResponseCacheFilter;
     }
 
+    /**
+     * 公开接口的轻量过滤链（优先匹配）
+     * <p>
+     * security.public-paths 里的接口不需要登录，也不应该为它们做任何令牌工作：
+     * 这条链里没有 JwtAuthenticationFilter，即使客户端带了 Bearer 令牌也不会验签、查数据库；
+     * 匿名认证、请求缓存、登出、CSRF 也都关掉，只保留安全响应头
+     * (Cache-Control 交给接口自己决定，公开接口的响应是可以被缓存的)
+     * <p>
+     * 响应缓存 (PublicResponseCacheFilter) 只挂在这条链上，需要登录的接口永远不会被缓存
+     */
     @Bean
+    @Order(1)
+    public SecurityFilterChain publicFilterChain(HttpSecurity http,
+                                                 @Value("${security.public-paths:" + DEFAULT_PUBLIC_PATHS + "}") String[] publicPaths) throws Exception {
+        http
+                .securityMatcher(publicPaths)
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session ->
+                        session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                )
+                .headers(headers -> headers.cacheControl(cache -> cache.disable()))
+                .anonymous(anonymous -> anonymous.disable())
+                .requestCache(cache -> cache.disable())
+                .logout(logout -> logout.disable())
+                .formLogin(form -> form.disable())
+                .httpBasic(basic -> basic.disable())
+                .addFilterAfter(publicResponseCacheFilter, AuthorizationFilter.class);
+
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http, AuthenticationProvider authenticationProvider) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         // 6. 【更新权限规则】
-                        .requestMatchers("/api/auth/login").permitAll()
-                        .requestMatchers("/hello").permitAll() // 假设 /hello 还是公开的
+                        // /hello、健康检查等公开接口由 publicFilterChain 处理，不会走到这里
+                        .requestMatchers("/api/auth/login", "/api/auth/refresh").permitAll()
+                        // 指标里有登录失败 / 锁定次数、吊销表大小、缓存命中率等，不能匿名访问
+                        .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
+                        // 错误页转发 (415、404 等) 不再要求认证，否则所有错误都会变成 401
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                         // 7. 【新规则】/api/admin/ 下的所有请求，都必须有 "ADMIN" 角色
                         // 注意: .hasRole("ADMIN") 会自动寻找 "ROLE_ADMIN"
                         //.requestMatchers("/api/admin/**").hasRole("ADMIN")
@@ -61,6 +120,8 @@ public class SecurityConfig {
                 )
                 .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // 登录限流放在所有认证逻辑之前
+                .addFilterBefore(loginRateLimitFilter, JwtAuthenticationFilter.class)
                 .formLogin(form -> form.disable())
                 .httpBasic(basic -> basic.disable());
 
@@ -68,12 +129,29 @@ public class SecurityConfig {
     }
 
     /**
-     * (8) 密码编码器
-     * 必须将其声明为 Bean
+     * JwtAuthenticationFilter / LoginRateLimitFilter / PublicResponseCacheFilter 都是 @Component，Spring Boot 默认还会把它们
+     * 注册成普通的 Servlet 过滤器，对所有请求（包括公开接口）再执行一遍；
+     * 它们只应该在安全过滤链里执行，这里关掉自动注册
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthFilterRegistration(JwtAuthenticationFilter filter) {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<PublicResponseCacheFilter> publicResponseCacheFilterRegistration(PublicResponseCacheFilter filter) {
+        FilterRegistrationBean<PublicResponseCacheFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoginRateLimitFilter> loginRateLimitFilterRegistration(LoginRateLimitFilter filter) {
+        FilterRegistrationBean<LoginRateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
     }
 
     /**
@@ -99,13 +177,32 @@ public class SecurityConfig {
         authProvider.setUserDetailsService(userDetailsService);
         // (12) 告诉 provider 使用哪个 PasswordEncoder
         authProvider.setPasswordEncoder(passwordEncoder);
+        // (13) 登录成功且存储的哈希需要升级（算法或成本变了）时，用新的编码重新保存密码
+        if (userDetailsService instanceof UserDetailsPasswordService passwordService) {
+            authProvider.setUserDetailsPasswordService(passwordService);
+        }
+        // (14) 用户不存在时抛出 UsernameNotFoundException 而不是 BadCredentialsException：
+        //      AuthController 只为存在的用户累计失败次数 (响应仍然相同，不会暴露用户是否存在；
+        //      provider 对不存在的用户同样做一次哈希，耗时上也看不出来)
+        authProvider.setHideUserNotFoundExceptions(false);
         return authProvider;
     }
 
 
+    /**
+     * 小工具：为命令行参数里的每个密码生成 BCrypt 哈希（没有参数时为 "123"），所有核并行计算
+     * 每行输出一个哈希，顺序和参数相同；不输出明文密码 (标准输出可能被记进日志或终端历史)
+     */
     public static void main(String[] args) {
-        String encode = new BCryptPasswordEncoder().encode("123");
-        System.out.println(encode);
+        List<String> passwords = args.length == 0 ? List.of("123") : List.of(args);
+        PasswordHashingService hashingService = new PasswordHashingService(new BCryptPasswordEncoder(), 0);
+        try {
+            for (String hash : hashingService.encodeAll(passwords, null).join()) {
+                System.out.println(hash);
+            }
+        } finally {
+            hashingService.shutdown();
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.gb.test.springsecuritydemo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程模型相关配置
+ * <p>
+ * 虚拟线程模式: spring.threads.virtual.enabled=true (需要 Java 21)
+ * - Tomcat 每个请求跑在一个新的虚拟线程上，阻塞在 JDBC 上时不再占用平台线程
+ * - SecurityContextHolder 默认的 ThreadLocal 策略对虚拟线程同样适用（每个请求一个线程）
+ * - 交给 Spring 任务执行器的异步任务通过 TaskDecorator 带上提交者的 SecurityContext
+ * - 开启 JFR 监控 "载体线程被钉住 (pinning)" 的情况：虚拟线程在 synchronized 块里阻塞时，
+ *   会占住底层的平台线程，JDBC 驱动或 Hibernate 里的 synchronized 会让虚拟线程失去意义
+ */
+@Configuration
+public class ThreadingConfig {
+
+    /**
+     * 异步任务 (@Async、MVC 异步请求等) 执行时使用提交任务那一刻的 SecurityContext，
+     * 执行完毕后恢复，避免在线程之间串用认证信息
+     */
+    @Bean
+    public TaskDecorator securityContextTaskDecorator() {
+        return DelegatingSecurityContextRunnable::new;
+    }
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public PinnedThreadMonitor pinnedThreadMonitor(
+            @Value("${security.virtual-threads.pinned-threshold:20ms}") Duration threshold) {
+        return new PinnedThreadMonitor(threshold);
+    }
+
+    /**
+     * 用 JFR 事件流监听 jdk.VirtualThreadPinned，记录次数并打印被钉住时的调用栈
+     */
+    public static class PinnedThreadMonitor implements SmartLifecycle {
+
+        private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+        private static final int LOGGED_FRAMES = 12;
+
+        private final Duration threshold;
+        private final LongAdder pinnedCount = new LongAdder();
+        private volatile RecordingStream stream;
+
+        public PinnedThreadMonitor(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void start() {
+            RecordingStream recording = new RecordingStream();
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+            recording.startAsync();
+            this.stream = recording;
+            log.info("Virtual thread pinning monitor started (threshold {})", threshold);
+        }
+
+        private void onPinned(RecordedEvent event) {
+            pinnedCount.increment();
+            StringBuilder frames = new StringBuilder();
+            if (event.getStackTrace() != null) {
+                List<RecordedFrame> stack = event.getStackTrace().getFrames();
+                for (int i = 0; i < Math.min(LOGGED_FRAMES, stack.size()); i++) {
+                    RecordedFrame frame = stack.get(i);
+                    frames.append("\n\tat ").append(frame.getMethod().getType().getName())
+                            .append('.').append(frame.getMethod().getName())
+                            .append(':').append(frame.getLineNumber());
+                }
+            }
+            log.warn("Virtual thread pinned its carrier for {} ms{}", event.getDuration().toMillis(), frames);
+        }
+
+        @Override
+        public void stop() {
+            RecordingStream recording = this.stream;
+            if (recording != null) {
+                recording.close();
+                this.stream = null;
+            }
+        }
+
+        @Override
+        public boolean isRunning() {
+            return stream != null;
+        }
+
+        public long getPinnedCount() {
+            return pinnedCount.sum();
+        }
+    }
+}
@@ -1,37 +1,51 @@
 package com.gb.test.springsecuritydemo.config.handlers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
 import com.gb.test.springsecuritydemo.enums.ResponseCodeEnum; // 导入
-import com.gb.test.springsecuritydemo.model.ResultVO; // 导入
+import com.gb.test.springsecuritydemo.service.audit.AuditEvent;
+import com.gb.test.springsecuritydemo.service.audit.AuditService;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 //403处理器
 @Component
+@Profile("!reactive")
 public class RestAccessDeniedHandler implements AccessDeniedHandler {
 
+    private final SecurityMetrics securityMetrics;
+    private final ResultResponseWriter resultResponseWriter;
+    private final AuditService auditService;
+
+    public RestAccessDeniedHandler(SecurityMetrics securityMetrics, ResultResponseWriter resultResponseWriter,
+                                   AuditService auditService) {
+        this.securityMetrics = securityMetrics;
+        this.resultResponseWriter = resultResponseWriter;
+        this.auditService = auditService;
+    }
 
     @Override
     public void handle(HttpServletRequest request,
                        HttpServletResponse response,
                        AccessDeniedException accessDeniedException) throws IOException, ServletException {
 
-        response.setStatus(HttpStatus.FORBIDDEN.value()); // 403
-        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-        response.setCharacterEncoding("UTF-8");
-
-        // 2. 创建统一的 ResultVO
-        ResultVO<?> result = ResultVO.fail(ResponseCodeEnum.FORBIDDEN.getCode(),
-                accessDeniedException.getMessage());
+        securityMetrics.forbidden();
+        // 审计：只是放进内存队列，不做 I/O
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        auditService.publish(AuditEvent.of(AuditEvent.Type.FORBIDDEN,
+                authentication != null ? authentication.getName() : null, request, null));
 
-        // 3. 序列化并返回
-        response.getWriter().write(new ObjectMapper().writeValueAsString(result));
+        // 1. 返回统一的 ResultVO (403)
+        // 2. ResultResponseWriter 会复用已经编码好的 JSON 字节，直接写入输出流
+        resultResponseWriter.write(response, HttpStatus.FORBIDDEN.value(),
+                ResponseCodeEnum.FORBIDDEN.getCode(), accessDeniedException.getMessage());
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,14 @@
 package com.gb.test.springsecuritydemo.config.handlers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
 import com.gb.test.springsecuritydemo.enums.ResponseCodeEnum; // 导入我们的枚举
-import com.gb.test.springsecuritydemo.model.ResultVO; // 导入我们的 ResultVO
+import com.gb.test.springsecuritydemo.service.audit.AuditEvent;
+import com.gb.test.springsecuritydemo.service.audit.AuditService;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
@@ -15,24 +16,34 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 //401处理器
 @Component
+@Profile("!reactive")
 public class RestAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
+    private final SecurityMetrics securityMetrics;
+    private final ResultResponseWriter resultResponseWriter;
+    private final AuditService auditService;
+
+    public RestAuthenticationEntryPoint(SecurityMetrics securityMetrics, ResultResponseWriter resultResponseWriter,
+                                        AuditService auditService) {
+        this.securityMetrics = securityMetrics;
+        this.resultResponseWriter = resultResponseWriter;
+        this.auditService = auditService;
+    }
 
     @Override
     public void commence(HttpServletRequest request,
                          HttpServletResponse response,
                          AuthenticationException authException) throws IOException, ServletException {
 
-        response.setStatus(HttpStatus.UNAUTHORIZED.value()); // 401
-        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-        response.setCharacterEncoding("UTF-8");
-
-        // 2. 创建统一的 ResultVO
-        // 注意：我们把异常信息 authException.getMessage() 作为 data 传给了前端，方便调试
-        ResultVO<?> result = ResultVO.fail(ResponseCodeEnum.UNAUTHORIZED.getCode(),
-                authException.getMessage());
+        securityMetrics.unauthorized();
+        // 审计：只是放进内存队列，不做 I/O
+        auditService.publish(AuditEvent.of(AuditEvent.Type.UNAUTHORIZED, null, request,
+                authException.getClass().getSimpleName()));
 
-        // 3. 使用 ObjectMapper 将对象序列化为 JSON 字符串并写入响应
-        response.getWriter().write(new ObjectMapper().writeValueAsString(result));
+        // 1. 返回统一的 ResultVO (401)
+        // 注意：我们把异常信息 authException.getMessage() 作为 message 传给了前端，方便调试
+        // 2. ResultResponseWriter 会复用已经编码好的 JSON 字节，直接写入输出流
+        resultResponseWriter.write(response, HttpStatus.UNAUTHORIZED.value(),
+                ResponseCodeEnum.UNAUTHORIZED.getCode(), authException.getMessage());
     }
-}
\ No newline at end of file
+}
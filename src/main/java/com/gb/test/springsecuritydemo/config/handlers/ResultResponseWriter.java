@@ -0,0 +1,100 @@
+package com.gb.test.springsecuritydemo.config.handlers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gb.test.springsecuritydemo.enums.ResponseCodeEnum;
+import com.gb.test.springsecuritydemo.model.ResultVO;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在过滤器 / 处理器里直接输出 ResultVO 格式的 JSON 错误响应
+ * <p>
+ * 401 / 403 在撞库或令牌集中过期时会占到大部分流量，所以这里尽量不做重复工作：
+ * - 每个 ResponseCodeEnum 的固定响应体在启动时就序列化成 UTF-8 字节
+ * - 自定义消息的响应体也会缓存（这些消息基本都是 Spring Security 的固定文案），数量有上限
+ * - 直接写 OutputStream 并设置 Content-Length，不经过 Writer
+ * - 所有序列化共用一个 ObjectWriter (线程安全)，不再每次 new ObjectMapper()
+ */
+@Component
+public class ResultResponseWriter {
+
+    private static final String CONTENT_TYPE = MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8";
+    private static final int MAX_CACHED_MESSAGES = 256;
+
+    private final ObjectWriter writer;
+    private final Map<ResponseCodeEnum, byte[]> fixedPayloads = new EnumMap<>(ResponseCodeEnum.class);
+    private final ConcurrentHashMap<MessageKey, byte[]> messagePayloads = new ConcurrentHashMap<>();
+
+    public ResultResponseWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(ResultVO.class);
+        for (ResponseCodeEnum codeEnum : ResponseCodeEnum.values()) {
+            fixedPayloads.put(codeEnum, serialize(ResultVO.fail(codeEnum)));
+        }
+    }
+
+    /**
+     * 写出固定的响应体 ResultVO.fail(codeEnum)
+     */
+    public void write(HttpServletResponse response, int status, ResponseCodeEnum codeEnum) throws IOException {
+        writeBytes(response, status, fixedPayloads.get(codeEnum));
+    }
+
+    /**
+     * 写出带自定义消息的响应体 ResultVO.fail(code, message)
+     */
+    public void write(HttpServletResponse response, int status, int code, String message) throws IOException {
+        writeBytes(response, status, encode(code, message));
+    }
+
+    /**
+     * 固定响应体的 UTF-8 字节（调用方不能修改返回的数组）
+     */
+    public byte[] encode(ResponseCodeEnum codeEnum) {
+        return fixedPayloads.get(codeEnum);
+    }
+
+    /**
+     * 自定义消息响应体的 UTF-8 字节（调用方不能修改返回的数组）
+     */
+    public byte[] encode(int code, String message) {
+        MessageKey key = new MessageKey(code, message);
+        byte[] payload = messagePayloads.get(key);
+        if (payload == null) {
+            payload = serialize(ResultVO.fail(code, message));
+            if (messagePayloads.size() < MAX_CACHED_MESSAGES) {
+                messagePayloads.putIfAbsent(key, payload);
+            }
+        }
+        return payload;
+    }
+
+    private static void writeBytes(HttpServletResponse response, int status, byte[] payload) throws IOException {
+        response.setStatus(status);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(payload.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(payload);
+        out.flush();
+    }
+
+    private byte[] serialize(ResultVO<?> result) {
+        try {
+            return writer.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            // ResultVO 只有基本类型和字符串字段，不会序列化失败
+            throw new IllegalStateException("Failed to serialize ResultVO", e);
+        }
+    }
+
+    private record MessageKey(int code, String message) {
+    }
+}
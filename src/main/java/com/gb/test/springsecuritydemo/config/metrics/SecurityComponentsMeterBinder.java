@@ -0,0 +1,210 @@
+package com.gb.test.springsecuritydemo.config.metrics;
+
+import com.gb.test.springsecuritydemo.cache.ExpiringCache;
+import com.gb.test.springsecuritydemo.cache.JwtTokenCache;
+import com.gb.test.springsecuritydemo.config.CompiledPreAuthorizeAuthorizationManager;
+import com.gb.test.springsecuritydemo.config.MyUserDetailsService;
+import com.gb.test.springsecuritydemo.config.PublicResponseCacheFilter;
+import com.gb.test.springsecuritydemo.service.LoginAttemptService;
+import com.gb.test.springsecuritydemo.service.LoginExecutor;
+import com.gb.test.springsecuritydemo.service.LoginRateLimiter;
+import com.gb.test.springsecuritydemo.service.PasswordHashingService;
+import com.gb.test.springsecuritydemo.service.TokenRevocationService;
+import com.gb.test.springsecuritydemo.service.audit.AuditService;
+import com.gb.test.springsecuritydemo.service.invalidation.InvalidationBus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把各个组件自己维护的统计数据 (LongAdder 等) 以函数式指标的方式暴露出来，
+ * 读取发生在抓取 /actuator/prometheus 时，不影响请求路径
+ */
+@Component
+public class SecurityComponentsMeterBinder implements MeterBinder {
+
+    private final JwtTokenCache jwtTokenCache;
+    private final MyUserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginExecutor loginExecutor;
+    private final LoginRateLimiter loginRateLimiter;
+    private final ObjectProvider<PublicResponseCacheFilter> publicResponseCacheFilter;
+    private final PasswordHashingService passwordHashingService;
+    private final ObjectProvider<CompiledPreAuthorizeAuthorizationManager> preAuthorizeManager;
+    private final AuditService auditService;
+    private final LoginAttemptService loginAttemptService;
+    private final InvalidationBus invalidationBus;
+
+    public SecurityComponentsMeterBinder(JwtTokenCache jwtTokenCache,
+                                         MyUserDetailsService userDetailsService,
+                                         TokenRevocationService tokenRevocationService,
+                                         LoginExecutor loginExecutor,
+                                         LoginRateLimiter loginRateLimiter,
+                                         ObjectProvider<PublicResponseCacheFilter> publicResponseCacheFilter,
+                                         PasswordHashingService passwordHashingService,
+                                         ObjectProvider<CompiledPreAuthorizeAuthorizationManager> preAuthorizeManager,
+                                         AuditService auditService,
+                                         LoginAttemptService loginAttemptService,
+                                         InvalidationBus invalidationBus) {
+        this.jwtTokenCache = jwtTokenCache;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginExecutor = loginExecutor;
+        this.loginRateLimiter = loginRateLimiter;
+        this.publicResponseCacheFilter = publicResponseCacheFilter;
+        this.passwordHashingService = passwordHashingService;
+        this.preAuthorizeManager = preAuthorizeManager;
+        this.auditService = auditService;
+        this.loginAttemptService = loginAttemptService;
+        this.invalidationBus = invalidationBus;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        bindCache(registry, "jwt_token", jwtTokenCache.getCache());
+        bindCache(registry, "user_details", userDetailsService.getUserCache());
+        // PublicResponseCacheFilter 和方法级安全管理器只在 servlet 版本里存在 (响应式版本见 ReactiveSecurityConfig)
+        publicResponseCacheFilter.ifAvailable(filter -> bindCache(registry, "public_response", filter.getCache()));
+
+        Gauge.builder("security.revocation.size", tokenRevocationService, TokenRevocationService::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(registry);
+
+        FunctionTimer.builder("security.login.execution", loginExecutor,
+                        LoginExecutor::getCompletedCount, LoginExecutor::getTotalExecutionNanos, TimeUnit.NANOSECONDS)
+                .description("Login authentication (password hashing) time on the login executor")
+                .register(registry);
+        FunctionTimer.builder("security.login.queue", loginExecutor,
+                        LoginExecutor::getCompletedCount, LoginExecutor::getTotalQueueNanos, TimeUnit.NANOSECONDS)
+                .description("Time login requests waited for a login executor thread")
+                .register(registry);
+        FunctionCounter.builder("security.login.rejected", loginExecutor, LoginExecutor::getRejectedCount)
+                .description("Logins rejected because the login executor was saturated")
+                .register(registry);
+        FunctionCounter.builder("security.login.expired", loginExecutor, LoginExecutor::getExpiredCount)
+                .description("Queued logins skipped because they had already timed out")
+                .register(registry);
+        Gauge.builder("security.login.active", loginExecutor, LoginExecutor::getActiveCount)
+                .register(registry);
+        Gauge.builder("security.login.queued", loginExecutor, LoginExecutor::getQueueSize)
+                .register(registry);
+
+        Gauge.builder("security.hashing.active", passwordHashingService, PasswordHashingService::getActiveCount)
+                .description("Threads of the bulk password hashing pool that are busy")
+                .register(registry);
+        Gauge.builder("security.hashing.queued", passwordHashingService, PasswordHashingService::getQueuedCount)
+                .register(registry);
+
+        preAuthorizeManager.ifAvailable(manager -> bindMethodSecurity(registry, manager));
+
+        bindAudit(registry);
+        bindInvalidationBus(registry);
+
+        FunctionCounter.builder("security.lockout.lockouts", loginAttemptService, LoginAttemptService::getLockoutCount)
+                .description("Accounts locked after too many failed logins")
+                .register(registry);
+        FunctionCounter.builder("security.lockout.evicted", loginAttemptService, LoginAttemptService::getEvictedCount)
+                .description("Login states evicted because the state table was full")
+                .register(registry);
+        FunctionCounter.builder("security.lockout.flushed", loginAttemptService, LoginAttemptService::getFlushedRowCount)
+                .description("Login states written back to the database")
+                .register(registry);
+        FunctionCounter.builder("security.lockout.flush.failures", loginAttemptService, LoginAttemptService::getFlushFailureCount)
+                .register(registry);
+        Gauge.builder("security.lockout.tracked", loginAttemptService, LoginAttemptService::getTrackedCount)
+                .register(registry);
+        Gauge.builder("security.lockout.pending", loginAttemptService, LoginAttemptService::getPendingCount)
+                .description("Login states waiting to be written back")
+                .register(registry);
+
+        FunctionCounter.builder("security.ratelimit.rejected", loginRateLimiter, LoginRateLimiter::getIpRejectedCount)
+                .description("Login requests rejected with 429 by the rate limiter")
+                .tag("key", "ip").register(registry);
+        FunctionCounter.builder("security.ratelimit.rejected", loginRateLimiter, LoginRateLimiter::getUsernameRejectedCount)
+                .description("Login requests rejected with 429 by the rate limiter")
+                .tag("key", "username").register(registry);
+        FunctionCounter.builder("security.ratelimit.overflow", loginRateLimiter, LoginRateLimiter::getOverflowCount)
+                .description("Login requests rejected because the bucket table was full")
+                .register(registry);
+        Gauge.builder("security.ratelimit.buckets", loginRateLimiter, LoginRateLimiter::getIpBucketCount)
+                .tag("key", "ip").register(registry);
+        Gauge.builder("security.ratelimit.buckets", loginRateLimiter, LoginRateLimiter::getUsernameBucketCount)
+                .tag("key", "username").register(registry);
+    }
+
+    private static void bindMethodSecurity(MeterRegistry registry, CompiledPreAuthorizeAuthorizationManager manager) {
+        FunctionCounter.builder("security.method.decisions", manager,
+                        CompiledPreAuthorizeAuthorizationManager::getCompiledDecisions)
+                .description("@PreAuthorize decisions, by evaluation path")
+                .tag("path", "compiled").register(registry);
+        FunctionCounter.builder("security.method.decisions", manager,
+                        CompiledPreAuthorizeAuthorizationManager::getFallbackDecisions)
+                .description("@PreAuthorize decisions, by evaluation path")
+                .tag("path", "spel").register(registry);
+    }
+
+    private void bindAudit(MeterRegistry registry) {
+        FunctionCounter.builder("security.audit.events", auditService, AuditService::getWrittenCount)
+                .description("Audit events by outcome")
+                .tag("result", "written").register(registry);
+        FunctionCounter.builder("security.audit.events", auditService, AuditService::getDroppedCount)
+                .description("Audit events by outcome")
+                .tag("result", "dropped").register(registry);
+        FunctionCounter.builder("security.audit.events", auditService, AuditService::getSampledOutCount)
+                .description("Audit events by outcome")
+                .tag("result", "sampled_out").register(registry);
+        FunctionCounter.builder("security.audit.events", auditService, AuditService::getFailedCount)
+                .description("Audit events by outcome")
+                .tag("result", "failed").register(registry);
+        Gauge.builder("security.audit.queue", auditService, AuditService::getQueueSize)
+                .description("Audit events waiting for the background writer")
+                .register(registry);
+        TimeGauge.builder("security.audit.lag", auditService, TimeUnit.MILLISECONDS, AuditService::getLagMillis)
+                .description("Age of the oldest event in the last batch written to the audit sink")
+                .register(registry);
+    }
+
+    private void bindInvalidationBus(MeterRegistry registry) {
+        FunctionCounter.builder("security.bus.messages", invalidationBus, InvalidationBus::getQueuedCount)
+                .description("Invalidation messages by stage")
+                .tag("stage", "queued").register(registry);
+        FunctionCounter.builder("security.bus.messages", invalidationBus, InvalidationBus::getCoalescedCount)
+                .description("Invalidation messages by stage")
+                .tag("stage", "coalesced").register(registry);
+        FunctionCounter.builder("security.bus.messages", invalidationBus, InvalidationBus::getSentCount)
+                .description("Invalidation messages by stage")
+                .tag("stage", "sent").register(registry);
+        FunctionCounter.builder("security.bus.messages", invalidationBus, InvalidationBus::getReceivedCount)
+                .description("Invalidation messages by stage")
+                .tag("stage", "received").register(registry);
+        FunctionCounter.builder("security.bus.send.failures", invalidationBus, InvalidationBus::getSendFailureCount)
+                .register(registry);
+        FunctionCounter.builder("security.bus.malformed", invalidationBus, InvalidationBus::getMalformedCount)
+                .register(registry);
+        FunctionCounter.builder("security.bus.gaps", invalidationBus, InvalidationBus::getGapCount)
+                .description("Times the subscription was interrupted and the user cache was dropped")
+                .register(registry);
+        Gauge.builder("security.bus.pending", invalidationBus, InvalidationBus::getPendingCount)
+                .description("Invalidation messages waiting to be sent")
+                .register(registry);
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, ExpiringCache<?, ?> cache) {
+        FunctionCounter.builder("security.cache.gets", cache, ExpiringCache::hitCount)
+                .tag("cache", name).tag("result", "hit").register(registry);
+        FunctionCounter.builder("security.cache.gets", cache, ExpiringCache::missCount)
+                .tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("security.cache.evictions", cache, ExpiringCache::evictionCount)
+                .tag("cache", name).register(registry);
+        Gauge.builder("security.cache.size", cache, ExpiringCache::size)
+                .tag("cache", name).register(registry);
+    }
+}
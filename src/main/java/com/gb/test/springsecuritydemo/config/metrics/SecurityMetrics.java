@@ -0,0 +1,97 @@
+package com.gb.test.springsecuritydemo.config.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 安全过滤链的指标
+ * 所有 Counter / Timer 在启动时一次性注册好，请求路径上只做 increment / record，不产生任何对象
+ * <p>
+ * - security.jwt.filter.requests{outcome}: JwtAuthenticationFilter 每个请求的结果
+ * - security.jwt.filter.stage{stage}: 解析令牌、加载用户、写入上下文三个阶段的耗时
+ * - security.responses{status}: 401 (RestAuthenticationEntryPoint) 和 403 (RestAccessDeniedHandler) 的次数
+ */
+@Component
+public class SecurityMetrics {
+
+    /**
+     * JwtAuthenticationFilter 处理一个请求的结果
+     */
+    public enum AuthOutcome {
+        MISSING_HEADER,   // 没有 Bearer 令牌
+        MALFORMED,        // 格式错误
+        EXPIRED,          // 已过期
+        BAD_SIGNATURE,    // 签名错误
+        REVOKED,          // 已被吊销 / 版本号过旧
+        USER_NOT_FOUND,   // 令牌里的用户不存在
+        ERROR,            // 其他异常（比如数据库不可用）
+        ALREADY_AUTHENTICATED,
+        SUCCESS
+    }
+
+    private final Counter[] outcomeCounters;
+    private final Timer parseTimer;
+    private final Timer userLookupTimer;
+    private final Timer contextTimer;
+    private final Counter unauthorizedCounter;
+    private final Counter forbiddenCounter;
+
+    public SecurityMetrics(MeterRegistry registry) {
+        AuthOutcome[] outcomes = AuthOutcome.values();
+        this.outcomeCounters = new Counter[outcomes.length];
+        for (AuthOutcome outcome : outcomes) {
+            outcomeCounters[outcome.ordinal()] = Counter.builder("security.jwt.filter.requests")
+                    .description("JwtAuthenticationFilter outcomes")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        this.parseTimer = stageTimer(registry, "parse");
+        this.userLookupTimer = stageTimer(registry, "user_lookup");
+        this.contextTimer = stageTimer(registry, "context");
+        this.unauthorizedCounter = responseCounter(registry, "401");
+        this.forbiddenCounter = responseCounter(registry, "403");
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("security.jwt.filter.stage")
+                .description("Time spent in each stage of JwtAuthenticationFilter")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private static Counter responseCounter(MeterRegistry registry, String status) {
+        return Counter.builder("security.responses")
+                .description("Security error responses written by the 401/403 handlers")
+                .tag("status", status)
+                .register(registry);
+    }
+
+    public void outcome(AuthOutcome outcome) {
+        outcomeCounters[outcome.ordinal()].increment();
+    }
+
+    public void recordParse(long nanos) {
+        parseTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordUserLookup(long nanos) {
+        userLookupTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordContext(long nanos) {
+        contextTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void unauthorized() {
+        unauthorizedCounter.increment();
+    }
+
+    public void forbidden() {
+        forbiddenCounter.increment();
+    }
+}
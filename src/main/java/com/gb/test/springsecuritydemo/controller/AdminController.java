@@ -1,14 +1,38 @@
 package com.gb.test.springsecuritydemo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.service.UserImportReader;
+import com.gb.test.springsecuritydemo.service.UserImportService;
+import com.gb.test.springsecuritydemo.service.UserImportService.ImportStats;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/admin")
 public class AdminController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
+
+    public AdminController(UserImportService userImportService, ObjectMapper objectMapper) {
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
+    }
+
     @GetMapping("/hello")
     @PreAuthorize("hasRole('ADMIN')") // <-- 只有 "ROLE_ADMIN" 的用户能访问
     public String adminHello() {
@@ -20,4 +44,60 @@ public class AdminController {
     public String userHello() {
         return "你好, [普通用户]!";
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量导入用户
+     * 请求体是 NDJSON / JSON 数组 / CSV，边读边导入；
+     * 响应也是 NDJSON，边导入边输出：每个出错的行一条 "error"，每批一条 "progress"，最后一条 "done" (或 "failed")
+     */
+    @PostMapping(value = "/users/import", consumes = {NDJSON, "application/json", "text/csv"}, produces = NDJSON)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserImportReader.Format format = UserImportReader.Format.fromContentType(request.getContentType());
+        response.setContentType(NDJSON + ";charset=UTF-8");
+        OutputStream out = response.getOutputStream();
+
+        try {
+            ImportStats stats = userImportService.importUsers(request.getInputStream(), format,
+                    new UserImportService.ImportListener() {
+                        @Override
+                        public void onRowError(long row, String username, String message) throws IOException {
+                            Map<String, Object> line = new LinkedHashMap<>();
+                            line.put("type", "error");
+                            line.put("row", row);
+                            line.put("username", username);
+                            line.put("message", message);
+                            writeLine(out, line);
+                        }
+
+                        @Override
+                        public void onProgress(ImportStats stats) throws IOException {
+                            writeLine(out, statsLine("progress", stats));
+                            out.flush(); // 每批刷新一次，客户端可以实时看到进度
+                        }
+                    });
+            writeLine(out, statsLine("done", stats));
+        } catch (IOException e) {
+            // 请求体整体格式错误：已经导入的批次保留，告诉客户端在哪里停下的
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("type", "failed");
+            line.put("message", e.getMessage());
+            writeLine(out, line);
+        }
+        out.flush();
+    }
+
+    private static Map<String, Object> statsLine(String type, ImportStats stats) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", type);
+        line.put("processed", stats.processed());
+        line.put("imported", stats.imported());
+        line.put("failed", stats.failed());
+        return line;
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+    }
+}
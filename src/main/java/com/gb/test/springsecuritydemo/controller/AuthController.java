@@ -1,63 +1,203 @@
 package com.gb.test.springsecuritydemo.controller;
 
+import com.gb.test.springsecuritydemo.enums.ResponseCodeEnum;
+import com.gb.test.springsecuritydemo.model.JwtClaims;
 import com.gb.test.springsecuritydemo.model.LoginRequest;
 import com.gb.test.springsecuritydemo.model.LoginResponse;
+import com.gb.test.springsecuritydemo.model.RefreshRequest;
+import com.gb.test.springsecuritydemo.model.ResultVO;
+import com.gb.test.springsecuritydemo.service.LoginAttemptService;
+import com.gb.test.springsecuritydemo.service.LoginExecutor;
+import com.gb.test.springsecuritydemo.service.RefreshTokenService;
+import com.gb.test.springsecuritydemo.service.TokenRevocationService;
+import com.gb.test.springsecuritydemo.service.audit.AuditEvent;
+import com.gb.test.springsecuritydemo.service.audit.AuditService;
 import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/auth") // 路由前缀
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginExecutor loginExecutor;
+    private final RefreshTokenService refreshTokenService;
+    private final AuditService auditService;
+    private final LoginAttemptService loginAttemptService;
 
     // 1. 注入我们需要的 Bean
-    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil) {
+    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil,
+                          TokenRevocationService tokenRevocationService, LoginExecutor loginExecutor,
+                          RefreshTokenService refreshTokenService, AuditService auditService,
+                          LoginAttemptService loginAttemptService) {
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginExecutor = loginExecutor;
+        this.refreshTokenService = refreshTokenService;
+        this.auditService = auditService;
+        this.loginAttemptService = loginAttemptService;
     }
 
     /**
      * 登录接口
+     * 认证（主要是 BCrypt 校验密码）放在 LoginExecutor 专用线程池里执行，
+     * 不占用 Tomcat 工作线程；线程池饱和时直接返回 503
+     * 成功和失败都会记审计日志（异步，不影响响应时间）
      * @param request 包含用户名和密码的 DTO
      * @return 成功则返回 JWT 令牌，失败则返回错误信息
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest request,
+                                                      HttpServletRequest httpRequest) {
+        // 回调在登录线程上执行，那时不能再访问 HttpServletRequest，先把审计需要的信息取出来
+        final AuditEvent audit = AuditEvent.of(AuditEvent.Type.LOGIN_SUCCESS, request.username(), httpRequest, null);
         try {
-            // 2. **执行认证**
-            //    这会触发 Spring Security 的认证流程
-            //    它会去调用我们配置的 AuthenticationProvider -> UserDetailsService -> PasswordEncoder
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            request.username(),
-                            request.password()
-                    )
-            );
+            return loginExecutor.submit(() -> authenticate(request))
+                    .<ResponseEntity<?>>thenApply(authentication -> {
+                        // 3. **如果认证成功** (即没有抛出异常)
+                        //    我们就使用 JwtUtil 来为这个用户生成一个令牌
+                        //    令牌里带上角色和令牌版本号，无状态模式下过滤器就不用再查数据库
+                        UserDetails user = (UserDetails) authentication.getPrincipal();
+                        final String token = jwtUtil.generateToken(user);
+                        //    再签发一个刷新令牌，访问令牌过期后用它续期，不用再输一次密码
+                        final String refreshToken = refreshTokenService.issue(user);
+                        auditService.publish(audit);
+                        // 清零失败次数、记录登录时间：只改内存，定时批量写回数据库
+                        loginAttemptService.loginSucceeded(user.getUsername());
 
-            // 3. **如果认证成功** (即上一行没有抛出异常)
-            //    我们就使用 JwtUtil 来为这个用户生成一个令牌
-            final String token = jwtUtil.generateToken(request.username());
+                        // 4. 返回成功的响应，包含令牌
+                        return ResponseEntity.ok(new LoginResponse(token, refreshToken, jwtUtil.getExpirationSeconds()));
+                    })
+                    .exceptionally(throwable -> loginFailed(throwable, audit));
+        } catch (RejectedExecutionException e) {
+            // 登录线程池已满：快速失败，让客户端稍后重试
+            return CompletableFuture.completedFuture(serviceBusy());
+        }
+    }
 
-            // 4. 返回成功的响应，包含令牌
-            return ResponseEntity.ok(new LoginResponse(token));
+    private Authentication authenticate(LoginRequest request) {
+        // 2. **执行认证**
+        //    这会触发 Spring Security 的认证流程
+        //    它会去调用我们配置的 AuthenticationProvider -> UserDetailsService -> PasswordEncoder
+        return authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                        request.username(),
+                        request.password()
+                )
+        );
+    }
 
-        } catch (BadCredentialsException e) {
+    /**
+     * exceptionally 覆盖了整个链 (认证、签发令牌、保存刷新令牌)，这里按异常类型区分：
+     * - 认证失败 -> 401，用户不存在、密码错误、账户锁定 / 禁用的响应完全相同 (原因只记在审计日志里)
+     * - 线程池满 / 排队超时 -> 503
+     * - 其他 (数据库写入失败、程序错误，包括认证时加载用户出错的 InternalAuthenticationServiceException)
+     *   -> 记日志，返回不带异常信息的 500，不能当成 "密码错误"，也不能把内部信息返回给客户端
+     */
+    private ResponseEntity<?> loginFailed(Throwable throwable, AuditEvent audit) {
+        Throwable e = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        if (e instanceof RejectedExecutionException || e instanceof TimeoutException) {
+            // 线程池已满、认证超时（排队太久），按服务繁忙处理
+            return serviceBusy();
+        }
+        if (!(e instanceof AuthenticationException) || e instanceof InternalAuthenticationServiceException) {
+            log.error("Login for '{}' failed with an unexpected error", audit.username(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ResultVO.fail(ResponseCodeEnum.INTERNAL_SERVER_ERROR));
+        }
+        auditService.publish(new AuditEvent(System.currentTimeMillis(), AuditEvent.Type.LOGIN_FAILURE,
+                audit.username(), audit.remoteAddress(), audit.method(), audit.path(), e.getClass().getSimpleName()));
+        if (e instanceof UsernameNotFoundException) {
+            // 用户不存在：不计失败次数 (随机用户名会把锁定状态表撑满)，响应和密码错误完全相同
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
+        }
+        if (e instanceof BadCredentialsException) {
+            // 失败次数 +1 (只改内存)，达到上限后账户被锁定一段时间
+            loginAttemptService.loginFailed(audit.username());
             // 5. **如果认证失败** (比如密码错误)
             //    authenticationManager.authenticate 会抛出 BadCredentialsException
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
-        } catch (Exception e) {
-            // 6. 处理其他可能的认证异常 (比如用户被锁定、账户过期等)
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+        // 6. 账户状态异常 (被锁定、禁用、过期等) 也返回同样的提示：
+        //    "账户已锁定" 等于告诉对方这个用户名存在；具体原因只记在上面的审计日志里
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
+    }
+
+    private static ResponseEntity<?> serviceBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ResultVO.fail(ResponseCodeEnum.SERVICE_UNAVAILABLE));
+    }
+
+    /**
+     * 刷新接口：用刷新令牌换一对新的访问令牌和刷新令牌
+     * 不做密码校验，只查一次刷新令牌的唯一索引；旧的刷新令牌随即失效
+     * @param request 包含刷新令牌
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.refreshToken());
+            final String token = jwtUtil.generateToken(rotation.user());
+            return ResponseEntity.ok(new LoginResponse(token, rotation.refreshToken(), jwtUtil.getExpirationSeconds()));
+        } catch (BadCredentialsException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ResultVO.fail(ResponseCodeEnum.UNAUTHORIZED));
+        }
+    }
+
+    /**
+     * 登出接口：吊销当前请求携带的令牌
+     * 令牌会一直留在吊销列表里，直到它自然过期
+     * 请求体里带了刷新令牌时，它所在的整个 family 也一起作废
+     * @param authHeader "Bearer xxx"
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<ResultVO<?>> logout(@RequestHeader(name = "Authorization", required = false) String authHeader,
+                                              @RequestBody(required = false) RefreshRequest request) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ResultVO.fail(ResponseCodeEnum.UNAUTHORIZED));
+        }
+        try {
+            JwtClaims claims = jwtUtil.parseToken(authHeader.substring(7));
+            tokenRevocationService.revoke(claims.tokenId(), claims.expirationMillis());
+            if (request != null) {
+                refreshTokenService.revoke(request.refreshToken());
+            }
+            return ResponseEntity.ok(ResultVO.success());
+        } catch (JwtException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ResultVO.fail(ResponseCodeEnum.UNAUTHORIZED));
         }
     }
 
@@ -0,0 +1,52 @@
+package com.gb.test.springsecuritydemo.controller;
+
+import com.gb.test.springsecuritydemo.utils.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 发布 JWT 验证公钥 (JWKS)
+ * 文档在启动时就生成好了，这里只返回同一份字节；带 ETag 和 Cache-Control，
+ * 下游服务按 max-age 缓存，过期后用 If-None-Match 重新验证，大部分时候只拿到 304
+ */
+@RestController
+@Profile("!reactive")
+public class JwksController {
+
+    private final byte[] body;
+    private final String etag;
+    private final CacheControl cacheControl;
+
+    public JwksController(JwtKeyRing keyRing,
+                          @Value("${jwt.jwks.max-age:5m}") Duration maxAge) throws NoSuchAlgorithmException {
+        this.body = keyRing.getJwksJson().getBytes(StandardCharsets.UTF_8);
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+        this.etag = '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + '"';
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = "application/jwk-set+json")
+    public ResponseEntity<byte[]> jwks(WebRequest request) {
+        if (request.checkNotModified(etag)) {
+            return null; // 已经写好了 304
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType("application/jwk-set+json"))
+                .body(body);
+    }
+}
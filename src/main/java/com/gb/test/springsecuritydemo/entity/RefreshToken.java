@@ -0,0 +1,58 @@
+package com.gb.test.springsecuritydemo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * 刷新令牌
+ * <p>
+ * 数据库里只保存令牌的 SHA-256 摘要，数据库泄露也拿不到可用的刷新令牌；
+ * 同一次登录之后轮换出来的所有令牌属于同一个 family，
+ * 发现已经用过的令牌被再次使用 (被盗用) 时，整个 family 一起作废
+ */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "uk_refresh_tokens_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "idx_refresh_tokens_family", columnList = "familyId"),
+        @Index(name = "idx_refresh_tokens_expires", columnList = "expiresAt")
+})
+@Data
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 令牌原文的 SHA-256 (Base64URL)，按它查找
+    @Column(nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(nullable = false, length = 36)
+    private String familyId;
+
+    @Column(nullable = false)
+    private String username;
+
+    // 签发时用户的令牌版本号，角色或密码变化后旧的刷新令牌不能再用
+    @Column(nullable = false)
+    private Long tokenVersion;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // 被轮换（用过）的时间，为 null 表示还没用过
+    private Instant usedAt;
+
+    private boolean revoked;
+}
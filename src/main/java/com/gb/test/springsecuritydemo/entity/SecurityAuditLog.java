@@ -0,0 +1,51 @@
+package com.gb.test.springsecuritydemo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * 安全审计日志 (security.audit.sink=jdbc 时使用)
+ * <p>
+ * 只用来描述表结构 (开发环境由 Hibernate 建表，生产环境做校验)，
+ * 写入由 JdbcAuditSink 用 JDBC 批量插入完成，不经过 JPA
+ */
+@Entity
+@Table(name = "security_audit_log", indexes = {
+        @Index(name = "idx_security_audit_time", columnList = "eventTime"),
+        @Index(name = "idx_security_audit_username", columnList = "username")
+})
+@Data
+public class SecurityAuditLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Instant eventTime;
+
+    // AuditEvent.Type
+    @Column(nullable = false, length = 32)
+    private String type;
+
+    private String username;
+
+    @Column(length = 64)
+    private String remoteAddress;
+
+    @Column(length = 16)
+    private String method;
+
+    private String path;
+
+    @Column(length = 512)
+    private String detail;
+}
@@ -1,15 +1,26 @@
 package com.gb.test.springsecuritydemo.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.Objects;
 
 // 1. 不再 "implements UserDetails"
 @Entity
-@Table(name = "users") // 确保你的表名是 'users'
+// 确保你的表名是 'users'；username 上的唯一索引保证按用户名查询走索引，也防止重复注册
+@Table(name = "users", uniqueConstraints = @UniqueConstraint(name = "uk_users_username", columnNames = "username"))
+@EntityListeners(UserEntityListener.class) // 用户被修改时通知缓存失效
 @Data
 public class User {
 
@@ -17,6 +28,7 @@ public class User {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(nullable = false)
     private String username;
 
     private String password;
@@ -24,4 +36,32 @@ public class User {
     // 2. 新增一个 "role" 字段
     private String role;
 
-}
\ No newline at end of file
+    // 3. 令牌版本号：会被写进 JWT，角色或密码变化时 +1，
+    //    无状态模式下版本号更旧的令牌会被拒绝 (老数据可能为 null，按 0 处理)
+    private Long tokenVersion;
+
+    // 4. 登录状态：由 LoginAttemptService 在内存中维护，定时用 JDBC 批量写回 (write-behind)
+    //    updatable = false: 通过 JPA 保存用户 (改密码等) 时不会用旧值覆盖它们
+    @Column(updatable = false)
+    private Instant lastLoginAt;
+
+    @Column(updatable = false)
+    private Integer failedAttempts;
+
+    @Column(updatable = false)
+    private Instant lockedUntil;
+
+    // 加载时的 "角色 + 密码" 指纹，用来判断更新时是否需要提升 tokenVersion (不落库)
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int loadedSecurityState;
+
+    public long currentTokenVersion() {
+        return tokenVersion == null ? 0L : tokenVersion;
+    }
+
+    public int securityState() {
+        return Objects.hash(role, password);
+    }
+}
@@ -0,0 +1,47 @@
+package com.gb.test.springsecuritydemo.entity;
+
+import com.gb.test.springsecuritydemo.event.UserChangedEvent;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PreUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * User 实体的 JPA 监听器
+ * 任何通过 JPA 对用户的修改（改角色、改密码）或删除，都会发布 UserChangedEvent，
+ * 由各个缓存自己去失效对应的数据
+ * (Spring Boot 给 Hibernate 配置了 SpringBeanContainer，所以这里可以用构造函数注入)
+ */
+@Component
+public class UserEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostLoad
+    public void rememberSecurityState(User user) {
+        user.setLoadedSecurityState(user.securityState());
+    }
+
+    /**
+     * 角色或密码发生变化时提升令牌版本号，让之前签发的令牌在无状态模式下失效
+     */
+    @PreUpdate
+    public void bumpTokenVersion(User user) {
+        if (user.securityState() != user.getLoadedSecurityState()) {
+            user.setTokenVersion(user.currentTokenVersion() + 1);
+            user.setLoadedSecurityState(user.securityState());
+        }
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername(), user.currentTokenVersion()));
+    }
+}
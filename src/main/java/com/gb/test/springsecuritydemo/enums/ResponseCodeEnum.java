@@ -5,7 +5,15 @@ public enum ResponseCodeEnum {
 
     // --- 安全相关的状态码 ---
     UNAUTHORIZED(401, "未认证"),
-    FORBIDDEN(403, "权限不足");
+    FORBIDDEN(403, "权限不足"),
+
+    // --- 限流/过载相关的状态码 ---
+    PAYLOAD_TOO_LARGE(413, "请求体过大"),
+    TOO_MANY_REQUESTS(429, "请求过于频繁，请稍后再试"),
+    SERVICE_UNAVAILABLE(503, "服务繁忙，请稍后重试"),
+
+    // --- 服务端错误 (不把异常信息返回给客户端) ---
+    INTERNAL_SERVER_ERROR(500, "服务器内部错误");
 
     private final int code;
     private final String message;
@@ -0,0 +1,6 @@
+package com.gb.test.springsecuritydemo.event;
+
+// 事件: 和其他节点之间的失效消息可能有遗漏（比如和消息服务器断开后重新订阅）
+// 收到后，按失效消息保持一致的缓存应该整体丢弃，从数据源重新加载
+public record InvalidationGapEvent() {
+}
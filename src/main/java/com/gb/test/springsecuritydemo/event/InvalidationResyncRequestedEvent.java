@@ -0,0 +1,7 @@
+package com.gb.test.springsecuritydemo.event;
+
+// 事件: 另一个节点的订阅中断过 (见 InvalidationGapEvent)，请求其他节点把只存在内存里的状态重新广播一遍
+// 用户的修改不需要：数据库里有 token_version，断开的节点清空缓存后重新加载即可；
+// 令牌吊销只记在各个节点的内存里，由 TokenRevocationService 重新发布仍然有效的吊销
+public record InvalidationResyncRequestedEvent() {
+}
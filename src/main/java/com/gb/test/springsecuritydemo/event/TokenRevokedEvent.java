@@ -0,0 +1,7 @@
+package com.gb.test.springsecuritydemo.event;
+
+// 事件: 一个访问令牌被吊销（登出）
+// 由 TokenRevocationService 发布，InvalidationBus 把它广播给其他节点
+// remote 为 true 表示是其他节点上的吊销，由 InvalidationBus 转发过来（不会再广播出去）
+public record TokenRevokedEvent(String tokenId, long expiresAtMillis, boolean remote) {
+}
@@ -0,0 +1,12 @@
+package com.gb.test.springsecuritydemo.event;
+
+// 事件: 用户信息（角色、密码等）发生了变化
+// 发布后，所有缓存了该用户信息的地方都应该丢弃旧数据
+// tokenVersion 是修改后的令牌版本号，版本更旧的令牌不再被接受
+// remote 为 true 表示是其他节点上的修改，由 InvalidationBus 转发过来（不会再广播出去）
+public record UserChangedEvent(String username, long tokenVersion, boolean remote) {
+
+    public UserChangedEvent(String username, long tokenVersion) {
+        this(username, tokenVersion, false);
+    }
+}
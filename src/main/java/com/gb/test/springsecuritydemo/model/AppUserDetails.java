@@ -0,0 +1,85 @@
+package com.gb.test.springsecuritydemo.model;
+
+import com.gb.test.springsecuritydemo.utils.AuthorityBits;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+
+// 在 Spring Security 的 User 基础上多带一个令牌版本号，登录时写进 JWT
+// 以及提前算好的权限掩码，方法级鉴权时用位运算判断角色
+public class AppUserDetails extends User {
+
+    private final long tokenVersion;
+    private final long authorityMask;
+
+    public AppUserDetails(String username, String password,
+                          Collection<? extends GrantedAuthority> authorities, long tokenVersion) {
+        super(username, password, authorities);
+        this.tokenVersion = tokenVersion;
+        this.authorityMask = AuthorityBits.maskOf(getAuthorities());
+    }
+
+    public AppUserDetails(String username, String password, boolean enabled, boolean accountNonExpired,
+                          boolean credentialsNonExpired, boolean accountNonLocked,
+                          Collection<? extends GrantedAuthority> authorities, long tokenVersion) {
+        this(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked,
+                authorities, tokenVersion, AuthorityBits.maskOf(authorities));
+    }
+
+    private AppUserDetails(String username, String password, boolean enabled, boolean accountNonExpired,
+                           boolean credentialsNonExpired, boolean accountNonLocked,
+                           Collection<? extends GrantedAuthority> authorities, long tokenVersion, long authorityMask) {
+        super(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
+        this.tokenVersion = tokenVersion;
+        this.authorityMask = authorityMask;
+    }
+
+    /**
+     * 复制一份（密码等凭证也一并复制），用于从缓存中返回
+     */
+    public static AppUserDetails copyOf(UserDetails source) {
+        return copyWithPassword(source, source.getPassword());
+    }
+
+    /**
+     * 复制一份并替换密码（密码哈希升级后使用）
+     */
+    public static AppUserDetails copyWithPassword(UserDetails source, String newPassword) {
+        if (source instanceof AppUserDetails app) {
+            // 缓存命中时每个请求都会复制一次，掩码直接沿用
+            return new AppUserDetails(app.getUsername(), newPassword, app.isEnabled(),
+                    app.isAccountNonExpired(), app.isCredentialsNonExpired(), app.isAccountNonLocked(),
+                    app.getAuthorities(), app.getTokenVersion(), app.getAuthorityMask());
+        }
+        return new AppUserDetails(source.getUsername(), newPassword, source.isEnabled(),
+                source.isAccountNonExpired(), source.isCredentialsNonExpired(), source.isAccountNonLocked(),
+                source.getAuthorities(), 0L);
+    }
+
+    /**
+     * 复制一份并标记为已锁定 (DaoAuthenticationProvider 会在校验密码之前拒绝它)
+     */
+    public static AppUserDetails copyLocked(UserDetails source) {
+        if (source instanceof AppUserDetails app) {
+            return new AppUserDetails(app.getUsername(), app.getPassword(), app.isEnabled(),
+                    app.isAccountNonExpired(), app.isCredentialsNonExpired(), false,
+                    app.getAuthorities(), app.getTokenVersion(), app.getAuthorityMask());
+        }
+        return new AppUserDetails(source.getUsername(), source.getPassword(), source.isEnabled(),
+                source.isAccountNonExpired(), source.isCredentialsNonExpired(), false,
+                source.getAuthorities(), 0L);
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    /**
+     * 权限掩码，位的含义见 AuthorityBits
+     */
+    public long getAuthorityMask() {
+        return authorityMask;
+    }
+}
@@ -0,0 +1,27 @@
+package com.gb.test.springsecuritydemo.model;
+
+import java.util.List;
+
+// DTO: JwtClaims
+// 已经通过签名校验的令牌内容（不可变），由 JwtUtil.parseToken 返回，
+// 过滤器只需解析一次令牌，后续步骤都直接使用这个对象
+// roles 为 null 表示令牌里没有携带角色（旧令牌），无状态模式下不能只靠它认证
+// tokenId 是令牌的 jti，吊销 (登出) 时按它记录
+public record JwtClaims(String username,
+                        String tokenId,
+                        List<String> roles,
+                        long userVersion,
+                        long issuedAtMillis,
+                        long expirationMillis) {
+
+    public JwtClaims {
+        roles = roles == null ? null : List.copyOf(roles);
+    }
+
+    /**
+     * 令牌在给定时间点是否已过期
+     */
+    public boolean isExpired(long nowMillis) {
+        return expirationMillis <= nowMillis;
+    }
+}
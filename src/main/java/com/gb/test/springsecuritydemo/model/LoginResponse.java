@@ -1,5 +1,8 @@
 package com.gb.test.springsecuritydemo.model;
 
 // DTO: LoginResponse
-public record LoginResponse(String token) {
+// token: 访问令牌 (JWT)，有效期很短 (jwt.expiration)
+// refreshToken: 不透明的刷新令牌，用它调用 /api/auth/refresh 换一对新令牌，每个只能用一次
+// expiresIn: 访问令牌的有效期 (秒)
+public record LoginResponse(String token, String refreshToken, long expiresIn) {
 }
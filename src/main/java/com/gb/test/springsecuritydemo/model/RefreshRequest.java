@@ -0,0 +1,6 @@
+package com.gb.test.springsecuritydemo.model;
+
+// DTO: RefreshRequest
+// 刷新 / 登出时提交的刷新令牌
+public record RefreshRequest(String refreshToken) {
+}
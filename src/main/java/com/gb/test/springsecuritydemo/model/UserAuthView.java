@@ -0,0 +1,15 @@
+package com.gb.test.springsecuritydemo.model;
+
+import java.time.Instant;
+
+// DTO: UserAuthView
+// 认证时只需要的用户字段 (UserRepository.findAuthViewByUsername 的投影结果)
+// 不是 JPA 实体，不进持久化上下文
+// failedAttempts / lockedUntil 只在内存中还没有这个用户的登录状态时使用 (见 LoginAttemptService.seed)
+public record UserAuthView(String username, String password, String role, Long tokenVersion,
+                           Integer failedAttempts, Instant lockedUntil) {
+
+    public long currentTokenVersion() {
+        return tokenVersion == null ? 0L : tokenVersion;
+    }
+}
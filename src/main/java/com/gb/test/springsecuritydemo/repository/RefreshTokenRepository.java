@@ -0,0 +1,32 @@
+package com.gb.test.springsecuritydemo.repository;
+
+import com.gb.test.springsecuritydemo.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // 走 uk_refresh_tokens_hash 唯一索引
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * 把令牌标记为已使用；只有还没被用过、没被作废的令牌才会更新成功
+     * 两个请求同时拿同一个令牌来刷新时，只有一个能返回 1，另一个按重复使用处理
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.usedAt = :now where r.id = :id and r.usedAt is null and r.revoked = false")
+    int markUsed(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update RefreshToken r set r.revoked = true where r.familyId = :familyId and r.revoked = false")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
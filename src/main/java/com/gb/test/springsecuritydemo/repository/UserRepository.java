@@ -1,7 +1,10 @@
 package com.gb.test.springsecuritydemo.repository;
 
 import com.gb.test.springsecuritydemo.entity.User;
+import com.gb.test.springsecuritydemo.model.UserAuthView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.Optional;
 
 // 我们让它继承 JpaRepository，并指定它管理的实体是 User，主键类型是 Long
@@ -10,4 +13,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // 只需要按照这个格式定义方法名
     // Spring Data JPA 就会自动帮我们实现一个 "SELECT * FROM users WHERE username = ?" 的查询
     Optional<User> findByUsername(String username);
+
+    // 认证专用的只读查询：只查需要的几个列，直接构造 DTO，
+    // 结果不是托管实体，不进持久化上下文，不做脏检查，也不会触发实体监听器
+    @Query("select new com.gb.test.springsecuritydemo.model.UserAuthView("
+            + "u.username, u.password, u.role, u.tokenVersion, u.failedAttempts, u.lockedUntil) "
+            + "from User u where u.username = :username")
+    Optional<UserAuthView> findAuthViewByUsername(@Param("username") String username);
+
+    // 无状态模式下初始化令牌版本号 (UserVersionRegistry)，老数据的 null 按 0 处理
+    @Query("select coalesce(u.tokenVersion, 0L) from User u where u.username = :username")
+    Optional<Long> findTokenVersionByUsername(@Param("username") String username);
 }
\ No newline at end of file
@@ -0,0 +1,387 @@
+package com.gb.test.springsecuritydemo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录失败次数、账户锁定和最后登录时间 (write-behind)
+ * <p>
+ * 每次登录都同步 UPDATE 一次 users 表，在撞库时会让数据库的写入量翻倍。这里：
+ * 1. 每个用户的状态保存在内存里，登录成功 / 失败只改内存
+ * 2. 被改过的用户进入待写队列，同一个用户在一个周期内改多少次都只写一次 (合并)
+ * 3. 定时任务 (security.lockout.flush-interval) 把待写的用户用一条 JDBC 批量 UPDATE 写回数据库
+ * 4. 是否锁定只看内存状态 (MyUserDetailsService 每次加载用户都会判断)，不查数据库
+ * <p>
+ * 数据库里的值只在内存中没有这个用户的状态时 (比如重启后) 作为初始值 (见 seed)。
+ * 内存中按小写的用户名区分，换大小写不能绕过锁定 (和 LoginRateLimiter 一致)。
+ * 多实例部署时每个实例各自计数，锁定阈值相当于按实例计算
+ * <p>
+ * 内存上界 (不能被撞库的随机用户名撑满后让锁定失效)：
+ * - 只跟踪存在的用户：用户名不存在的失败登录不会调用 loginFailed (见 AuthController)
+ * - 失败次数只在 security.lockout.failure-window 内累计，超过窗口没有新的失败就清零，随后被清理
+ * - 表满时淘汰最久没有变化的状态 (优先淘汰没有锁定的)，而不是不再跟踪新用户
+ */
+@Service
+public class LoginAttemptService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginAttemptService.class);
+
+    private static final String UPDATE_SQL = "update users set failed_attempts = ?, locked_until = ?, "
+            + "last_login_at = coalesce(?, last_login_at) where username = ?";
+
+    /**
+     * 一个用户的登录状态，所有读写都在它自己的锁里完成 (一个用户一把锁，几乎没有竞争)
+     */
+    private static final class AttemptState {
+        String username;        // 写回数据库时用的用户名，知道数据库里的写法后会更新成它
+        int failedAttempts;
+        long lastFailureMillis; // 最近一次失败的时间，超过 failure-window 后失败次数作废
+        long lockedUntilMillis;
+        long touchedMillis;     // 最后一次变化的时间，表满时先淘汰最久没变化的
+        long lastLoginMillis;   // 0 表示这个周期内没有成功登录，写回时不改数据库里的值
+        boolean dirty;
+        boolean evicted;        // 已经从 map 中移除，持有旧引用的线程需要重新获取
+
+        AttemptState(String username) {
+            this.username = username;
+        }
+    }
+
+    private record EvictionCandidate(String key, AttemptState state, boolean locked, long touchedMillis) {
+    }
+
+    private record Snapshot(String username, int failedAttempts, long lockedUntilMillis, long lastLoginMillis) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final long lockDurationMillis;
+    private final long failureWindowMillis;
+    private final int maxTracked;
+    private final int flushBatchSize;
+
+    private final ConcurrentHashMap<String, AttemptState> states = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<AttemptState> dirtyStates = new ConcurrentLinkedQueue<>();
+    private final Object evictionLock = new Object();
+
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+
+    public LoginAttemptService(JdbcTemplate jdbcTemplate,
+                               @Value("${security.lockout.enabled:true}") boolean enabled,
+                               @Value("${security.lockout.max-attempts:5}") int maxAttempts,
+                               @Value("${security.lockout.duration:15m}") Duration lockDuration,
+                               @Value("${security.lockout.failure-window:15m}") Duration failureWindow,
+                               @Value("${security.lockout.max-tracked:100000}") int maxTracked,
+                               @Value("${security.lockout.flush-batch-size:500}") int flushBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.lockDurationMillis = lockDuration.toMillis();
+        this.failureWindowMillis = failureWindow.toMillis();
+        this.maxTracked = Math.max(1, maxTracked);
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+    }
+
+    /**
+     * 账户当前是否被锁定 (纯内存判断)
+     */
+    public boolean isLocked(String username) {
+        if (!enabled || username == null) {
+            return false;
+        }
+        AttemptState state = states.get(key(username));
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return state.lockedUntilMillis > System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 用数据库里的值初始化内存状态；内存里已经有这个用户时只记下数据库里的用户名 (内存中的值更新)
+     * 由 MyUserDetailsService 从数据库加载用户时调用
+     */
+    public void seed(String username, Integer failedAttempts, Instant lockedUntil) {
+        if (!enabled || username == null) {
+            return;
+        }
+        AttemptState existing = states.get(key(username));
+        if (existing != null) {
+            synchronized (existing) {
+                existing.username = username; // 之后按数据库里的写法写回
+            }
+            return;
+        }
+        int attempts = failedAttempts == null ? 0 : failedAttempts;
+        long lockedUntilMillis = lockedUntil == null ? 0L : lockedUntil.toEpochMilli();
+        long now = System.currentTimeMillis();
+        if (attempts == 0 && lockedUntilMillis <= now) {
+            return; // 干净的状态不需要占内存
+        }
+        makeRoom();
+        states.computeIfAbsent(key(username), k -> {
+            AttemptState state = new AttemptState(username);
+            state.failedAttempts = attempts;
+            state.lastFailureMillis = now; // 数据库里没有失败时间，窗口从现在开始算
+            state.lockedUntilMillis = lockedUntilMillis;
+            state.touchedMillis = now;
+            return state;
+        });
+    }
+
+    /**
+     * 登录成功：清零失败次数、解除锁定、记录登录时间
+     */
+    public void loginSucceeded(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        while (true) {
+            AttemptState state = stateFor(username);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.username = username; // 认证成功时的用户名就是数据库里的写法
+                state.failedAttempts = 0;
+                state.lockedUntilMillis = 0L;
+                state.lastLoginMillis = now;
+                state.touchedMillis = now;
+                markDirty(state);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 密码错误：失败次数 +1，达到 security.lockout.max-attempts 时锁定 security.lockout.duration
+     * 锁定后计数清零，解锁后重新开始计数；距离上次失败超过 security.lockout.failure-window 时从头计数
+     * 只能对存在的用户调用 (用户名不存在时不计数，否则随机用户名会把状态表撑满)
+     */
+    public void loginFailed(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        while (true) {
+            AttemptState state = stateFor(username);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                if (state.lockedUntilMillis > now) {
+                    return; // 已经锁定 (正常情况下锁定的账户根本不会走到密码校验)
+                }
+                if (failuresExpired(state, now)) {
+                    state.failedAttempts = 0;
+                }
+                state.failedAttempts++;
+                state.lastFailureMillis = now;
+                state.touchedMillis = now;
+                if (state.failedAttempts >= maxAttempts) {
+                    state.failedAttempts = 0;
+                    state.lockedUntilMillis = now + lockDurationMillis;
+                    lockouts.increment();
+                    log.info("Account '{}' locked for {} ms after {} failed logins", username, lockDurationMillis, maxAttempts);
+                }
+                markDirty(state);
+                return;
+            }
+        }
+    }
+
+    private static String key(String username) {
+        return username.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private AttemptState stateFor(String username) {
+        String key = key(username);
+        AttemptState state = states.get(key);
+        if (state != null) {
+            return state;
+        }
+        makeRoom();
+        return states.computeIfAbsent(key, k -> new AttemptState(username));
+    }
+
+    // 调用方必须持有 state 的锁
+    private boolean failuresExpired(AttemptState state, long now) {
+        return state.failedAttempts > 0 && now - state.lastFailureMillis > failureWindowMillis;
+    }
+
+    /**
+     * 表满时淘汰大约 1/10 最久没有变化的状态 (没有锁定的排在前面)
+     * 一次排序换接下来 maxTracked / 10 个新用户不用再淘汰，平摊下来每个新用户 O(log n)
+     */
+    private void makeRoom() {
+        if (states.size() < maxTracked) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (states.size() < maxTracked) {
+                return; // 别的线程刚淘汰过
+            }
+            // 先取快照再排序：排序期间状态还在变，直接比较会破坏比较器的一致性
+            long now = System.currentTimeMillis();
+            List<EvictionCandidate> candidates = new ArrayList<>(states.size());
+            states.forEach((key, state) -> {
+                synchronized (state) {
+                    candidates.add(new EvictionCandidate(key, state, state.lockedUntilMillis > now, state.touchedMillis));
+                }
+            });
+            candidates.sort(Comparator.comparing(EvictionCandidate::locked)
+                    .thenComparingLong(EvictionCandidate::touchedMillis));
+            int toEvict = Math.max(1, Math.min(candidates.size(), maxTracked / 10));
+            for (int i = 0; i < toEvict; i++) {
+                EvictionCandidate candidate = candidates.get(i);
+                AttemptState state = candidate.state();
+                synchronized (state) {
+                    // 还没写回的状态仍然在 dirtyStates 里，flush 照样会把它写回数据库
+                    if (states.remove(candidate.key(), state)) {
+                        state.evicted = true;
+                        evicted.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    // 调用方必须持有 state 的锁
+    private void markDirty(AttemptState state) {
+        if (!state.dirty) {
+            state.dirty = true;
+            dirtyStates.add(state);
+        }
+    }
+
+    /**
+     * 把待写的状态批量写回数据库，并清理已经没有意义的状态 (没有失败、没有锁定、已写回)
+     */
+    @Scheduled(fixedDelayString = "${security.lockout.flush-interval:5s}")
+    public void flush() {
+        List<AttemptState> pending = new ArrayList<>(flushBatchSize);
+        List<Snapshot> batch = new ArrayList<>(flushBatchSize);
+        AttemptState state;
+        while ((state = dirtyStates.poll()) != null) {
+            synchronized (state) {
+                batch.add(new Snapshot(state.username, state.failedAttempts, state.lockedUntilMillis, state.lastLoginMillis));
+                state.lastLoginMillis = 0L;
+                state.dirty = false;
+            }
+            pending.add(state);
+            if (batch.size() == flushBatchSize) {
+                writeBatch(batch, pending);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, pending);
+        }
+        sweep();
+    }
+
+    private void writeBatch(List<Snapshot> batch, List<AttemptState> pending) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Snapshot snapshot : batch) {
+            args.add(new Object[]{
+                    snapshot.failedAttempts(),
+                    snapshot.lockedUntilMillis() > 0 ? new Timestamp(snapshot.lockedUntilMillis()) : null,
+                    snapshot.lastLoginMillis() > 0 ? new Timestamp(snapshot.lastLoginMillis()) : null,
+                    snapshot.username()
+            });
+        }
+        try {
+            // 用户名不存在 (比如撞库时的随机用户名) 的行只是更新 0 行
+            jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+            flushedRows.add(batch.size());
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.warn("Failed to flush {} login attempt states, will retry: {}", batch.size(), e.toString());
+            // 重新标记为待写，下个周期再试 (期间又有变化的话写的是最新值)
+            for (int i = 0; i < pending.size(); i++) {
+                AttemptState state = pending.get(i);
+                long lastLogin = batch.get(i).lastLoginMillis();
+                synchronized (state) {
+                    if (state.lastLoginMillis == 0L) {
+                        state.lastLoginMillis = lastLogin;
+                    }
+                    markDirty(state);
+                }
+            }
+        }
+        batch.clear();
+        pending.clear();
+    }
+
+    /**
+     * 清理过期的状态：失败次数超过窗口的先清零并写回数据库 (否则重启后 seed 又会把旧的次数读回来)，
+     * 写回之后的下一轮再从内存中移除
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        states.values().removeIf(state -> {
+            synchronized (state) {
+                if (failuresExpired(state, now)) {
+                    state.failedAttempts = 0;
+                    markDirty(state);
+                    return false;
+                }
+                if (state.dirty || state.failedAttempts > 0 || state.lockedUntilMillis > now) {
+                    return false;
+                }
+                state.evicted = true;
+                return true;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public long getLockoutCount() {
+        return lockouts.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    public long getFlushedRowCount() {
+        return flushedRows.sum();
+    }
+
+    public long getFlushFailureCount() {
+        return flushFailures.sum();
+    }
+
+    public int getTrackedCount() {
+        return states.size();
+    }
+
+    public int getPendingCount() {
+        return dirtyStates.size();
+    }
+}
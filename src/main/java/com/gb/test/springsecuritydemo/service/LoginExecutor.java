@@ -0,0 +1,149 @@
+package com.gb.test.springsecuritydemo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 登录专用的线程池
+ * <p>
+ * BCrypt 校验密码是纯 CPU 的重活，如果直接在 Tomcat 工作线程里做，登录高峰会占满所有工作线程，
+ * 连 /hello 这种便宜的接口都会排队。这里把认证放到一个固定大小、队列有上限的线程池里：
+ * - 线程数和队列长度可配置 (security.login.*)
+ * - 队列满了立即拒绝 (RejectedExecutionException)，由控制器返回 503，而不是无限排队
+ * - 排队超过 security.login.timeout 的任务轮到执行时直接放弃：客户端早已收到 503，
+ *   不能再为它做一次密码哈希，否则过载时线程池一直在处理没人要的请求
+ * - 记录每次认证的排队时间和执行时间（执行时间主要就是密码哈希）
+ */
+@Component
+public class LoginExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    // 认证耗时统计 (纳秒)
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder totalExecutionNanos = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+    public LoginExecutor(@Value("${security.login.threads:0}") int threads,
+                         @Value("${security.login.queue-capacity:100}") int queueCapacity,
+                         @Value("${security.login.timeout:5s}") Duration timeout) {
+        // threads <= 0 时按 CPU 核数来定，哈希是 CPU 密集型任务，线程再多也没有意义
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.timeout = timeout;
+    }
+
+    /**
+     * 在登录线程池中执行认证任务
+     * @return 任务结果；超过 security.login.timeout 未完成时以 TimeoutException 结束
+     *         (排队期间就已经超时的任务不会再执行)
+     * @throws RejectedExecutionException 线程池和队列都满了
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        final long submittedAt = System.nanoTime();
+        final long deadline = submittedAt + timeout.toNanos();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                // 调用方已经拿到超时 (或取消了)：不用再做密码哈希
+                if (result.isDone() || startedAt - deadline >= 0) {
+                    expired.increment();
+                    result.completeExceptionally(new TimeoutException("Login expired while queued"));
+                    return;
+                }
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    record(startedAt - submittedAt, System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void record(long queueNanos, long executionNanos) {
+        completed.increment();
+        totalQueueNanos.add(queueNanos);
+        totalExecutionNanos.add(executionNanos);
+        maxExecutionNanos.accumulateAndGet(executionNanos, Math::max);
+        if (log.isDebugEnabled()) {
+            log.debug("Login authentication took {} ms (queued {} ms)",
+                    TimeUnit.NANOSECONDS.toMillis(executionNanos), TimeUnit.NANOSECONDS.toMillis(queueNanos));
+        }
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    public long getTotalExecutionNanos() {
+        return totalExecutionNanos.sum();
+    }
+
+    public long getTotalQueueNanos() {
+        return totalQueueNanos.sum();
+    }
+
+    public long getMaxExecutionNanos() {
+        return maxExecutionNanos.get();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
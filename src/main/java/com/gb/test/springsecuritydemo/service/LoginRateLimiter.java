@@ -0,0 +1,99 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.gb.test.springsecuritydemo.utils.KeyedRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录接口的限流
+ * <p>
+ * 登录是整个应用里最贵的请求（一次 BCrypt 校验），也是撞库 / 暴力破解的目标，
+ * 所以在进入认证之前先按两个维度限流：
+ * - 按客户端 IP：挡住单个来源的高频请求
+ * - 按用户名：挡住分布式地针对同一个账号猜密码
+ * 两个维度各自是一个 KeyedRateLimiter（无锁令牌桶），空闲的桶定时清理
+ */
+@Service
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final KeyedRateLimiter ipLimiter;
+    private final KeyedRateLimiter usernameLimiter;
+
+    private final LongAdder ipRejected = new LongAdder();
+    private final LongAdder usernameRejected = new LongAdder();
+
+    public LoginRateLimiter(@Value("${security.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${security.rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${security.rate-limit.ip.period:1m}") Duration ipPeriod,
+                            @Value("${security.rate-limit.username.capacity:5}") int usernameCapacity,
+                            @Value("${security.rate-limit.username.period:1m}") Duration usernamePeriod,
+                            @Value("${security.rate-limit.max-keys:100000}") int maxKeys) {
+        this.enabled = enabled;
+        this.ipLimiter = new KeyedRateLimiter(ipCapacity, ipPeriod.toNanos(), maxKeys);
+        this.usernameLimiter = new KeyedRateLimiter(usernameCapacity, usernamePeriod.toNanos(), maxKeys);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return 0 表示放行；否则为需要等待的纳秒数
+     */
+    public long acquireForIp(String ip) {
+        long wait = ipLimiter.tryAcquire(ip, System.nanoTime());
+        if (wait > 0) {
+            ipRejected.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * 用户名不区分大小写、忽略首尾空格，避免换个写法就绕过限流
+     * @return 0 表示放行；否则为需要等待的纳秒数
+     */
+    public long acquireForUsername(String username) {
+        String key = username.strip().toLowerCase(Locale.ROOT);
+        long wait = usernameLimiter.tryAcquire(key, System.nanoTime());
+        if (wait > 0) {
+            usernameRejected.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * 定时任务：删除已经补满的桶，内存只和 "最近活跃" 的 IP / 用户名数量有关
+     */
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval:60s}")
+    public void sweepIdle() {
+        long now = System.nanoTime();
+        ipLimiter.sweepIdle(now);
+        usernameLimiter.sweepIdle(now);
+    }
+
+    public long getIpRejectedCount() {
+        return ipRejected.sum();
+    }
+
+    public long getUsernameRejectedCount() {
+        return usernameRejected.sum();
+    }
+
+    public int getIpBucketCount() {
+        return ipLimiter.size();
+    }
+
+    public int getUsernameBucketCount() {
+        return usernameLimiter.size();
+    }
+
+    public long getOverflowCount() {
+        return ipLimiter.getOverflowCount() + usernameLimiter.getOverflowCount();
+    }
+}
@@ -0,0 +1,183 @@
+package com.gb.test.springsecuritydemo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * 批量计算 / 校验密码哈希的线程池
+ * <p>
+ * BCrypt / PBKDF2 是故意做得很慢的纯 CPU 计算，批量导入、批量重置密码时一个一个地算只能用到一个核。
+ * 这里用一个大小等于 CPU 核数的 ForkJoinPool (工作窃取)：
+ * - 一批密码被递归地切成小段，空闲的线程会去 "偷" 别的线程还没做的段，所有核一直是满的
+ * - 每算完一个密码回调一次进度 (在工作线程上调用，回调本身要线程安全、足够轻)
+ * - 调用方取消返回的 CompletableFuture 后，还没开始的密码不会再算
+ * <p>
+ * 登录仍然走 LoginExecutor（有排队上限和超时），和这里的批量任务互不影响
+ */
+@Service
+public class PasswordHashingService {
+
+    // 每段最多几个密码；一个 BCrypt 就是毫秒级，段切得很小也不会有明显的调度开销
+    private static final int SPLIT_THRESHOLD = 2;
+
+    /**
+     * 进度回调
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int completed, int total);
+    }
+
+    private final PasswordEncoder passwordEncoder;
+    private final ForkJoinPool pool;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${security.hashing.threads:0}") int threads) {
+        this.passwordEncoder = passwordEncoder;
+        // threads <= 0 时等于 CPU 核数
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("password-hash-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 在哈希线程池里计算一个密码的哈希
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), pool);
+    }
+
+    /**
+     * 并行计算一批密码的哈希
+     * @param rawPasswords 明文密码
+     * @param listener     进度回调，可以为 null
+     * @return 哈希结果，顺序和输入一致；cancel() 后剩下的密码不再计算
+     */
+    public CompletableFuture<List<String>> encodeAll(List<? extends CharSequence> rawPasswords,
+                                                     ProgressListener listener) {
+        return submit(rawPasswords.size(), i -> passwordEncoder.encode(rawPasswords.get(i)), String[]::new, listener);
+    }
+
+    /**
+     * 并行校验一批密码
+     * @param rawPasswords     明文密码
+     * @param encodedPasswords 对应的哈希，长度必须和 rawPasswords 一致
+     * @param listener         进度回调，可以为 null
+     * @return 每个密码是否匹配，顺序和输入一致
+     */
+    public CompletableFuture<List<Boolean>> matchesAll(List<? extends CharSequence> rawPasswords,
+                                                       List<String> encodedPasswords,
+                                                       ProgressListener listener) {
+        if (rawPasswords.size() != encodedPasswords.size()) {
+            throw new IllegalArgumentException("rawPasswords and encodedPasswords must have the same size");
+        }
+        return submit(rawPasswords.size(),
+                i -> passwordEncoder.matches(rawPasswords.get(i), encodedPasswords.get(i)),
+                Boolean[]::new, listener);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    public long getQueuedCount() {
+        return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private <T> CompletableFuture<List<T>> submit(int total, IntFunction<T> work, IntFunction<T[]> arrayFactory,
+                                                  ProgressListener listener) {
+        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        if (total == 0) {
+            future.complete(List.of());
+            return future;
+        }
+        T[] results = arrayFactory.apply(total);
+        Batch<T> batch = new Batch<>(future, work, results, listener, total);
+        pool.execute(() -> {
+            try {
+                new RangeTask<>(batch, 0, total).invoke();
+                future.complete(Arrays.asList(results));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 一次批量任务的共享状态
+     * future 完成 (包括被取消、出错) 之后，剩下的段直接跳过
+     */
+    private record Batch<T>(CompletableFuture<?> future, IntFunction<T> work, T[] results,
+                            ProgressListener listener, int total, AtomicInteger completed) {
+
+        Batch(CompletableFuture<?> future, IntFunction<T> work, T[] results, ProgressListener listener, int total) {
+            this(future, work, results, listener, total, new AtomicInteger());
+        }
+    }
+
+    /**
+     * 处理 [from, to) 这一段：太长就一分为二，交给工作窃取去并行
+     */
+    private static final class RangeTask<T> extends RecursiveAction {
+
+        private final Batch<T> batch;
+        private final int from;
+        private final int to;
+
+        RangeTask(Batch<T> batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    if (batch.future().isDone()) {
+                        return; // 已取消或已失败
+                    }
+                    try {
+                        batch.results()[i] = batch.work().apply(i);
+                    } catch (RuntimeException | Error e) {
+                        batch.future().completeExceptionally(e);
+                        return;
+                    }
+                    int done = batch.completed().incrementAndGet();
+                    if (batch.listener() != null) {
+                        batch.listener().onProgress(done, batch.total());
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask<>(batch, from, middle), new RangeTask<>(batch, middle, to));
+        }
+    }
+}
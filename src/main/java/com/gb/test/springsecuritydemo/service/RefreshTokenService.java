@@ -0,0 +1,191 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.gb.test.springsecuritydemo.entity.RefreshToken;
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import com.gb.test.springsecuritydemo.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AccountStatusException;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 刷新令牌的签发、轮换和作废
+ * <p>
+ * 有了刷新令牌，访问令牌可以缩短到几分钟 (jwt.expiration)，
+ * 续期时不需要再做一次 BCrypt：只按摘要查一次唯一索引，再从 UserDetails 缓存取用户
+ * <p>
+ * - 刷新令牌是 32 字节的随机数，不透明，数据库里只存 SHA-256
+ * - 每次刷新都会换一个新的刷新令牌 (轮换)，旧的标记为已使用
+ * - 已使用 / 已作废的令牌再次出现，说明它被盗用了：整个 family 全部作废，双方都要重新登录
+ * - 用户的角色或密码变化后 (令牌版本号变了)，之前签发的刷新令牌不能再用
+ * - 账户被锁定、禁用或过期时不能再刷新 (和登录时 DaoAuthenticationProvider 做的检查相同)
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserDetailsService userDetailsService;
+    private final Duration expiration;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final UserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserDetailsService userDetailsService,
+                               @Value("${jwt.refresh.expiration:7d}") Duration expiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userDetailsService = userDetailsService;
+        this.expiration = expiration;
+    }
+
+    /**
+     * 刷新的结果：最新的用户信息（用来签发新的访问令牌）和新的刷新令牌
+     */
+    public record Rotation(UserDetails user, String refreshToken) {
+    }
+
+    /**
+     * 登录成功后签发一个新的刷新令牌 (新的 family)
+     * @return 刷新令牌原文，只会在这里出现一次
+     */
+    @Transactional
+    public String issue(UserDetails user) {
+        return issue(user.getUsername(), tokenVersionOf(user), UUID.randomUUID().toString());
+    }
+
+    /**
+     * 用刷新令牌换一个新的刷新令牌
+     * @throws BadCredentialsException 令牌不存在、已过期、已被使用或已作废
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotation rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        // 1. 按摘要查唯一索引
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        Instant now = Instant.now();
+        // 2. 已经用过 / 作废的令牌再次出现：作废整个 family (不回滚，异常抛出后仍然生效)
+        if (token.getUsedAt() != null || token.isRevoked()) {
+            revokeFamilyOnReuse(token);
+        }
+        if (!token.getExpiresAt().isAfter(now)) {
+            throw new BadCredentialsException("Refresh token expired");
+        }
+
+        // 3. 原子地标记为已使用，并发刷新时只有一个请求能成功
+        if (refreshTokenRepository.markUsed(token.getId(), now) != 1) {
+            revokeFamilyOnReuse(token);
+        }
+
+        // 4. 用户被删除、角色 / 密码变了、账户状态异常，刷新令牌作废
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(token.getUsername());
+        } catch (UsernameNotFoundException e) {
+            refreshTokenRepository.revokeFamily(token.getFamilyId());
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        if (tokenVersionOf(user) != token.getTokenVersion()) {
+            refreshTokenRepository.revokeFamily(token.getFamilyId());
+            throw new BadCredentialsException("Refresh token is no longer valid");
+        }
+        // 账户被锁定 / 禁用 / 过期：刷新令牌同样作废，不能绕过登录时的检查续期 7 天
+        try {
+            accountStatusChecker.check(user);
+        } catch (AccountStatusException e) {
+            refreshTokenRepository.revokeFamily(token.getFamilyId());
+            throw new BadCredentialsException("Refresh token is no longer valid");
+        }
+
+        // 5. 同一个 family 里签发下一个令牌
+        return new Rotation(user, issue(user.getUsername(), tokenVersionOf(user), token.getFamilyId()));
+    }
+
+    /**
+     * 登出：作废这个刷新令牌所在的整个 family
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    /**
+     * 定时任务：删除已经过期的刷新令牌
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval:1h}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    public Duration getExpiration() {
+        return expiration;
+    }
+
+    private void revokeFamilyOnReuse(RefreshToken token) {
+        int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId());
+        log.warn("Refresh token reuse detected for user {}, revoked {} tokens in family {}",
+                token.getUsername(), revoked, token.getFamilyId());
+        throw new BadCredentialsException("Refresh token reuse detected");
+    }
+
+    private String issue(String username, long tokenVersion, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Instant now = Instant.now();
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(rawToken));
+        token.setFamilyId(familyId);
+        token.setUsername(username);
+        token.setTokenVersion(tokenVersion);
+        token.setCreatedAt(now);
+        token.setExpiresAt(now.plus(expiration));
+        refreshTokenRepository.save(token);
+        return rawToken;
+    }
+
+    private static long tokenVersionOf(UserDetails user) {
+        return user instanceof AppUserDetails app ? app.getTokenVersion() : 0L;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
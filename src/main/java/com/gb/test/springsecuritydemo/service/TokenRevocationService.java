@@ -0,0 +1,248 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.gb.test.springsecuritydemo.event.InvalidationResyncRequestedEvent;
+import com.gb.test.springsecuritydemo.event.TokenRevokedEvent;
+import com.gb.test.springsecuritydemo.utils.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 令牌吊销列表 (denylist)
+ * <p>
+ * JwtAuthenticationFilter 每个请求都会调用 isRevoked，所以查询必须几乎零成本：
+ * - 前面是一个布隆过滤器，绝大多数（没被吊销的）令牌在这里就直接返回 false
+ * - 后面是按 jti 索引的精确集合，值是令牌自身的过期时间，过期后就没有必要再记着它
+ * - 定时清理过期条目并重建布隆过滤器，内存始终有上界
+ * - 定时把列表写入本地快照文件，节点重启后可以立即恢复
+ * - 吊销时发布 TokenRevokedEvent，多实例部署时由 InvalidationBus 同步给其他节点；
+ *   某个节点和其他节点断开过时，各节点把仍然有效的吊销重新广播一遍，补上它错过的消息
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+    private static final String SNAPSHOT_HEADER = "# token revocation snapshot v1";
+
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private final Path snapshotFile;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // jti -> 令牌过期时间 (毫秒)
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+    private volatile int bloomCapacity;
+    private volatile boolean dirty;
+
+    public TokenRevocationService(@Value("${security.revocation.expected-insertions:100000}") int expectedInsertions,
+                                  @Value("${security.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${security.revocation.snapshot-file:}") String snapshotFile,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+        this.eventPublisher = eventPublisher;
+        rebuildBloomFilter();
+    }
+
+    /**
+     * 吊销一个令牌，直到它自然过期为止
+     * @param tokenId 令牌的 jti
+     * @param expiresAtMillis 令牌的过期时间
+     */
+    public void revoke(String tokenId, long expiresAtMillis) {
+        if (revokeLocally(tokenId, expiresAtMillis)) {
+            eventPublisher.publishEvent(new TokenRevokedEvent(tokenId, expiresAtMillis, false));
+        }
+    }
+
+    /**
+     * 其他节点吊销的令牌 (由 InvalidationBus 转发)，只记在本地，不再广播
+     */
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        if (event.remote()) {
+            revokeLocally(event.tokenId(), event.expiresAtMillis());
+        }
+    }
+
+    /**
+     * 另一个节点断开过，可能错过了吊销消息：把本节点知道的、还没过期的吊销重新发布一遍
+     * (InvalidationBus 合并后分批广播；收到的节点按 jti 合并，重复的没有副作用)
+     */
+    @EventListener
+    public void onResyncRequested(InvalidationResyncRequestedEvent event) {
+        long now = System.currentTimeMillis();
+        int republished = 0;
+        for (Map.Entry<String, Long> entry : revoked.entrySet()) {
+            if (entry.getValue() > now) {
+                eventPublisher.publishEvent(new TokenRevokedEvent(entry.getKey(), entry.getValue(), false));
+                republished++;
+            }
+        }
+        log.info("Republished {} revoked tokens for a resyncing node", republished);
+    }
+
+    private boolean revokeLocally(String tokenId, long expiresAtMillis) {
+        if (tokenId == null || expiresAtMillis <= System.currentTimeMillis()) {
+            return false; // 已经过期的令牌本来就无效，不用记
+        }
+        revoked.merge(tokenId, expiresAtMillis, Math::max);
+        bloomFilter.put(tokenId);
+        dirty = true;
+
+        // 数量超过布隆过滤器的设计容量时扩容，否则误判率会越来越高
+        if (revoked.size() > bloomCapacity) {
+            synchronized (this) {
+                if (revoked.size() > bloomCapacity) {
+                    rebuildBloomFilter();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 令牌是否已被吊销 (热路径)
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * 定时任务：清理已经自然过期的条目，重建布隆过滤器，并写快照
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.purge-interval:60s}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        boolean removed = false;
+        for (Iterator<Map.Entry<String, Long>> it = revoked.entrySet().iterator(); it.hasNext(); ) {
+            if (it.next().getValue() <= now) {
+                it.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            synchronized (this) {
+                rebuildBloomFilter();
+            }
+            dirty = true;
+        }
+        if (dirty) {
+            saveSnapshot();
+        }
+    }
+
+    /**
+     * 用当前的精确集合重建布隆过滤器（先建好再替换，读线程不会看到半成品）
+     */
+    private void rebuildBloomFilter() {
+        int capacity = Math.max(expectedInsertions, revoked.size() * 2);
+        BloomFilter fresh = new BloomFilter(capacity, falsePositiveRate);
+        for (String tokenId : revoked.keySet()) {
+            fresh.put(tokenId);
+        }
+        this.bloomFilter = fresh;
+        this.bloomCapacity = capacity;
+        // 重建期间新吊销的令牌可能只写进了旧过滤器，这里补一遍
+        for (String tokenId : revoked.keySet()) {
+            fresh.put(tokenId);
+        }
+    }
+
+    // --- 本地快照 ---
+
+    @PostConstruct
+    public void loadSnapshot() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    continue;
+                }
+                long expiresAt = Long.parseLong(line.substring(space + 1).trim());
+                if (expiresAt > now) {
+                    revoked.put(line.substring(0, space), expiresAt);
+                    loaded++;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Failed to load token revocation snapshot from {}", snapshotFile, e);
+        }
+        synchronized (this) {
+            rebuildBloomFilter();
+        }
+        log.info("Loaded {} revoked tokens from {}", loaded, snapshotFile);
+    }
+
+    @PreDestroy
+    public void saveSnapshotOnShutdown() {
+        if (dirty) {
+            saveSnapshot();
+        }
+    }
+
+    public void saveSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        dirty = false;
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // 先写临时文件再原子替换，避免崩溃时留下写了一半的快照
+            Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(SNAPSHOT_HEADER);
+                writer.newLine();
+                for (Map.Entry<String, Long> entry : revoked.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write(' ');
+                    writer.write(Long.toString(entry.getValue()));
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("Failed to write token revocation snapshot to {}", snapshotFile, e);
+        }
+    }
+}
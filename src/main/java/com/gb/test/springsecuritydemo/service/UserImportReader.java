@@ -0,0 +1,216 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 逐行读取批量导入的用户数据，不会把整个请求体读进内存
+ * <p>
+ * 支持三种格式：
+ * - NDJSON (application/x-ndjson)：每行一个 {"username":..,"password":..,"role":..}，坏行只影响这一行
+ * - JSON (application/json)：一个对象数组，用流式解析器一个一个地读
+ * - CSV (text/csv)：第一行是表头，列名 username / password / role，顺序不限，支持双引号转义
+ */
+public class UserImportReader implements Closeable {
+
+    public enum Format {
+        NDJSON, JSON, CSV;
+
+        public static Format fromContentType(String contentType) {
+            String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("application/x-ndjson")) {
+                return NDJSON;
+            }
+            if (type.startsWith("text/csv")) {
+                return CSV;
+            }
+            if (type.startsWith("application/json")) {
+                return JSON;
+            }
+            throw new IllegalArgumentException("Unsupported content type: " + contentType);
+        }
+    }
+
+    /**
+     * 读到的一行。error 不为 null 表示这一行本身就无法解析
+     * row: CSV / NDJSON 为行号，JSON 为数组下标 (从 1 开始)
+     */
+    public record Row(long row, String username, String password, String role, String error) {
+    }
+
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private final BufferedReader reader;
+    private final JsonParser parser;
+
+    private long row;
+    // CSV 表头中各列的位置
+    private int usernameColumn = -1;
+    private int passwordColumn = -1;
+    private int roleColumn = -1;
+
+    public UserImportReader(InputStream in, Format format, ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (format == Format.JSON) {
+            this.reader = null;
+            this.parser = objectMapper.getFactory().createParser(in);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of users");
+            }
+        } else {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.parser = null;
+            if (format == Format.CSV) {
+                readCsvHeader();
+            }
+        }
+    }
+
+    /**
+     * @return 下一行；没有更多数据时返回 null
+     * @throws IOException 读取失败，或 JSON 数组本身格式错误（无法继续往下读）
+     */
+    public Row next() throws IOException {
+        return switch (format) {
+            case JSON -> nextJson();
+            case NDJSON -> nextNdjson();
+            case CSV -> nextCsv();
+        };
+    }
+
+    private Row nextJson() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        row++;
+        JsonNode node = parser.readValueAsTree();
+        return fromJson(node);
+    }
+
+    private Row nextNdjson() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            row++;
+        } while (line.isBlank());
+        try {
+            return fromJson(objectMapper.readTree(line));
+        } catch (JsonProcessingException e) {
+            return new Row(row, null, null, null, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Row fromJson(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            return new Row(row, null, null, null, "Expected a JSON object");
+        }
+        return new Row(row, text(node, "username"), text(node, "password"), text(node, "role"), null);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private void readCsvHeader() throws IOException {
+        String header = reader.readLine();
+        row++;
+        if (header == null) {
+            return;
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1); // Excel 导出的 UTF-8 BOM
+        }
+        List<String> columns = parseCsvLine(header);
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "username" -> usernameColumn = i;
+                case "password" -> passwordColumn = i;
+                case "role" -> roleColumn = i;
+                default -> { }
+            }
+        }
+        if (usernameColumn < 0 || passwordColumn < 0) {
+            throw new IOException("CSV header must contain username and password columns");
+        }
+    }
+
+    private Row nextCsv() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            row++;
+        } while (line.isBlank());
+        List<String> values = parseCsvLine(line);
+        return new Row(row, column(values, usernameColumn), column(values, passwordColumn),
+                column(values, roleColumn), null);
+    }
+
+    private static String column(List<String> values, int index) {
+        return index >= 0 && index < values.size() ? values.get(index) : null;
+    }
+
+    /**
+     * 解析一行 CSV：逗号分隔，字段可以用双引号包起来，"" 表示一个双引号（不支持字段内换行）
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (parser != null) {
+            parser.close();
+        }
+        if (reader != null) {
+            reader.close();
+        }
+    }
+}
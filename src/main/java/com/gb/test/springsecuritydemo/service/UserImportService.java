@@ -0,0 +1,230 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.service.UserImportReader.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+
+/**
+ * 批量导入用户
+ * <p>
+ * 按 security.import.batch-size 一批一批地处理，内存里同时只有一批数据：
+ * 1. 读一批 -> 校验 (格式、批内重复、数据库里已存在)
+ * 2. 在 PasswordHashingService 的线程池里用所有 CPU 核并行计算密码哈希（导入时最慢的一步）
+ * 3. 用 JDBC 批量插入，每批一个事务；不经过 JPA，也就不受 IDENTITY 主键不能批量插入的限制
+ * 4. 每一行的错误和每一批的进度都通过 ImportListener 实时报告
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final String INSERT_SQL =
+            "insert into users (username, password, role, token_version) values (?, ?, ?, 0)";
+    private static final String EXISTING_SQL = "select username from users where username in (:usernames)";
+    private static final Pattern ROLE_PATTERN = Pattern.compile("ROLE_[A-Z0-9_]+");
+    private static final int MAX_USERNAME_LENGTH = 255;
+    private static final String DEFAULT_ROLE = "ROLE_USER";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordHashingService passwordHashingService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public UserImportService(NamedParameterJdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             PasswordHashingService passwordHashingService,
+                             ObjectMapper objectMapper,
+                             @Value("${security.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordHashingService = passwordHashingService;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 导入进度的回调（在导入线程上调用）
+     */
+    public interface ImportListener {
+
+        void onRowError(long row, String username, String message) throws IOException;
+
+        void onProgress(ImportStats stats) throws IOException;
+    }
+
+    /**
+     * processed: 已处理的行数；imported: 成功插入的行数；failed: 出错的行数
+     */
+    public record ImportStats(long processed, long imported, long failed) {
+    }
+
+    private record PendingUser(long row, String username, String password, String role) {
+    }
+
+    /**
+     * 从输入流读取用户并导入
+     * @throws IOException 读取失败，或者请求体整体格式错误（已经导入的批次不会回滚）
+     */
+    public ImportStats importUsers(InputStream in, UserImportReader.Format format,
+                                   ImportListener listener) throws IOException {
+        long processed = 0;
+        long imported = 0;
+        long failed = 0;
+        try (UserImportReader reader = new UserImportReader(in, format, objectMapper)) {
+            List<Row> chunk = new ArrayList<>(batchSize);
+            Row row;
+            do {
+                row = reader.next();
+                if (row != null) {
+                    chunk.add(row);
+                }
+                if (chunk.size() == batchSize || (row == null && !chunk.isEmpty())) {
+                    int inserted = importChunk(chunk, listener);
+                    processed += chunk.size();
+                    imported += inserted;
+                    failed += chunk.size() - inserted;
+                    chunk.clear();
+                    listener.onProgress(new ImportStats(processed, imported, failed));
+                }
+            } while (row != null);
+        }
+        log.info("User import finished: {} processed, {} imported, {} failed", processed, imported, failed);
+        return new ImportStats(processed, imported, failed);
+    }
+
+    /**
+     * 导入一批
+     * @return 成功插入的行数
+     */
+    private int importChunk(List<Row> chunk, ImportListener listener) throws IOException {
+        // 1. 校验，批内同名的只保留第一个
+        Map<String, Row> valid = new LinkedHashMap<>();
+        for (Row row : chunk) {
+            String error = validate(row);
+            if (error == null && valid.containsKey(row.username())) {
+                error = "Duplicate username in request";
+            }
+            if (error != null) {
+                listener.onRowError(row.row(), row.username(), error);
+            } else {
+                valid.put(row.username(), row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+
+        // 2. 数据库里已经存在的用户名 (一次 IN 查询，走唯一索引)
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                EXISTING_SQL, Map.of("usernames", valid.keySet()), String.class));
+        List<Row> toInsert = new ArrayList<>(valid.size());
+        for (Row row : valid.values()) {
+            if (existing.contains(row.username())) {
+                listener.onRowError(row.row(), row.username(), "Username already exists");
+            } else {
+                toInsert.add(row);
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return 0;
+        }
+
+        // 3. 并行计算密码哈希 (顺序和输入保持一致)
+        List<String> hashes = encodeAll(toInsert);
+        List<PendingUser> users = new ArrayList<>(toInsert.size());
+        for (int i = 0; i < toInsert.size(); i++) {
+            Row row = toInsert.get(i);
+            users.add(new PendingUser(row.row(), row.username(), hashes.get(i), roleOf(row)));
+        }
+
+        // 4. 批量插入；和其他请求并发插入了同名用户时，整批回滚后逐行插入，只让冲突的行失败
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(users));
+            return users.size();
+        } catch (DuplicateKeyException e) {
+            return insertOneByOne(users, listener);
+        }
+    }
+
+    private List<String> encodeAll(List<Row> rows) {
+        List<String> passwords = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            passwords.add(row.password());
+        }
+        CompletableFuture<List<String>> hashes = passwordHashingService.encodeAll(passwords, null);
+        try {
+            return hashes.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void insertBatch(List<PendingUser> users) {
+        List<Object[]> args = new ArrayList<>(users.size());
+        for (PendingUser user : users) {
+            args.add(new Object[]{user.username(), user.password(), user.role()});
+        }
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_SQL, args);
+    }
+
+    private int insertOneByOne(List<PendingUser> users, ImportListener listener) throws IOException {
+        int inserted = 0;
+        for (PendingUser user : users) {
+            try {
+                jdbcTemplate.getJdbcTemplate().update(INSERT_SQL, user.username(), user.password(), user.role());
+                inserted++;
+            } catch (DuplicateKeyException e) {
+                listener.onRowError(user.row(), user.username(), "Username already exists");
+            }
+        }
+        return inserted;
+    }
+
+    private static String validate(Row row) {
+        if (row.error() != null) {
+            return row.error();
+        }
+        if (row.username() == null || row.username().isBlank()) {
+            return "Username is required";
+        }
+        if (!row.username().equals(row.username().strip())) {
+            return "Username must not have leading or trailing spaces";
+        }
+        if (row.username().length() > MAX_USERNAME_LENGTH) {
+            return "Username is too long";
+        }
+        if (row.password() == null || row.password().isEmpty()) {
+            return "Password is required";
+        }
+        if (row.role() != null && !row.role().isBlank() && !ROLE_PATTERN.matcher(row.role()).matches()) {
+            return "Role must look like ROLE_XXX";
+        }
+        return null;
+    }
+
+    private static String roleOf(Row row) {
+        return row.role() == null || row.role().isBlank() ? DEFAULT_ROLE : row.role();
+    }
+}
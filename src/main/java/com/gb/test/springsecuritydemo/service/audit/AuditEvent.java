@@ -0,0 +1,43 @@
+package com.gb.test.springsecuritydemo.service.audit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 一条安全审计事件
+ * @param timestamp     发生时间 (毫秒时间戳)
+ * @param type          事件类型
+ * @param username      相关的用户名，未知时为 null
+ * @param remoteAddress 客户端地址
+ * @param method        HTTP 方法
+ * @param path          请求路径
+ * @param detail        补充信息 (失败原因等)，可以为 null
+ */
+public record AuditEvent(long timestamp, Type type, String username, String remoteAddress,
+                         String method, String path, String detail) {
+
+    public enum Type {
+        LOGIN_SUCCESS, LOGIN_FAILURE, UNAUTHORIZED, FORBIDDEN
+    }
+
+    /**
+     * 从当前请求创建事件 (必须在请求线程上调用)
+     */
+    public static AuditEvent of(Type type, String username, HttpServletRequest request, String detail) {
+        return new AuditEvent(System.currentTimeMillis(), type, username, request.getRemoteAddr(),
+                request.getMethod(), request.getRequestURI(), detail);
+    }
+
+    /**
+     * 从响应式请求创建事件 (WebFlux 版本)
+     */
+    public static AuditEvent of(Type type, String username, ServerHttpRequest request, String detail) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        String remoteAddress = remote == null ? null
+                : remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+        return new AuditEvent(System.currentTimeMillis(), type, username, remoteAddress,
+                request.getMethod().name(), request.getPath().value(), detail);
+    }
+}
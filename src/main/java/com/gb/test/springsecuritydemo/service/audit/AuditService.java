@@ -0,0 +1,218 @@
+package com.gb.test.springsecuritydemo.service.audit;
+
+import com.gb.test.springsecuritydemo.utils.MpscRingBuffer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步、批量的安全审计日志
+ * <p>
+ * 请求线程只把事件放进一个无锁的有界环形队列 (MpscRingBuffer) 就返回，不做任何 I/O；
+ * 一个后台线程把队列里的事件成批地写到 AuditSink (文件或数据库)：
+ * - 有多少取多少，一次最多 security.audit.batch-size 条；队列空了就休眠 flush-interval
+ * - 存储变慢或者出错只会让队列变长、事件被丢弃，不会拖慢请求
+ * <p>
+ * 队列满了怎么办 (security.audit.overflow)：
+ * - drop: 丢掉新的事件 (默认)
+ * - sample: 队列超过 3/4 时就开始采样，每 sample-rate 个事件只保留一个，尽量给后面留出空间
+ * - block: 请求线程最多等 block-timeout，超时仍然丢弃；这会让请求延迟受存储速度影响，只在审计不能丢的场景使用
+ * <p>
+ * 关闭时先等后台线程把队列写完；存储卡住时打断它、放弃剩下的事件。
+ * AuditSink 由后台线程退出时自己关闭，不会在它还在 write 的时候被另一个线程关掉
+ */
+@Service
+public class AuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditService.class);
+
+    public enum OverflowPolicy {
+        DROP, SAMPLE, BLOCK
+    }
+
+    private final boolean enabled;
+    private final AuditSink sink;
+    private final MpscRingBuffer<AuditEvent> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int sampleRate;
+    private final int sampleThreshold;
+    private final long blockTimeoutNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // 关闭时等不及了：后台线程不再写剩下的事件，直接退出
+    private volatile boolean abandoned;
+
+    private final AtomicLong sampleSequence = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    // 最近一批里最早的事件从发生到写入存储经过的时间
+    private volatile long lagMillis;
+
+    public AuditService(AuditSink sink,
+                        @Value("${security.audit.enabled:true}") boolean enabled,
+                        @Value("${security.audit.buffer-size:8192}") int bufferSize,
+                        @Value("${security.audit.batch-size:256}") int batchSize,
+                        @Value("${security.audit.flush-interval:200ms}") Duration flushInterval,
+                        @Value("${security.audit.overflow:drop}") String overflow,
+                        @Value("${security.audit.sample-rate:10}") int sampleRate,
+                        @Value("${security.audit.block-timeout:10ms}") Duration blockTimeout) {
+        this.enabled = enabled;
+        this.sink = sink;
+        this.buffer = new MpscRingBuffer<>(bufferSize);
+        this.overflowPolicy = OverflowPolicy.valueOf(overflow.trim().toUpperCase(Locale.ROOT));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sampleThreshold = buffer.capacity() / 4 * 3;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+
+        this.writer = new Thread(this::runWriter, "security-audit-writer");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            this.writer.start();
+        }
+    }
+
+    /**
+     * 记录一个事件 (任意线程，不做 I/O)
+     */
+    public void publish(AuditEvent event) {
+        if (!enabled) {
+            return;
+        }
+        published.increment();
+        if (overflowPolicy == OverflowPolicy.SAMPLE && buffer.size() >= sampleThreshold
+                && sampleSequence.getAndIncrement() % sampleRate != 0) {
+            sampledOut.increment();
+            return;
+        }
+        if (buffer.offer(event)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK && offerWithTimeout(event)) {
+            return;
+        }
+        dropped.increment();
+    }
+
+    private boolean offerWithTimeout(AuditEvent event) {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        LockSupport.unpark(writer); // 叫醒后台线程马上开始写
+        do {
+            LockSupport.parkNanos(50_000);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        } while (System.nanoTime() - deadline < 0);
+        return false;
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (!abandoned) {
+                batch.clear();
+                buffer.drainTo(batch, batchSize);
+                if (batch.isEmpty()) {
+                    if (!running) {
+                        return; // 停止前已经把队列写完
+                    }
+                    LockSupport.parkNanos(flushIntervalNanos);
+                    continue;
+                }
+                try {
+                    sink.write(batch);
+                    written.add(batch.size());
+                    lagMillis = System.currentTimeMillis() - batch.get(0).timestamp();
+                } catch (Exception e) {
+                    failed.add(batch.size());
+                    log.warn("Failed to write {} audit events: {}", batch.size(), e.toString());
+                    // 存储出错时稍微等一下，不要一直重试刷屏；这段时间的新事件会堆在队列里
+                    LockSupport.parkNanos(flushIntervalNanos);
+                }
+            }
+        } finally {
+            closeSink();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shutdown(Duration.ofSeconds(5));
+    }
+
+    void shutdown(Duration timeout) throws InterruptedException {
+        running = false;
+        // 1. 后台线程没有启动过 (审计关闭)：只能在这里关闭存储
+        if (writer.getState() == Thread.State.NEW) {
+            closeSink();
+            return;
+        }
+        // 2. 等后台线程把队列写完，它退出时会关闭存储
+        LockSupport.unpark(writer);
+        writer.join(timeout);
+        if (!writer.isAlive()) {
+            return;
+        }
+        // 3. 存储卡住了：放弃剩下的事件，打断正在进行的写入，再等一次
+        log.warn("Audit writer did not finish within {}, abandoning {} queued events", timeout, buffer.size());
+        abandoned = true;
+        writer.interrupt();
+        writer.join(timeout);
+        if (writer.isAlive()) {
+            // 不在这里关闭存储：后台线程还在 write 里，等它返回后自己关闭
+            log.warn("Audit writer is still blocked in the sink; the sink will be closed when it returns");
+        }
+    }
+
+    private void closeSink() {
+        try {
+            sink.close();
+        } catch (Exception e) {
+            log.warn("Failed to close audit sink: {}", e.toString());
+        }
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public int getQueueSize() {
+        return buffer.size();
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+}
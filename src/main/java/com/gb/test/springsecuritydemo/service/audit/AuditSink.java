@@ -0,0 +1,19 @@
+package com.gb.test.springsecuritydemo.service.audit;
+
+import java.util.List;
+
+/**
+ * 审计事件的存储
+ * 只会被 AuditService 的后台线程调用 (单线程)，实现不需要考虑并发
+ */
+public interface AuditSink extends AutoCloseable {
+
+    /**
+     * 写入一批事件；抛出异常表示这一批全部失败
+     */
+    void write(List<AuditEvent> events) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+}
@@ -0,0 +1,46 @@
+package com.gb.test.springsecuritydemo.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 追加写到本地文件，每行一个 JSON (NDJSON)
+ * 每批写完 flush 一次 (进入操作系统的页缓存)，不做 fsync；进程崩溃最多丢掉最后一批
+ */
+public class FileAuditSink implements AuditSink {
+
+    private final ObjectWriter writer;
+    private final BufferedWriter out;
+
+    public FileAuditSink(Path file, ObjectMapper objectMapper) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = objectMapper.writerFor(AuditEvent.class);
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) throws IOException {
+        for (AuditEvent event : events) {
+            out.write(writer.writeValueAsString(event));
+            out.newLine();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
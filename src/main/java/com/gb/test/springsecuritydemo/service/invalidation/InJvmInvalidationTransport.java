@@ -0,0 +1,56 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 同一个 JVM 内的传输：同一个频道的所有订阅者 (比如测试里的多个应用上下文) 直接在发送线程上收到消息
+ * 单节点部署时也可以用它，效果只是让 InvalidationBus 的完整流程跑起来
+ */
+public class InJvmInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(InJvmInvalidationTransport.class);
+
+    private static final ConcurrentHashMap<String, List<Listener>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private volatile Listener listener;
+
+    public InJvmInvalidationTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(byte[] payload) {
+        for (Listener subscriber : CHANNELS.getOrDefault(channel, List.of())) {
+            try {
+                subscriber.onMessage(payload);
+            } catch (RuntimeException e) {
+                // 一个订阅者出错不影响其他订阅者
+                log.warn("Invalidation subscriber on channel {} failed", channel, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        this.listener = listener;
+        CHANNELS.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void close() {
+        Listener subscribed = this.listener;
+        if (subscribed != null) {
+            CHANNELS.computeIfPresent(channel, (k, listeners) -> {
+                listeners.remove(subscribed);
+                return listeners.isEmpty() ? null : listeners;
+            });
+            this.listener = null;
+        }
+    }
+}
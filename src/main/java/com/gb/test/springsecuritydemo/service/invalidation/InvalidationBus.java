@@ -0,0 +1,274 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gb.test.springsecuritydemo.event.InvalidationGapEvent;
+import com.gb.test.springsecuritydemo.event.InvalidationResyncRequestedEvent;
+import com.gb.test.springsecuritydemo.event.TokenRevokedEvent;
+import com.gb.test.springsecuritydemo.event.UserChangedEvent;
+import com.gb.test.springsecuritydemo.service.invalidation.InvalidationMessage.Batch;
+import com.gb.test.springsecuritydemo.service.invalidation.InvalidationMessage.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 集群内的缓存失效 / 令牌吊销广播
+ * <p>
+ * 多个实例部署时，每个节点的用户缓存、吊销列表、令牌版本号都只知道本节点上发生的修改。这里：
+ * 1. 监听本节点的 UserChangedEvent (事务提交后) 和 TokenRevokedEvent，放进待发送表，不做 I/O
+ * 2. 待发送表按 (类型, key) 合并：同一个用户一个周期内改多少次只发一次，值取最大 (版本号、过期时间都只增不减)
+ * 3. 后台线程每 security.bus.flush-interval 把待发送的消息编码成一批 (最多 max-batch-size 条) 交给 InvalidationTransport
+ * 4. 收到其他节点的一批消息后，逐条重新发布成本地的 UserChangedEvent / TokenRevokedEvent (remote = true)，
+ *    原有的监听者 (MyUserDetailsService、UserVersionRegistry、TokenRevocationService) 不需要知道消息从哪里来；
+ *    这些处理都是幂等的，重复收到同一条消息没有副作用
+ * 5. 传输层报告订阅中断过 (消息可能丢失) 时发布 InvalidationGapEvent：用户缓存、令牌版本号整体清空，从数据库重新加载；
+ *    同时广播一条 RESYNC_REQUESTED，其他节点收到后发布 InvalidationResyncRequestedEvent，
+ *    把仍然有效的令牌吊销重新广播一遍 (吊销只存在各节点的内存里，没有别的地方可以补)
+ * <p>
+ * 发送失败的消息合并回待发送表，下个周期重试；已经过期的令牌吊销不再重试
+ */
+@Service
+public class InvalidationBus implements SmartLifecycle, InvalidationTransport.Listener {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private record PendingKey(Type type, String key) {
+    }
+
+    private final InvalidationTransport transport;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final boolean enabled;
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentHashMap<PendingKey, Long> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sender;
+    private volatile boolean running;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+
+    public InvalidationBus(InvalidationTransport transport,
+                           ApplicationEventPublisher eventPublisher,
+                           ObjectMapper objectMapper,
+                           @Value("${security.bus.enabled:false}") boolean enabled,
+                           @Value("${security.bus.flush-interval:50ms}") Duration flushInterval,
+                           @Value("${security.bus.max-batch-size:500}") int maxBatchSize) {
+        this.transport = transport;
+        this.eventPublisher = eventPublisher;
+        this.writer = objectMapper.writerFor(Batch.class);
+        this.reader = objectMapper.readerFor(Batch.class);
+        this.enabled = enabled;
+        this.flushIntervalMillis = Math.max(1, flushInterval.toMillis());
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "security-invalidation-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // --- 本节点的修改 -> 待发送表 ---
+
+    /**
+     * 事务提交后再广播，避免其他节点在提交前又把旧数据加载回缓存 (和 MyUserDetailsService 一致)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!event.remote()) {
+            enqueue(Type.USER_CHANGED, event.username(), event.tokenVersion());
+        }
+    }
+
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        if (!event.remote()) {
+            enqueue(Type.TOKEN_REVOKED, event.tokenId(), event.expiresAtMillis());
+        }
+    }
+
+    private void enqueue(Type type, String key, long value) {
+        if (!enabled || key == null) {
+            return;
+        }
+        queued.increment();
+        pending.compute(new PendingKey(type, key), (k, existing) -> {
+            if (existing == null) {
+                return value;
+            }
+            coalesced.increment(); // 和还没发出去的同一条消息合并了
+            return Math.max(existing, value);
+        });
+        if (pending.size() >= maxBatchSize && running) {
+            try {
+                sender.execute(this::flush); // 攒够一批就不等定时了
+            } catch (RejectedExecutionException e) {
+                // 正在停止，stop() 会把剩下的消息发出去
+            }
+        }
+    }
+
+    /**
+     * 把待发送的消息分批交给传输层 (只在发送线程上执行)
+     */
+    public void flush() {
+        while (!pending.isEmpty()) {
+            long now = System.currentTimeMillis();
+            List<InvalidationMessage> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+            for (Iterator<PendingKey> it = pending.keySet().iterator(); it.hasNext() && batch.size() < maxBatchSize; ) {
+                PendingKey key = it.next();
+                // 取出之后再合并进来的新值会成为新的条目，留到下一批
+                Long value = pending.remove(key);
+                if (value == null || (key.type() == Type.TOKEN_REVOKED && value <= now)) {
+                    continue; // 已经过期的令牌不用再通知
+                }
+                batch.add(new InvalidationMessage(key.type(), key.key(), value));
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transport.publish(writer.writeValueAsBytes(new Batch(nodeId, batch)));
+                sent.add(batch.size());
+            } catch (IOException | RuntimeException e) {
+                sendFailures.increment();
+                log.warn("Failed to publish {} invalidation messages, will retry: {}", batch.size(), e.toString());
+                for (InvalidationMessage message : batch) {
+                    pending.merge(new PendingKey(message.type(), message.key()), message.value(), Math::max);
+                }
+                return;
+            }
+        }
+    }
+
+    // --- 其他节点的修改 -> 本地事件 ---
+
+    @Override
+    public void onMessage(byte[] payload) {
+        Batch batch;
+        try {
+            batch = reader.readValue(payload);
+        } catch (IOException e) {
+            malformed.increment();
+            log.warn("Ignoring malformed invalidation batch: {}", e.toString());
+            return;
+        }
+        if (nodeId.equals(batch.origin()) || batch.messages() == null) {
+            return; // 自己发的，本地早就处理过了
+        }
+        received.add(batch.messages().size());
+        for (InvalidationMessage message : batch.messages()) {
+            switch (message.type()) {
+                case USER_CHANGED -> eventPublisher.publishEvent(
+                        new UserChangedEvent(message.key(), message.value(), true));
+                case TOKEN_REVOKED -> eventPublisher.publishEvent(
+                        new TokenRevokedEvent(message.key(), message.value(), true));
+                case RESYNC_REQUESTED -> eventPublisher.publishEvent(new InvalidationResyncRequestedEvent());
+            }
+        }
+    }
+
+    @Override
+    public void onResubscribed() {
+        gaps.increment();
+        log.warn("Invalidation subscription was interrupted, dropping cached users and asking peers to resync");
+        eventPublisher.publishEvent(new InvalidationGapEvent());
+        enqueue(Type.RESYNC_REQUESTED, nodeId, System.currentTimeMillis());
+    }
+
+    // --- 生命周期：应用上下文刷新完成后才开始收发 (此时所有 @EventListener 都已注册) ---
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        transport.subscribe(this);
+        sender.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Invalidation bus started (node {})", nodeId);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        sender.shutdown();
+        try {
+            sender.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (enabled) {
+            flush(); // 停止前把剩下的消息发出去
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getQueuedCount() {
+        return queued.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getSendFailureCount() {
+        return sendFailures.sum();
+    }
+
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    public long getGapCount() {
+        return gaps.sum();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
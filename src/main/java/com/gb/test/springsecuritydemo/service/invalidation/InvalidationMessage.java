@@ -0,0 +1,25 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import java.util.List;
+
+/**
+ * 节点之间传递的一条失效消息
+ * @param type  消息类型
+ * @param key   USER_CHANGED: 用户名；TOKEN_REVOKED: 令牌的 jti；RESYNC_REQUESTED: 请求方的节点 id
+ * @param value USER_CHANGED: 修改后的令牌版本号；TOKEN_REVOKED: 令牌的过期时间 (毫秒)；
+ *              RESYNC_REQUESTED: 请求的时间 (毫秒)
+ *              所有消息的值都只增不减，同一个 key 合并时取最大值
+ */
+public record InvalidationMessage(Type type, String key, long value) {
+
+    public enum Type {
+        USER_CHANGED, TOKEN_REVOKED, RESYNC_REQUESTED
+    }
+
+    /**
+     * 一次发送的一批消息 (JSON 编码后交给 InvalidationTransport)
+     * @param origin 发送节点的 id，节点收到自己发的批次时直接忽略
+     */
+    public record Batch(String origin, List<InvalidationMessage> messages) {
+    }
+}
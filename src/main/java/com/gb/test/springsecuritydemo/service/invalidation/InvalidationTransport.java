@@ -0,0 +1,35 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import java.io.IOException;
+
+/**
+ * InvalidationBus 在节点之间传递消息的方式 (见 InvalidationBusConfig)
+ * 只负责把一段字节广播给同一个频道的所有订阅者 (包括自己)，编码、合并、去掉自己发的消息都由 InvalidationBus 处理
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    interface Listener {
+
+        void onMessage(byte[] payload);
+
+        /**
+         * 订阅中断过、现在又恢复了：中间其他节点发的消息可能已经丢失
+         */
+        default void onResubscribed() {
+        }
+    }
+
+    /**
+     * 发布一条消息 (只由 InvalidationBus 的发送线程调用)
+     */
+    void publish(byte[] payload) throws IOException;
+
+    /**
+     * 开始接收消息；回调发生在传输层自己的线程上
+     */
+    void subscribe(Listener listener);
+
+    @Override
+    default void close() {
+    }
+}
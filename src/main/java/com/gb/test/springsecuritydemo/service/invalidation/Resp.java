@@ -0,0 +1,104 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RESP (Redis 协议) 的最小编解码，只覆盖发布 / 订阅用到的部分
+ * 读出来的值：简单字符串 -> String，整数 -> Long，批量字符串 -> byte[]，数组 -> List，错误 -> IOException
+ */
+final class Resp {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final int MAX_BULK_LENGTH = 64 * 1024 * 1024;
+
+    private Resp() {
+    }
+
+    /**
+     * 写一条命令 (批量字符串组成的数组) 并刷新
+     */
+    static void writeCommand(OutputStream out, byte[]... args) throws IOException {
+        out.write('*');
+        out.write(ascii(args.length));
+        out.write(CRLF);
+        for (byte[] arg : args) {
+            out.write('$');
+            out.write(ascii(arg.length));
+            out.write(CRLF);
+            out.write(arg);
+            out.write(CRLF);
+        }
+        out.flush();
+    }
+
+    static Object read(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            throw new EOFException("Connection closed");
+        }
+        return switch (type) {
+            case '+' -> readLine(in);
+            case '-' -> throw new IOException("RESP error: " + readLine(in));
+            case ':' -> Long.parseLong(readLine(in));
+            case '$' -> readBulk(in);
+            case '*' -> readArray(in);
+            default -> throw new IOException("Unexpected RESP type byte: " + type);
+        };
+    }
+
+    private static byte[] readBulk(InputStream in) throws IOException {
+        int length = Integer.parseInt(readLine(in));
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_BULK_LENGTH) {
+            throw new IOException("RESP bulk string too large: " + length);
+        }
+        byte[] data = in.readNBytes(length);
+        if (data.length < length || in.read() != '\r' || in.read() != '\n') {
+            throw new EOFException("Truncated RESP bulk string");
+        }
+        return data;
+    }
+
+    private static List<Object> readArray(InputStream in) throws IOException {
+        int count = Integer.parseInt(readLine(in));
+        if (count < 0) {
+            return null;
+        }
+        List<Object> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(read(in));
+        }
+        return items;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException("Connection closed");
+            }
+            line.append((char) b);
+        }
+        if (in.read() != '\n') {
+            throw new IOException("Malformed RESP line");
+        }
+        return line.toString();
+    }
+
+    static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,217 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 通过 Redis (或任何兼容 RESP 协议的服务) 的 PUBLISH / SUBSCRIBE 在节点之间广播
+ * <p>
+ * 1. 发布和订阅各用一条连接：订阅状态下的连接不能再执行其他命令
+ * 2. 发布连接懒建立，出错就关掉，下次发布时重连 (InvalidationBus 会把没发出去的消息留到下一轮)
+ * 3. 订阅线程断开后按指数退避重连；重新订阅成功时回调 onResubscribed，
+ *    因为 pub/sub 不保存离线消息，断开期间的失效消息已经丢了
+ * 4. 订阅连接的读超时是 ping-interval：这段时间内什么都没收到就发一个 PING，
+ *    再过一个 ping-interval 仍然没有任何回应就当作断开 (半开的 TCP 连接不会报错，只会一直读不到数据)
+ * <p>
+ * 不依赖 Redis 客户端库，只实现了这里需要的几条命令 (AUTH / PING / PUBLISH / SUBSCRIBE)
+ */
+public class RespInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(RespInvalidationTransport.class);
+
+    private static final byte[] AUTH = Resp.utf8("AUTH");
+    private static final byte[] PING = Resp.utf8("PING");
+    private static final byte[] PUBLISH = Resp.utf8("PUBLISH");
+    private static final byte[] SUBSCRIBE = Resp.utf8("SUBSCRIBE");
+    private static final byte[] MESSAGE = Resp.utf8("message");
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 100;
+
+    private final String host;
+    private final int port;
+    private final String password;
+    private final byte[] channel;
+    private final int timeoutMillis;
+    private final long maxReconnectDelayMillis;
+    private final int pingIntervalMillis;
+
+    private Connection publisher; // 只在 synchronized 方法里访问
+    private volatile Connection subscriber;
+    private volatile boolean running = true;
+
+    public RespInvalidationTransport(String host, int port, String password, String channel,
+                                     Duration timeout, Duration maxReconnectDelay, Duration pingInterval) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.channel = Resp.utf8(channel);
+        this.timeoutMillis = (int) timeout.toMillis();
+        this.maxReconnectDelayMillis = Math.max(INITIAL_RECONNECT_DELAY_MILLIS, maxReconnectDelay.toMillis());
+        this.pingIntervalMillis = (int) Math.max(1, pingInterval.toMillis());
+    }
+
+    private static final class Connection implements Closeable {
+
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        Object call(byte[]... args) throws IOException {
+            Resp.writeCommand(out, args);
+            return Resp.read(in);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 关闭时的错误没有意义
+            }
+        }
+    }
+
+    private Connection connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            Connection connection = new Connection(socket);
+            if (password != null && !password.isEmpty()) {
+                socket.setSoTimeout(timeoutMillis);
+                connection.call(AUTH, Resp.utf8(password));
+            }
+            return connection;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void publish(byte[] payload) throws IOException {
+        if (!running) {
+            throw new IOException("Transport closed");
+        }
+        try {
+            if (publisher == null) {
+                publisher = connect();
+                publisher.socket.setSoTimeout(timeoutMillis);
+            }
+            publisher.call(PUBLISH, channel, payload);
+        } catch (IOException e) {
+            if (publisher != null) {
+                publisher.close();
+                publisher = null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        Thread thread = new Thread(() -> runSubscriber(listener), "security-invalidation-subscriber");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runSubscriber(Listener listener) {
+        long reconnectDelay = INITIAL_RECONNECT_DELAY_MILLIS;
+        boolean missed = false; // 是否有过订阅不上的时间段
+        while (running) {
+            try (Connection connection = connect()) {
+                subscriber = connection;
+                connection.socket.setSoTimeout(timeoutMillis);
+                Resp.writeCommand(connection.out, SUBSCRIBE, channel);
+                Resp.read(connection.in); // ["subscribe", channel, 1]
+                connection.socket.setSoTimeout(pingIntervalMillis);
+                log.info("Subscribed to invalidation channel on {}:{}", host, port);
+                if (missed) {
+                    listener.onResubscribed();
+                }
+                reconnectDelay = INITIAL_RECONNECT_DELAY_MILLIS;
+                boolean awaitingPong = false;
+                while (running) {
+                    // 订阅状态下只会收到 ["message", channel, payload] 和 PING 的回应 ["pong", ""]
+                    Object push;
+                    try {
+                        push = Resp.read(connection.in);
+                    } catch (SocketTimeoutException e) {
+                        // 超时几乎总是发生在两条推送之间，这时什么都没读到，可以继续读；
+                        // 万一发生在一条推送中间，下一次读会解析出错，按断开重连处理
+                        if (awaitingPong) {
+                            throw new IOException("No reply to PING within " + pingIntervalMillis + " ms");
+                        }
+                        Resp.writeCommand(connection.out, PING);
+                        awaitingPong = true;
+                        continue;
+                    }
+                    awaitingPong = false; // 收到任何数据都说明连接是通的
+                    if (push instanceof List<?> message && message.size() == 3
+                            && message.get(0) instanceof byte[] kind && Arrays.equals(kind, MESSAGE)
+                            && message.get(2) instanceof byte[] payload) {
+                        deliver(listener, payload);
+                    }
+                }
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+                missed = true;
+                log.warn("Invalidation subscriber lost {}:{}, retrying in {} ms: {}", host, port, reconnectDelay, e.toString());
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                reconnectDelay = Math.min(reconnectDelay * 2, maxReconnectDelayMillis);
+            } finally {
+                subscriber = null;
+            }
+        }
+    }
+
+    private static void deliver(Listener listener, byte[] payload) {
+        try {
+            listener.onMessage(payload);
+        } catch (RuntimeException e) {
+            // 处理出错不能让订阅线程退出
+            log.warn("Failed to handle invalidation message", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Connection connection = subscriber;
+        if (connection != null) {
+            connection.close(); // 让阻塞在读上的订阅线程退出
+        }
+        synchronized (this) {
+            if (publisher != null) {
+                publisher.close();
+                publisher = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 权限 (角色) 名 -> 位的全局映射，用来把一个用户的权限集合压缩成一个 long
+ * <p>
+ * 映射只增不减：同一个权限名在进程里永远对应同一位，所以提前算好的掩码不会过期。
+ * 最多 64 个不同的权限名；超出的权限名没有对应的位 (bitOf 返回 -1)，
+ * 用到它们的规则必须退回到逐个比较权限名 (见 CompiledPreAuthorizeAuthorizationManager)
+ */
+public final class AuthorityBits {
+
+    public static final int MAX_BITS = Long.SIZE;
+
+    private static final ConcurrentHashMap<String, Integer> BITS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    private AuthorityBits() {
+    }
+
+    /**
+     * @return 权限名对应的位 (0 ~ 63)，第一次见到时分配；位已经用完时返回 -1
+     */
+    public static int bitOf(String authority) {
+        Integer bit = BITS.get(authority);
+        if (bit != null) {
+            return bit;
+        }
+        bit = BITS.computeIfAbsent(authority, key -> {
+            int next = NEXT.getAndIncrement();
+            return next < MAX_BITS ? next : null; // 返回 null 不会放进 map
+        });
+        return bit == null ? -1 : bit;
+    }
+
+    /**
+     * 把一组权限转换成掩码；没有位的权限被忽略
+     */
+    public static long maskOf(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0L;
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            if (name != null) {
+                int bit = bitOf(name);
+                if (bit >= 0) {
+                    mask |= 1L << bit;
+                }
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,39 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * 只要已存储哈希的 cost 和当前配置的 strength 不一致，就要求升级
+ * (BCryptPasswordEncoder 自带的 upgradeEncoding 只在 cost 更低时才返回 true，
+ *  调低 strength 以换取登录吞吐量时不会生效)
+ */
+public class CostAwareBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private final int strength;
+
+    public CostAwareBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // BCrypt 哈希格式: $2a$10$xxxxxxxx... ，第二段就是 cost
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return false;
+        }
+        int costStart = encodedPassword.indexOf('$', 1) + 1;
+        if (costStart <= 0 || costStart + 2 > encodedPassword.length()) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword, costStart, costStart + 2, 10) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+}
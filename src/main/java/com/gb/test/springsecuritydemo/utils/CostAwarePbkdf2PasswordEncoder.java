@@ -0,0 +1,80 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/**
+ * 把迭代次数写进哈希里的 PBKDF2 (PBKDF2WithHmacSHA256)
+ * <p>
+ * Pbkdf2PasswordEncoder 的哈希里只有 salt + 摘要，校验时用的是编码器自己的迭代次数；
+ * 迭代次数由启动时校准得出或者被改了配置之后，之前存下的哈希就全都对不上了。这里：
+ * 1. 新哈希的格式为 "迭代次数$salt+摘要(hex)"，校验时按哈希里记录的次数计算
+ * 2. 迭代次数和当前配置不一致的哈希 upgradeEncoding 返回 true，下次登录成功时重新计算
+ *    (Pbkdf2PasswordEncoder 自带的 upgradeEncoding 永远返回 false)
+ * 3. 没有记录迭代次数的旧哈希按 legacyIterations (security.password.pbkdf2-iterations) 校验，并要求升级
+ */
+public class CostAwarePbkdf2PasswordEncoder implements PasswordEncoder {
+
+    // 数据库里的哈希是可信的，但还是给个上限，避免一条坏数据让一次登录算上几分钟
+    private static final int MAX_ITERATIONS = 100_000_000;
+
+    private final int iterations;
+    private final int legacyIterations;
+    private final Pbkdf2PasswordEncoder current;
+
+    public CostAwarePbkdf2PasswordEncoder(int iterations, int legacyIterations) {
+        this.iterations = iterations;
+        this.legacyIterations = legacyIterations;
+        this.current = pbkdf2(iterations);
+    }
+
+    public static Pbkdf2PasswordEncoder pbkdf2(int iterations) {
+        return new Pbkdf2PasswordEncoder("", 16, iterations,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return iterations + "$" + current.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        int separator = encodedPassword.indexOf('$');
+        if (separator < 0) {
+            return pbkdf2(legacyIterations).matches(rawPassword, encodedPassword);
+        }
+        int stored = storedIterations(encodedPassword, separator);
+        if (stored <= 0) {
+            return false;
+        }
+        Pbkdf2PasswordEncoder encoder = stored == iterations ? current : pbkdf2(stored);
+        return encoder.matches(rawPassword, encodedPassword.substring(separator + 1));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        int separator = encodedPassword.indexOf('$');
+        return separator < 0 || storedIterations(encodedPassword, separator) != iterations;
+    }
+
+    // 解析失败或超出范围时返回 -1
+    private static int storedIterations(String encodedPassword, int separator) {
+        try {
+            int stored = Integer.parseInt(encodedPassword, 0, separator, 10);
+            return stored > 0 && stored <= MAX_ITERATIONS ? stored : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+}
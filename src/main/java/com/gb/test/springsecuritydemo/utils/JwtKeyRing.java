@@ -0,0 +1,280 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.KeyPairBuilderSupplier;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JWT 的签名密钥和验证密钥 (按 kid 区分)
+ * <p>
+ * - 签名：只用当前激活的一把密钥 (active kid)，令牌头部带上 kid
+ * - 验证：启动时把所有验证密钥解析好放进不可变的 kid -> Key 映射，验签时只做一次 Map 查找
+ * - 非对称算法 (RS256 / ES256 / EdDSA) 的公钥通过 JWKS 发布，下游服务可以自己验签
+ * - 没有 kid 的旧令牌 (HS256) 用 legacy 密钥验证，迁移期间不会把已登录的用户踢下线
+ * <p>
+ * 密钥目录的约定：&lt;kid&gt;.key.pem (PKCS#8 私钥) 和 &lt;kid&gt;.pub.pem (X.509 公钥)；
+ * 只有公钥的 kid 只用于验证 (轮换时先发布的新公钥，或刚退役的旧公钥)
+ */
+public class JwtKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final String PRIVATE_SUFFIX = ".key.pem";
+    private static final String PUBLIC_SUFFIX = ".pub.pem";
+
+    private final String activeKeyId;
+    private final Key signingKey;
+    private final SecureDigestAlgorithm<?, ?> signatureAlgorithm;
+    private final Map<String, Key> verificationKeys;
+    private final Key legacyKey;
+    private final String jwksJson;
+    private final Locator<Key> keyLocator;
+
+    private JwtKeyRing(String activeKeyId, Key signingKey, SecureDigestAlgorithm<?, ?> signatureAlgorithm,
+                       Map<String, PublicKey> publicKeys, Key legacyKey) {
+        this.activeKeyId = activeKeyId;
+        this.signingKey = signingKey;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.legacyKey = legacyKey;
+        this.verificationKeys = Map.copyOf(publicKeys);
+        this.jwksJson = buildJwks(publicKeys);
+        this.keyLocator = new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                String kid = header.getKeyId();
+                Key key = kid == null ? JwtKeyRing.this.legacyKey : verificationKeys.get(kid);
+                if (key == null) {
+                    throw new SignatureException("No verification key for kid: " + kid);
+                }
+                return key;
+            }
+        };
+    }
+
+    /**
+     * 只用一个 HS256 密钥签名和验证（令牌不带 kid，没有可以发布的公钥）
+     */
+    public static JwtKeyRing hmac(String secret) {
+        Key key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return new JwtKeyRing(null, key, Jwts.SIG.HS256, Map.of(), key);
+    }
+
+    /**
+     * 在内存中生成一对新的密钥（不落盘，重启后之前签发的令牌全部失效，适合测试和基准）
+     */
+    public static JwtKeyRing generate(String algorithm, String keyId) {
+        KeyPair keyPair = keyPairBuilder(algorithm).keyPair().build();
+        return new JwtKeyRing(keyId, keyPair.getPrivate(), signatureAlgorithm(algorithm),
+                Map.of(keyId, keyPair.getPublic()), null);
+    }
+
+    /**
+     * 从密钥目录加载所有公钥和当前激活的私钥
+     * @param algorithm       RS256 / ES256 / EdDSA
+     * @param activeKeyId     用于签名的 kid
+     * @param keysDir         密钥目录
+     * @param generateMissing 激活的私钥不存在时是否自动生成并写入目录
+     * @param legacySecret    验证不带 kid 的旧 HS256 令牌用的密钥，为空则不再接受旧令牌
+     */
+    public static JwtKeyRing load(String algorithm, String activeKeyId, Path keysDir,
+                                  boolean generateMissing, String legacySecret) {
+        SecureDigestAlgorithm<?, ?> signatureAlgorithm = signatureAlgorithm(algorithm);
+        try {
+            Path privateFile = keysDir.resolve(activeKeyId + PRIVATE_SUFFIX);
+            if (!Files.exists(privateFile)) {
+                if (!generateMissing) {
+                    throw new IllegalStateException("Signing key not found: " + privateFile);
+                }
+                generateKeyFiles(algorithm, activeKeyId, keysDir);
+            }
+
+            // 1. 目录里的所有公钥都用于验证
+            Map<String, PublicKey> publicKeys = new TreeMap<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(keysDir, "*" + PUBLIC_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    publicKeys.put(name.substring(0, name.length() - PUBLIC_SUFFIX.length()), readPublicKey(file));
+                }
+            }
+            if (!publicKeys.containsKey(activeKeyId)) {
+                throw new IllegalStateException("Public key not found for active kid: " + activeKeyId);
+            }
+
+            // 2. 只有激活的私钥用于签名
+            PrivateKey signingKey = readPrivateKey(privateFile, keyFactoryAlgorithm(algorithm));
+
+            Key legacyKey = legacySecret == null || legacySecret.isBlank()
+                    ? null : Keys.hmacShaKeyFor(legacySecret.getBytes(StandardCharsets.UTF_8));
+            log.info("Loaded JWT keys {} from {}, signing with {} ({})",
+                    publicKeys.keySet(), keysDir, activeKeyId, algorithm);
+            return new JwtKeyRing(activeKeyId, signingKey, signatureAlgorithm, publicKeys, legacyKey);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to load JWT keys from " + keysDir, e);
+        }
+    }
+
+    /**
+     * 用当前激活的密钥签名，并在头部写入 kid
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public JwtBuilder sign(JwtBuilder builder) {
+        if (activeKeyId != null) {
+            builder.header().keyId(activeKeyId);
+        }
+        return builder.signWith(signingKey, (SecureDigestAlgorithm) signatureAlgorithm);
+    }
+
+    /**
+     * 按令牌头部的 kid 选择验证密钥（给 JwtParserBuilder.keyLocator 用）
+     */
+    public Locator<Key> keyLocator() {
+        return keyLocator;
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * 所有公钥的 JWKS 文档 ({"keys":[...]})，启动时生成一次
+     */
+    public String getJwksJson() {
+        return jwksJson;
+    }
+
+    // --- 算法 ---
+
+    private static SecureDigestAlgorithm<?, ?> signatureAlgorithm(String algorithm) {
+        return switch (algorithm) {
+            case "HS256" -> Jwts.SIG.HS256;
+            case "RS256" -> Jwts.SIG.RS256;
+            case "ES256" -> Jwts.SIG.ES256;
+            case "EdDSA" -> Jwts.SIG.EdDSA;
+            default -> throw new IllegalStateException("Unsupported jwt.algorithm: " + algorithm);
+        };
+    }
+
+    private static KeyPairBuilderSupplier keyPairBuilder(String algorithm) {
+        return switch (algorithm) {
+            case "RS256" -> Jwts.SIG.RS256;
+            case "ES256" -> Jwts.SIG.ES256;
+            case "EdDSA" -> Jwks.CRV.Ed25519; // 明确使用 Ed25519
+            default -> throw new IllegalStateException("Not an asymmetric jwt.algorithm: " + algorithm);
+        };
+    }
+
+    private static String keyFactoryAlgorithm(String algorithm) {
+        return switch (algorithm) {
+            case "RS256" -> "RSA";
+            case "ES256" -> "EC";
+            case "EdDSA" -> "EdDSA";
+            default -> throw new IllegalStateException("Not an asymmetric jwt.algorithm: " + algorithm);
+        };
+    }
+
+    private static String jwsAlgorithm(PublicKey key) {
+        return switch (key.getAlgorithm()) {
+            case "RSA" -> "RS256";
+            case "EC" -> "ES256";
+            default -> "EdDSA";
+        };
+    }
+
+    // --- JWKS ---
+
+    private static String buildJwks(Map<String, PublicKey> publicKeys) {
+        List<String> jwks = new ArrayList<>(publicKeys.size());
+        for (Map.Entry<String, PublicKey> entry : publicKeys.entrySet()) {
+            PublicJwk<?> jwk = Jwks.builder()
+                    .key(entry.getValue())
+                    .id(entry.getKey())
+                    .algorithm(jwsAlgorithm(entry.getValue()))
+                    .publicKeyUse("sig")
+                    .build();
+            jwks.add(Jwks.json(jwk));
+        }
+        return "{\"keys\":[" + String.join(",", jwks) + "]}";
+    }
+
+    // --- PEM 文件 ---
+
+    private static void generateKeyFiles(String algorithm, String keyId, Path keysDir) throws IOException {
+        KeyPair keyPair = keyPairBuilder(algorithm).keyPair().build();
+        Files.createDirectories(keysDir);
+        Path privateFile = keysDir.resolve(keyId + PRIVATE_SUFFIX);
+        writePem(privateFile, "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(privateFile, PosixFilePermissions.fromString("rw-------"));
+        }
+        writePem(keysDir.resolve(keyId + PUBLIC_SUFFIX), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+        log.warn("Generated new {} JWT signing key {} in {}", algorithm, keyId, keysDir);
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws IOException {
+        String body = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der);
+        Files.writeString(file, "-----BEGIN " + type + "-----\n" + body + "\n-----END " + type + "-----\n",
+                StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] readPem(Path file) throws IOException {
+        String pem = Files.readString(file, StandardCharsets.US_ASCII);
+        StringBuilder base64 = new StringBuilder(pem.length());
+        for (String line : pem.split("\\R")) {
+            if (!line.startsWith("-----")) {
+                base64.append(line.trim());
+            }
+        }
+        return Base64.getDecoder().decode(base64.toString());
+    }
+
+    private static PrivateKey readPrivateKey(Path file, String keyAlgorithm) throws IOException, GeneralSecurityException {
+        return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(readPem(file)));
+    }
+
+    /**
+     * 公钥的类型从编码本身推断，目录里可以同时存在不同算法的公钥（切换算法时的过渡期）
+     */
+    private static PublicKey readPublicKey(Path file) throws IOException, GeneralSecurityException {
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(readPem(file));
+        GeneralSecurityException last = null;
+        for (String keyAlgorithm : new String[]{"RSA", "EC", "EdDSA"}) {
+            try {
+                return KeyFactory.getInstance(keyAlgorithm).generatePublic(spec);
+            } catch (GeneralSecurityException e) {
+                last = e;
+            }
+        }
+        throw new GeneralSecurityException("Unsupported public key in " + file, last);
+    }
+}
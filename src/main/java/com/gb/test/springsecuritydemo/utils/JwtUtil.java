@@ -1,30 +1,71 @@
 package com.gb.test.springsecuritydemo.utils;
 
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import com.gb.test.springsecuritydemo.model.JwtClaims;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
-    // 1. 定义一个绝对保密的密钥 (Secret Key)
-    // !! 警告：在生产环境中，绝不能硬编码！必须从配置文件 (application.properties) 读取
-    // 比如： @Value("${jwt.secret}") private String secretString;
-    // 这里的密钥是一个示例，它至少需要256位（32字节）长
-    private final String SECRET_STRING = "MySuperSecureSecretKeyForDemoApp123456";
+    // 1. 默认的 HS256 密钥，只在没有配置 jwt.secret 时 (比如基准测试里直接 new JwtUtil()) 使用
+    // 它至少需要256位（32字节）长
+    public static final String DEFAULT_SECRET = "MySuperSecureSecretKeyForDemoApp123456";
+
+    // 2. 签名 / 验证用的密钥 (HS256，或者按 kid 区分的 RS256 / ES256 / EdDSA 密钥)
+    private final JwtKeyRing keyRing;
+
+    // 3. 令牌的过期时间 (jwt.expiration，默认 1 小时)
+    // 配合刷新令牌可以缩短到几分钟，吊销列表里的条目也会相应地更快过期
+    private final long expirationMillis;
+
+    // 自定义 claim 的名字：角色列表、令牌版本号
+    public static final String ROLES_CLAIM = "roles";
+    public static final String VERSION_CLAIM = "ver";
+
+    // 4. 预先构建好的解析器
+    // JwtParser 是不可变且线程安全的，只需构建一次，所有请求共享，避免每次解析都重新 build
+    // 验证密钥按令牌头部的 kid 从 keyRing 里预先解析好的 Map 中取
+    private final JwtParser jwtParser;
+
+    @Autowired
+    public JwtUtil(JwtKeyRing keyRing, @Value("${jwt.expiration:1h}") Duration expiration) {
+        this.keyRing = keyRing;
+        this.expirationMillis = expiration.toMillis();
+        this.jwtParser = Jwts.parser()
+                .keyLocator(keyRing.keyLocator())
+                .build();
+    }
+
+    public JwtUtil(JwtKeyRing keyRing) {
+        this(keyRing, Duration.ofHours(1));
+    }
 
-    // 2. 将字符串密钥转换为 SecretKey 对象
-    private final SecretKey SECRET_KEY = Keys.hmacShaKeyFor(SECRET_STRING.getBytes());
+    public JwtUtil() {
+        this(JwtKeyRing.hmac(DEFAULT_SECRET));
+    }
 
-    // 3. 定义令牌的过期时间（例如：1小时）
-    private final long EXPIRATION_TIME = 1000 * 60 * 60; // 1小时 (毫秒)
+    /**
+     * 访问令牌的有效期 (秒)
+     */
+    public long getExpirationSeconds() {
+        return expirationMillis / 1000;
+    }
 
     /**
      * A. 从令牌中提取用户名 (Subject)
@@ -41,14 +82,7 @@ public class JwtUtil {
     }
 
     /**
-     * C. 检查令牌是否已过期
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * D. 核心：生成令牌
+     * C. 核心：生成令牌
      * (这个方法会在用户登录成功时被调用)
      * @param username 用户的身份标识
      * @return JWT 字符串
@@ -61,30 +95,78 @@ public class JwtUtil {
         return createToken(claims, username);
     }
 
+    /**
+     * D2. 生成携带角色和令牌版本号的令牌
+     * (登录成功时调用；无状态模式下过滤器只凭这些 claims 就能构建认证信息，不用查数据库)
+     * @param userDetails 认证成功后的用户信息
+     * @return JWT 字符串
+     */
+    public String generateToken(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        List<String> roles = new ArrayList<>();
+        for (GrantedAuthority authority : userDetails.getAuthorities()) {
+            roles.add(authority.getAuthority());
+        }
+        claims.put(ROLES_CLAIM, roles);
+        claims.put(VERSION_CLAIM, userDetails instanceof AppUserDetails app ? app.getTokenVersion() : 0L);
+
+        return createToken(claims, userDetails.getUsername());
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         Date now = new Date(System.currentTimeMillis());
-        Date expirationDate = new Date(now.getTime() + EXPIRATION_TIME);
-
-        return Jwts.builder()
-                .claims(claims)       // 设置自定义 claims
-                .subject(subject)     // 设置主题（用户名）
-                .issuedAt(now)        // 设置签发时间
-                .expiration(expirationDate) // 设置过期时间
-                .signWith(SECRET_KEY, Jwts.SIG.HS256) // 使用 HS256 算法和密钥签名
+        Date expirationDate = new Date(now.getTime() + expirationMillis);
+
+        return keyRing.sign(Jwts.builder()   // 使用当前激活的密钥签名，头部带上 kid
+                        .claims(claims)       // 设置自定义 claims
+                        .subject(subject)     // 设置主题（用户名）
+                        .id(UUID.randomUUID().toString()) // 设置令牌 ID (jti)，吊销令牌时使用
+                        .issuedAt(now)        // 设置签发时间
+                        .expiration(expirationDate)) // 设置过期时间
                 .compact();
     }
 
     /**
-     * E. 核心：验证令牌是否有效
+     * D. 核心：验证令牌是否有效
      * (这个方法会在每次收到请求时被调用)
      * @param token 令牌
      * @param username 从 UserDetails 中获取的用户名
      * @return 是否有效
      */
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        // 检查用户名是否一致，并且令牌未过期
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        // 只解析（验签）一次，再用同一份结果检查用户名和过期时间
+        final JwtClaims claims = parseToken(token);
+        return (claims.username().equals(username) && !claims.isExpired(System.currentTimeMillis()));
+    }
+
+    /**
+     * E. 核心：一次性解析并验证令牌
+     * (过滤器在每次请求时调用，签名只校验一次)
+     * @param token 令牌
+     * @return 已验证的、不可变的令牌内容
+     * @throws io.jsonwebtoken.JwtException 签名错误、格式错误或已过期
+     */
+    public JwtClaims parseToken(String token) {
+        final Claims claims = extractAllClaims(token);
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.getId(),
+                extractRoles(claims),
+                claims.get(VERSION_CLAIM) instanceof Number version ? version.longValue() : 0L,
+                claims.getIssuedAt() == null ? 0L : claims.getIssuedAt().getTime(),
+                claims.getExpiration().getTime()
+        );
+    }
+
+    private static List<String> extractRoles(Claims claims) {
+        if (!(claims.get(ROLES_CLAIM) instanceof List<?> values)) {
+            return null;
+        }
+        List<String> roles = new ArrayList<>(values.size());
+        for (Object value : values) {
+            roles.add(String.valueOf(value));
+        }
+        return roles;
     }
 
     // --- 辅助方法 ---
@@ -102,11 +184,9 @@ public class JwtUtil {
      * (这是验证签名和解析 Payload 的地方)
      */
     private Claims extractAllClaims(String token) {
-        // Jwts.parser() 会自动使用我们提供的密钥来验证签名的合法性
+        // jwtParser 会按 kid 找到对应的密钥来验证签名的合法性
         // 如果签名不匹配、令牌过期、或格式错误，它会抛出异常
-        return Jwts.parser()
-                .verifyWith(SECRET_KEY)
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
@@ -0,0 +1,110 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 key 限流的令牌桶（GCRA 实现，无锁）
+ * <p>
+ * 每个桶只有一个 AtomicLong：理论到达时间 (TAT)。效果等同于容量为 capacity、
+ * 每 period 补满的令牌桶，但每次判断只需要一次 CAS，不需要锁，也不需要定时补充令牌
+ * <p>
+ * 内存控制：TAT 不晚于当前时间的桶已经 "补满"，和不存在没有区别，可以随时删除。
+ * sweepIdle() 定时删除这些空闲桶；key 的数量达到 maxKeys 时也会清理，但最多每 FULL_SWEEP_INTERVAL 一次
+ * (每个新 key 都扫一遍整张表，表满时攻击者每个请求都能换来一次 O(maxKeys) 的扫描)。
+ * 清理后仍然超出时新 key 直接被限流 (fail closed)：不能让攻击者先把表撑满，再对任意 key 无限制地尝试；
+ * 已有的桶也不淘汰，否则撑满表就等于重置了别人的桶
+ */
+public class KeyedRateLimiter {
+
+    private static final long FULL_SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final long emissionIntervalNanos; // 每个令牌的补充间隔
+    private final long burstToleranceNanos;   // 允许突发的时间窗口
+    private final int maxKeys;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong nextFullSweepNanos = new AtomicLong(Long.MIN_VALUE); // MIN_VALUE: 还没有清理过
+    private final LongAdder overflow = new LongAdder();
+
+    /**
+     * @param capacity     桶容量（允许的突发请求数）
+     * @param periodNanos  桶从空到满所需的时间
+     * @param maxKeys      最多同时跟踪多少个 key
+     */
+    public KeyedRateLimiter(int capacity, long periodNanos, int maxKeys) {
+        if (capacity <= 0 || periodNanos <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("capacity, period and maxKeys must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, periodNanos / capacity);
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 尝试消耗一个令牌
+     * @return 0 表示放行；大于 0 表示被限流，值为还需要等待的纳秒数
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                sweepWhenFull(nowNanos);
+                if (buckets.size() >= maxKeys) {
+                    overflow.increment();
+                    return emissionIntervalNanos; // 表满：新 key 按 "桶已用完" 处理
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+
+        while (true) {
+            long tat = bucket.get();
+            long start = Math.max(tat, nowNanos);
+            long waitNanos = start - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // 表满时的清理，最多每 FULL_SWEEP_INTERVAL 一次 (抢到 CAS 的线程执行)
+    private void sweepWhenFull(long nowNanos) {
+        long next = nextFullSweepNanos.get();
+        if ((next == Long.MIN_VALUE || nowNanos - next >= 0)
+                && nextFullSweepNanos.compareAndSet(next, nowNanos + FULL_SWEEP_INTERVAL_NANOS)) {
+            sweepIdle(nowNanos);
+        }
+    }
+
+    /**
+     * 删除所有已经补满的桶（同一时间只有一个线程在清理）
+     */
+    public void sweepIdle(long nowNanos) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.get() <= nowNanos);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * 因为 key 数量达到上限而被限流的请求数 (新 key 建不了桶)
+     */
+    public long getOverflowCount() {
+        return overflow.sum();
+    }
+}
@@ -0,0 +1,108 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界、无锁的多生产者 / 单消费者环形队列
+ * <p>
+ * 每个槽位带一个序号 (Vyukov 有界队列)：
+ * - 生产者 CAS 抢到写入位置后写元素，再把槽位序号 +1 发布出去；满了直接返回 false，从不阻塞
+ * - 唯一的消费者按顺序读，读完把槽位序号推进一圈，留给下一轮的生产者
+ * 生产者之间只在 tail 上竞争一次 CAS，不加锁、不分配对象
+ */
+public class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity 容量，会向上取整到 2 的幂
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 2 and 2^30: " + capacity);
+        }
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 放入一个元素 (任意线程)
+     * @return 队列已满时返回 false
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                // 槽位空闲，抢这个位置
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1); // 发布给消费者
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // 消费者还没读走上一轮的元素：已满
+            } else {
+                position = tail.get(); // 被别的生产者抢先了
+            }
+        }
+    }
+
+    /**
+     * 取出一个元素 (只能由唯一的消费者线程调用)
+     * @return 队列为空时返回 null
+     */
+    public E poll() {
+        long position = head.get();
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null; // 还没有被写入 (或者生产者写到一半)
+        }
+        E element = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, position + capacity); // 槽位留给下一轮
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    /**
+     * 最多取出 max 个元素放进 target (只能由消费者线程调用)
+     * @return 取出的个数
+     */
+    public int drainTo(List<? super E> target, int max) {
+        int drained = 0;
+        E element;
+        while (drained < max && (element = poll()) != null) {
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * 当前元素个数的近似值 (并发读写时可能略有偏差)
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,64 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * 启动时校准密码哈希成本：在当前硬件上实测，找出满足目标耗时的最大成本
+ * 成本越高越安全，但每次登录占用的 CPU 也越多，这里让两者的取舍变成一个配置项 (目标耗时)
+ */
+public final class PasswordCostCalibrator {
+
+    // 安全下限：再低就不值得用了
+    public static final int MIN_BCRYPT_STRENGTH = 10;
+    public static final int MAX_BCRYPT_STRENGTH = 16;
+    public static final int MIN_PBKDF2_ITERATIONS = 310_000;
+
+    private static final String SAMPLE_PASSWORD = "calibration-Password-123";
+    private static final int SAMPLES = 3;
+
+    private PasswordCostCalibrator() {
+    }
+
+    /**
+     * BCrypt：从下限开始逐级测量（每升一级耗时约翻倍），返回耗时不超过目标的最大 strength
+     */
+    public static int calibrateBCrypt(Duration targetLatency) {
+        int chosen = MIN_BCRYPT_STRENGTH;
+        for (int strength = MIN_BCRYPT_STRENGTH; strength <= MAX_BCRYPT_STRENGTH; strength++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+            long nanos = measure(() -> encoder.encode(SAMPLE_PASSWORD));
+            if (nanos > targetLatency.toNanos()) {
+                break;
+            }
+            chosen = strength;
+        }
+        return chosen;
+    }
+
+    /**
+     * PBKDF2：耗时和迭代次数成正比，测一次基准再线性换算
+     * 每次启动的结果都可能不同，所以哈希里要记录迭代次数 (见 CostAwarePbkdf2PasswordEncoder)
+     */
+    public static int calibratePbkdf2(Duration targetLatency) {
+        int baseIterations = 100_000;
+        Pbkdf2PasswordEncoder encoder = CostAwarePbkdf2PasswordEncoder.pbkdf2(baseIterations);
+        long nanos = Math.max(1, measure(() -> encoder.encode(SAMPLE_PASSWORD)));
+        long iterations = baseIterations * targetLatency.toNanos() / nanos;
+        return (int) Math.max(MIN_PBKDF2_ITERATIONS, Math.min(iterations, Integer.MAX_VALUE));
+    }
+
+    // 先预热一次，再取多次测量的最小值（排除 GC 等干扰）
+    private static long measure(Runnable hash) {
+        hash.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            hash.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,57 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import com.gb.test.springsecuritydemo.config.MyUserDetailsService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 响应式的 UserDetailsService，复用 MyUserDetailsService 的用户缓存
+ * <p>
+ * 1. 缓存命中 (绝大多数请求)：在调用线程 (事件循环) 上直接返回 Mono.just，不切换线程
+ * 2. 未命中：在 reactive-user-loader 线程池上调用 MyUserDetailsService (JPA 查询是阻塞的)，
+ *    同一个用户名的并发未命中仍然只查一次数据库 (ExpiringCache 的 single-flight)
+ * <p>
+ * 线程数 (security.reactive.user-loader-threads) 和数据库连接池一样大就够了，再多也只是排队等连接；
+ * 排队的任务超过 user-loader-queue 时直接失败，认证按 ERROR 处理，不会把事件循环拖住。
+ * 用户被修改后的缓存失效和 servlet 版本一样 (UserChangedEvent)，锁定状态也一样只看内存
+ */
+@Service
+@Profile("reactive")
+public class CachingReactiveUserDetailsService implements ReactiveUserDetailsService {
+
+    private final MyUserDetailsService userDetailsService;
+    private final Scheduler loaderScheduler;
+
+    public CachingReactiveUserDetailsService(MyUserDetailsService userDetailsService,
+                                             @Value("${security.reactive.user-loader-threads:10}") int loaderThreads,
+                                             @Value("${security.reactive.user-loader-queue:10000}") int loaderQueue) {
+        this.userDetailsService = userDetailsService;
+        this.loaderScheduler = Schedulers.newBoundedElastic(
+                Math.max(1, loaderThreads), Math.max(1, loaderQueue), "reactive-user-loader");
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        UserDetails cached = userDetailsService.loadCachedUser(username);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.fromCallable(() -> userDetailsService.loadUserByUsername(username))
+                .subscribeOn(loaderScheduler)
+                // ReactiveUserDetailsService 的约定：用户不存在时返回空
+                .onErrorResume(UsernameNotFoundException.class, e -> Mono.empty());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loaderScheduler.dispose();
+    }
+}
@@ -0,0 +1,30 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * AdminController 的响应式版本
+ * 响应式方法安全要求方法返回 Mono / Flux；批量导入是阻塞的流式处理，只在 servlet 版本提供
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/admin")
+public class ReactiveAdminController {
+
+    @GetMapping("/hello")
+    @PreAuthorize("hasRole('ADMIN')") // <-- 只有 "ROLE_ADMIN" 的用户能访问
+    public Mono<String> adminHello() {
+        return Mono.just("你好, [管理员]!");
+    }
+
+    @GetMapping("/hello-user")
+    @PreAuthorize("hasRole('USER')") // <-- 只有 "ROLE_USER" 的用户能访问
+    public Mono<String> userHello() {
+        return Mono.just("你好, [普通用户]!");
+    }
+}
@@ -0,0 +1,169 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import com.gb.test.springsecuritydemo.cache.JwtTokenCache;
+import com.gb.test.springsecuritydemo.cache.UserVersionRegistry;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics.AuthOutcome;
+import com.gb.test.springsecuritydemo.model.JwtClaims;
+import com.gb.test.springsecuritydemo.service.TokenRevocationService;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JwtAuthenticationFilter 的响应式版本
+ * <p>
+ * 运行在 Netty 的事件循环线程上，整个过程不能阻塞：
+ * 1. 验签 / 解析走 JwtTokenCache (纯 CPU 计算，命中缓存时只是一次 Map 查询)
+ * 2. 吊销检查是内存操作；令牌版本号检查通常也只查内存，
+ *    用户第一次出现时要从数据库读一次版本号，这一步切到 boundedElastic 线程上做
+ * 3. 加载用户交给 ReactiveUserDetailsService：缓存命中时直接返回，未命中才切到专门的线程池查数据库
+ * 4. 认证结果写进 Reactor Context 交给后面的 AuthorizationWebFilter，不依赖 ThreadLocal
+ * <p>
+ * 不是 Spring Bean：由 ReactiveSecurityConfig.filterChain 创建，只挂在需要登录的过滤链上
+ */
+public class ReactiveJwtAuthenticationFilter implements WebFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveJwtAuthenticationFilter.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtTokenCache jwtTokenCache;
+    private final ReactiveUserDetailsService userDetailsService;
+    private final UserVersionRegistry userVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
+    private final SecurityMetrics securityMetrics;
+
+    // 无状态模式：直接用令牌里的角色构建认证信息，不加载用户
+    private final boolean statelessMode;
+
+    public ReactiveJwtAuthenticationFilter(JwtTokenCache jwtTokenCache,
+                                           ReactiveUserDetailsService userDetailsService,
+                                           UserVersionRegistry userVersionRegistry,
+                                           TokenRevocationService tokenRevocationService,
+                                           SecurityMetrics securityMetrics,
+                                           boolean statelessMode) {
+        this.jwtTokenCache = jwtTokenCache;
+        this.userDetailsService = userDetailsService;
+        this.userVersionRegistry = userVersionRegistry;
+        this.tokenRevocationService = tokenRevocationService;
+        this.securityMetrics = securityMetrics;
+        this.statelessMode = statelessMode;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        final String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            securityMetrics.outcome(AuthOutcome.MISSING_HEADER);
+            return chain.filter(exchange);
+        }
+
+        // 和 servlet 版本一样：认证失败时请求保持 "未认证"，由后面的授权决定是否返回 401
+        // (认证的错误在 authenticate 里就处理掉了，后续过滤器和控制器的错误不会被当成令牌错误)
+        return authenticate(authHeader.substring(BEARER_PREFIX.length()))
+                .map(ReactiveSecurityContextHolder::withAuthentication)
+                .defaultIfEmpty(Context.empty())
+                .flatMap(context -> chain.filter(exchange).contextWrite(context));
+    }
+
+    /**
+     * 解析令牌并构建认证信息
+     * @return 认证成功时发出认证信息，失败时为空 (结果已经计入指标)
+     */
+    private Mono<Authentication> authenticate(String jwt) {
+        final long startedAt = System.nanoTime();
+        final JwtClaims claims;
+        try {
+            claims = jwtTokenCache.parseToken(jwt);
+        } catch (ExpiredJwtException e) {
+            return reject(AuthOutcome.EXPIRED);
+        } catch (SignatureException e) {
+            return reject(AuthOutcome.BAD_SIGNATURE);
+        } catch (JwtException | IllegalArgumentException e) {
+            return reject(AuthOutcome.MALFORMED);
+        }
+        final long parsedAt = System.nanoTime();
+        securityMetrics.recordParse(parsedAt - startedAt);
+
+        final String username = claims.username();
+        if (username == null) {
+            return reject(AuthOutcome.MALFORMED);
+        }
+        if (tokenRevocationService.isRevoked(claims.tokenId())) {
+            return reject(AuthOutcome.REVOKED);
+        }
+
+        // 无状态模式（且令牌里带了角色）：只用令牌里的 claims，版本号在内存里时同步完成
+        if (statelessMode && claims.roles() != null) {
+            Boolean current = userVersionRegistry.peek(username, claims.userVersion());
+            if (current != null) {
+                return current ? Mono.just(succeed(authenticateFromClaims(claims), parsedAt))
+                        : reject(AuthOutcome.REVOKED);
+            }
+            return Mono.fromCallable(() -> userVersionRegistry.load(username, claims.userVersion()))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(loaded -> loaded ? Mono.just(succeed(authenticateFromClaims(claims), parsedAt))
+                            : reject(AuthOutcome.REVOKED))
+                    .onErrorResume(e -> {
+                        log.debug("JWT authentication failed", e);
+                        return reject(AuthOutcome.ERROR);
+                    });
+        }
+
+        // 普通模式：加载用户 (缓存命中时同步返回，不切换线程)
+        return userDetailsService.findByUsername(username)
+                .filter(userDetails -> username.equals(userDetails.getUsername()))
+                .map(userDetails -> succeed(UsernamePasswordAuthenticationToken.authenticated(
+                        userDetails, null, userDetails.getAuthorities()), parsedAt))
+                .switchIfEmpty(reject(AuthOutcome.USER_NOT_FOUND))
+                .onErrorResume(e -> {
+                    log.debug("JWT authentication failed", e);
+                    return reject(AuthOutcome.ERROR);
+                });
+    }
+
+    private Authentication succeed(Authentication authentication, long parsedAt) {
+        securityMetrics.recordUserLookup(System.nanoTime() - parsedAt);
+        securityMetrics.outcome(AuthOutcome.SUCCESS);
+        return authentication;
+    }
+
+    // 订阅时才计数 (作为 switchIfEmpty 的参数时不能提前执行)
+    private Mono<Authentication> reject(AuthOutcome outcome) {
+        return Mono.fromRunnable(() -> securityMetrics.outcome(outcome));
+    }
+
+    /**
+     * 无状态模式：只凭已验证的 claims 构建认证信息 (和 servlet 版本相同)
+     */
+    private static Authentication authenticateFromClaims(JwtClaims claims) {
+        List<GrantedAuthority> authorities = new ArrayList<>(claims.roles().size());
+        for (String role : claims.roles()) {
+            authorities.add(new SimpleGrantedAuthority(role));
+        }
+        UserDetails principal = new User(claims.username(), "", authorities);
+        return UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+    }
+}
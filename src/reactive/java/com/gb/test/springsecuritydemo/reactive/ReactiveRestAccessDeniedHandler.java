@@ -0,0 +1,48 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
+import com.gb.test.springsecuritydemo.enums.ResponseCodeEnum;
+import com.gb.test.springsecuritydemo.service.audit.AuditEvent;
+import com.gb.test.springsecuritydemo.service.audit.AuditService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.web.server.authorization.ServerAccessDeniedHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+
+//403处理器 (响应式版本，和 RestAccessDeniedHandler 输出相同的 ResultVO)
+@Component
+@Profile("reactive")
+public class ReactiveRestAccessDeniedHandler implements ServerAccessDeniedHandler {
+
+    private final SecurityMetrics securityMetrics;
+    private final ReactiveResultResponseWriter resultResponseWriter;
+    private final AuditService auditService;
+
+    public ReactiveRestAccessDeniedHandler(SecurityMetrics securityMetrics,
+                                           ReactiveResultResponseWriter resultResponseWriter,
+                                           AuditService auditService) {
+        this.securityMetrics = securityMetrics;
+        this.resultResponseWriter = resultResponseWriter;
+        this.auditService = auditService;
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, AccessDeniedException accessDeniedException) {
+        securityMetrics.forbidden();
+        // 当前用户从 Reactor Context 里取 (exchange.getPrincipal)，没有 SecurityContextHolder
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("")
+                .flatMap(username -> {
+                    auditService.publish(AuditEvent.of(AuditEvent.Type.FORBIDDEN,
+                            username.isEmpty() ? null : username, exchange.getRequest(), null));
+                    return resultResponseWriter.write(exchange.getResponse(), HttpStatus.FORBIDDEN,
+                            ResponseCodeEnum.FORBIDDEN.getCode(), accessDeniedException.getMessage());
+                });
+    }
+}
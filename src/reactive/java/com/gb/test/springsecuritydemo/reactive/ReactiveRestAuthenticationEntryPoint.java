@@ -0,0 +1,42 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
+import com.gb.test.springsecuritydemo.enums.ResponseCodeEnum;
+import com.gb.test.springsecuritydemo.service.audit.AuditEvent;
+import com.gb.test.springsecuritydemo.service.audit.AuditService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.ServerAuthenticationEntryPoint;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+//401处理器 (响应式版本，和 RestAuthenticationEntryPoint 输出相同的 ResultVO)
+@Component
+@Profile("reactive")
+public class ReactiveRestAuthenticationEntryPoint implements ServerAuthenticationEntryPoint {
+
+    private final SecurityMetrics securityMetrics;
+    private final ReactiveResultResponseWriter resultResponseWriter;
+    private final AuditService auditService;
+
+    public ReactiveRestAuthenticationEntryPoint(SecurityMetrics securityMetrics,
+                                                ReactiveResultResponseWriter resultResponseWriter,
+                                                AuditService auditService) {
+        this.securityMetrics = securityMetrics;
+        this.resultResponseWriter = resultResponseWriter;
+        this.auditService = auditService;
+    }
+
+    @Override
+    public Mono<Void> commence(ServerWebExchange exchange, AuthenticationException authException) {
+        securityMetrics.unauthorized();
+        // 审计：只是放进内存队列，不做 I/O，在事件循环线程上调用也没问题
+        auditService.publish(AuditEvent.of(AuditEvent.Type.UNAUTHORIZED, null, exchange.getRequest(),
+                authException.getClass().getSimpleName()));
+
+        return resultResponseWriter.write(exchange.getResponse(), HttpStatus.UNAUTHORIZED,
+                ResponseCodeEnum.UNAUTHORIZED.getCode(), authException.getMessage());
+    }
+}
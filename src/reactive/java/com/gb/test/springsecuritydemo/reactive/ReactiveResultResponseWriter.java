@@ -0,0 +1,39 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import com.gb.test.springsecuritydemo.config.handlers.ResultResponseWriter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ResultResponseWriter 的响应式版本
+ * 响应体仍然来自 ResultResponseWriter 预先编码好的字节，这里只是包装成 DataBuffer (不复制) 写出去
+ */
+@Component
+@Profile("reactive")
+public class ReactiveResultResponseWriter {
+
+    private static final MediaType CONTENT_TYPE = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+
+    private final ResultResponseWriter resultResponseWriter;
+
+    public ReactiveResultResponseWriter(ResultResponseWriter resultResponseWriter) {
+        this.resultResponseWriter = resultResponseWriter;
+    }
+
+    /**
+     * 写出带自定义消息的响应体 ResultVO.fail(code, message)
+     */
+    public Mono<Void> write(ServerHttpResponse response, HttpStatus status, int code, String message) {
+        byte[] payload = resultResponseWriter.encode(code, message);
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(CONTENT_TYPE);
+        response.getHeaders().setContentLength(payload.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(payload)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import com.gb.test.springsecuritydemo.cache.JwtTokenCache;
+import com.gb.test.springsecuritydemo.cache.UserVersionRegistry;
+import com.gb.test.springsecuritydemo.config.SecurityConfig;
+import com.gb.test.springsecuritydemo.config.metrics.SecurityMetrics;
+import com.gb.test.springsecuritydemo.service.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.savedrequest.NoOpServerRequestCache;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+/**
+ * 响应式 (WebFlux) 版本的安全配置，对应 SecurityConfig + MethodSecurityConfig
+ * <p>
+ * 启用方式：mvn -P reactive 编译 (带上 WebFlux 和 src/reactive/java)，再激活 Spring profile "reactive"
+ * (application-reactive.yml 把应用切换成 Netty + WebFlux)。
+ * 少量事件循环线程就能挂住大量连接，适合放在网关后面做令牌校验；登录、刷新、批量导入这些
+ * 以阻塞操作为主的接口仍然由 servlet 版本提供，令牌两边通用。
+ * <p>
+ * 规则和 servlet 版本保持一致：
+ * - security.public-paths 走公开链，不做任何令牌工作
+ * - /api/auth/login、/api/auth/refresh 放行，/actuator/prometheus 需要 ROLE_ADMIN，其他请求都需要登录
+ * - 角色判断写在控制器的 @PreAuthorize 上 (响应式方法安全，方法必须返回 Mono / Flux)
+ * - 401 / 403 输出同样的 ResultVO
+ * 整条链都是无状态的：不读写会话 (NoOpServerSecurityContextRepository)，认证信息只在 Reactor Context 里
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public class ReactiveSecurityConfig {
+
+    /**
+     * 公开接口的过滤链（优先匹配），对应 SecurityConfig.publicFilterChain
+     */
+    @Bean
+    @Order(1)
+    public SecurityWebFilterChain publicFilterChain(ServerHttpSecurity http,
+                                                    @Value("${security.public-paths:" + SecurityConfig.DEFAULT_PUBLIC_PATHS + "}") String[] publicPaths) {
+        return http
+                .securityMatcher(ServerWebExchangeMatchers.pathMatchers(publicPaths))
+                .authorizeExchange(exchanges -> exchanges.anyExchange().permitAll())
+                .csrf(csrf -> csrf.disable())
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .headers(headers -> headers.cache(cache -> cache.disable()))
+                .anonymous(anonymous -> anonymous.disable())
+                .requestCache(cache -> cache.requestCache(NoOpServerRequestCache.getInstance()))
+                .logout(logout -> logout.disable())
+                .formLogin(form -> form.disable())
+                .httpBasic(basic -> basic.disable())
+                .build();
+    }
+
+    /**
+     * 需要登录的过滤链，对应 SecurityConfig.filterChain
+     * ReactiveJwtAuthenticationFilter 在这里创建而不是声明成 Bean：WebFlux 会把所有 WebFilter 类型的 Bean
+     * 加到全局过滤器链里，对公开接口也执行一遍
+     */
+    @Bean
+    @Order(2)
+    public SecurityWebFilterChain filterChain(ServerHttpSecurity http,
+                                              JwtTokenCache jwtTokenCache,
+                                              ReactiveUserDetailsService userDetailsService,
+                                              UserVersionRegistry userVersionRegistry,
+                                              TokenRevocationService tokenRevocationService,
+                                              SecurityMetrics securityMetrics,
+                                              ReactiveRestAuthenticationEntryPoint authenticationEntryPoint,
+                                              ReactiveRestAccessDeniedHandler accessDeniedHandler,
+                                              @Value("${jwt.stateless:false}") boolean statelessMode) {
+        ReactiveJwtAuthenticationFilter jwtAuthFilter = new ReactiveJwtAuthenticationFilter(jwtTokenCache,
+                userDetailsService, userVersionRegistry, tokenRevocationService, securityMetrics, statelessMode);
+        return http
+                .csrf(csrf -> csrf.disable())
+                .authorizeExchange(exchanges -> exchanges
+                        .pathMatchers("/api/auth/login", "/api/auth/refresh").permitAll()
+                        // 和 servlet 版本一样：指标只给管理员看
+                        .pathMatchers("/actuator/prometheus").hasRole("ADMIN")
+                        .anyExchange().authenticated()
+                )
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .requestCache(cache -> cache.requestCache(NoOpServerRequestCache.getInstance()))
+                .exceptionHandling(ex -> ex
+                        .authenticationEntryPoint(authenticationEntryPoint) // 401
+                        .accessDeniedHandler(accessDeniedHandler)           // 403
+                )
+                .addFilterAt(jwtAuthFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .logout(logout -> logout.disable())
+                .formLogin(form -> form.disable())
+                .httpBasic(basic -> basic.disable())
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.gb.test.springsecuritydemo.reactive;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 响应式版本使用 Netty
+ * <p>
+ * 类路径上还有 spring-boot-starter-web 带进来的 Tomcat，Spring Boot 的响应式模式会优先选 Tomcat
+ * (Servlet 3.1 非阻塞适配，每个连接的开销比 Netty 大)；这里明确声明 Netty 的 WebServerFactory。
+ * 事件循环线程数默认等于 CPU 核数，可以用 -Dreactor.netty.ioWorkerCount 调整；
+ * server.port 等配置仍然由 Spring Boot 的 WebServerFactoryCustomizer 应用
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.getServerCustomizers().addAll(serverCustomizers.orderedStream().toList());
+        return factory;
+    }
+}
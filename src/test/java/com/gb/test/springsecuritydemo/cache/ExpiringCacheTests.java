@@ -0,0 +1,144 @@
+package com.gb.test.springsecuritydemo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpiringCacheTests {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(5);
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> cache.getOrLoad("bob", key -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return "value-" + key;
+                }, TTL)));
+            }
+            // 第一个线程进入 loader 之后，其余线程都会在 inFlight 上等待；给它们一点时间到达
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value-bob");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cache.get("bob", System.currentTimeMillis())).isEqualTo("value-bob");
+    }
+
+    @Test
+    void waitersSeeTheLoaderFailureAndNothingIsCached() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.getOrLoad("bob", key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                throw new IllegalStateException("database down");
+            }, TTL));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> waiter = executor.submit(() -> cache.getOrLoad("bob", key -> {
+                loads.incrementAndGet();
+                return "unused";
+            }, TTL));
+            Thread.sleep(100);
+            release.countDown();
+
+            // 等待者拿到的是同一个异常，而不是自己再查一次
+            assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessage("database down");
+            assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS))
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessage("database down");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void removeDuringLoadKeepsStaleValueOutOfTheCache() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = executor.submit(() -> cache.getOrLoad("bob", key -> {
+                loading.countDown();
+                await(release);
+                return "old-role";
+            }, TTL));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // 加载期间用户被修改：缓存失效
+            cache.remove("bob");
+            release.countDown();
+
+            // 正在加载的调用方仍然拿到它读到的值，但这个值不能留在缓存里
+            assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("old-role");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(cache.get("bob", System.currentTimeMillis())).isNull();
+        assertThat(cache.getOrLoad("bob", key -> "new-role", TTL)).isEqualTo("new-role");
+        assertThat(cache.get("bob", System.currentTimeMillis())).isEqualTo("new-role");
+    }
+
+    @Test
+    void expiredEntriesAreMissesAndFullCacheStaysBounded() {
+        ExpiringCache<Integer, String> cache = new ExpiringCache<>(10);
+        long now = 1_000L;
+        cache.put(1, "a", now + 10, now);
+        assertThat(cache.get(1, now + 9)).isEqualTo("a");
+        assertThat(cache.get(1, now + 10)).isNull();
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "v" + i, now + 1_000, now);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(cache.maxSize());
+        assertThat(cache.evictionCount()).isPositive();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.gb.test.springsecuritydemo.cache;
+
+import com.gb.test.springsecuritydemo.event.InvalidationGapEvent;
+import com.gb.test.springsecuritydemo.event.UserChangedEvent;
+import com.gb.test.springsecuritydemo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserVersionRegistryTests {
+
+    private final UserRepository repository = mock(UserRepository.class);
+    private final UserVersionRegistry registry = new UserVersionRegistry(repository, Duration.ofMinutes(1), 100);
+
+    @Test
+    void seedsFromDatabaseOnceSoRevocationsSurviveRestart() {
+        // 重启前 bob 的版本号已经提升到 3
+        when(repository.findTokenVersionByUsername("bob")).thenReturn(Optional.of(3L));
+
+        assertThat(registry.isCurrent("bob", 2L)).isFalse();
+        assertThat(registry.isCurrent("bob", 3L)).isTrue();
+        verify(repository, times(1)).findTokenVersionByUsername("bob");
+
+        registry.onUserChanged(new UserChangedEvent("bob", 4L));
+        assertThat(registry.isCurrent("bob", 3L)).isFalse();
+        assertThat(registry.isCurrent("bob", 4L)).isTrue();
+    }
+
+    @Test
+    void staleSeedDoesNotLowerAnAdvancedVersion() {
+        // 查询期间事件推进到 5，查询返回的是提交前的旧值 1
+        when(repository.findTokenVersionByUsername("alice")).thenAnswer(invocation -> {
+            registry.advance("alice", 5L);
+            return Optional.of(1L);
+        });
+
+        assertThat(registry.isCurrent("alice", 1L)).isFalse();
+        assertThat(registry.isCurrent("alice", 5L)).isTrue();
+    }
+
+    @Test
+    void gapDropsEverythingSoVersionsAreReadAgain() {
+        when(repository.findTokenVersionByUsername("bob")).thenReturn(Optional.of(1L), Optional.of(2L));
+        assertThat(registry.isCurrent("bob", 1L)).isTrue();
+
+        // 断开期间 bob 的版本号在另一个节点上提升到了 2，消息丢了
+        registry.onInvalidationGap(new InvalidationGapEvent());
+        assertThat(registry.peek("bob", 1L)).isNull();
+        assertThat(registry.isCurrent("bob", 1L)).isFalse();
+        verify(repository, times(2)).findTokenVersionByUsername("bob");
+    }
+
+    @Test
+    void peekNeverTouchesTheDatabase() {
+        when(repository.findTokenVersionByUsername("carol")).thenReturn(Optional.of(2L));
+
+        assertThat(registry.peek("carol", 2L)).isNull();
+        verify(repository, never()).findTokenVersionByUsername("carol");
+
+        assertThat(registry.load("carol", 2L)).isTrue();
+        assertThat(registry.peek("carol", 1L)).isFalse();
+        assertThat(registry.peek("carol", 2L)).isTrue();
+    }
+
+    @Test
+    void unknownUserIsRejectedFromMemoryUntilTheUserIsCreated() {
+        when(repository.findTokenVersionByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThat(registry.isCurrent("ghost", 0L)).isFalse();
+        assertThat(registry.isCurrent("ghost", 0L)).isFalse();
+        assertThat(registry.peek("ghost", 0L)).isFalse();
+        verify(repository, times(1)).findTokenVersionByUsername("ghost");
+
+        // 用户重新创建 / 修改后不再沿用否定结果
+        registry.onUserChanged(new UserChangedEvent("ghost", 0L));
+        assertThat(registry.isCurrent("ghost", 0L)).isTrue();
+    }
+
+    @Test
+    void absentEntryExpires() throws InterruptedException {
+        UserVersionRegistry shortLived = new UserVersionRegistry(repository, Duration.ofMillis(20), 100);
+        when(repository.findTokenVersionByUsername("ghost")).thenReturn(Optional.empty(), Optional.of(0L));
+
+        assertThat(shortLived.isCurrent("ghost", 0L)).isFalse();
+        Thread.sleep(50);
+        assertThat(shortLived.peek("ghost", 0L)).isNull();
+        assertThat(shortLived.isCurrent("ghost", 0L)).isTrue();
+    }
+}
@@ -0,0 +1,231 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 编译版和框架默认的 SpEL 版对同一组 (表达式, 调用者) 必须给出相同的结果：
+ * 都通过代理调用，比较的是返回值或抛出的异常类型
+ */
+class CompiledPreAuthorizeAuthorizationManagerTests {
+
+    static class Secured {
+
+        @PreAuthorize("hasRole('ADMIN')")
+        public String hasRole() {
+            return "ok";
+        }
+
+        @PreAuthorize("hasRole('ROLE_ADMIN')")
+        public String hasRoleWithPrefix() {
+            return "ok";
+        }
+
+        @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+        public String hasAnyRole() {
+            return "ok";
+        }
+
+        @PreAuthorize("hasAuthority('ROLE_USER')")
+        public String hasAuthority() {
+            return "ok";
+        }
+
+        @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ROLE_USER')")
+        public String hasAnyAuthority() {
+            return "ok";
+        }
+
+        @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+        public String or() {
+            return "ok";
+        }
+
+        @PreAuthorize("hasRole('ADMIN') || hasAuthority('ROLE_USER')")
+        public String orSymbol() {
+            return "ok";
+        }
+
+        @PreAuthorize("hasRole('ADMIN') and hasRole('USER')")
+        public String and() {
+            return "ok";
+        }
+
+        @PreAuthorize("!hasRole('ADMIN')")
+        public String not() {
+            return "ok";
+        }
+
+        @PreAuthorize("isAuthenticated()")
+        public String authenticated() {
+            return "ok";
+        }
+
+        @PreAuthorize("permitAll")
+        public String permitAll() {
+            return "ok";
+        }
+
+        @PreAuthorize("denyAll")
+        public String denyAll() {
+            return "ok";
+        }
+
+        @PreAuthorize("authentication.name == 'alice'")
+        public String spel() {
+            return "ok";
+        }
+    }
+
+    // 能编译的表达式 / 交给 SpEL 的表达式 (and、!、引用 authentication 属性)
+    private static final List<String> COMPILED_METHODS = List.of("hasRole", "hasRoleWithPrefix", "hasAnyRole",
+            "hasAuthority", "hasAnyAuthority", "or", "orSymbol", "authenticated", "permitAll", "denyAll");
+    private static final List<String> FALLBACK_METHODS = List.of("and", "not", "spel");
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void compiledDecisionsMatchSpel() {
+        CompiledPreAuthorizeAuthorizationManager compiledManager =
+                new CompiledPreAuthorizeAuthorizationManager(new PreAuthorizeAuthorizationManager());
+        Secured spel = proxy(AuthorizationManagerBeforeMethodInterceptor.preAuthorize());
+        Secured compiled = proxy(AuthorizationManagerBeforeMethodInterceptor.preAuthorize(compiledManager));
+
+        int decisions = 0;
+        for (Map.Entry<String, Authentication> caller : callers().entrySet()) {
+            for (String name : concat(COMPILED_METHODS, FALLBACK_METHODS)) {
+                SecurityContextHolder.clearContext();
+                if (caller.getValue() != null) {
+                    SecurityContextHolder.getContext().setAuthentication(caller.getValue());
+                }
+                String expected = invoke(spel, name);
+                String actual = invoke(compiled, name);
+                assertThat(actual).as("%s() as %s", name, caller.getKey()).isEqualTo(expected);
+                decisions++;
+            }
+        }
+
+        // 确认上面的比较确实走到了编译后的规则，而不是全部退回 SpEL
+        int callers = callers().size();
+        assertThat(compiledManager.getCompiledDecisions()).isEqualTo((long) COMPILED_METHODS.size() * callers);
+        assertThat(compiledManager.getFallbackDecisions()).isEqualTo((long) FALLBACK_METHODS.size() * callers);
+        assertThat(compiledManager.getCompiledDecisions() + compiledManager.getFallbackDecisions()).isEqualTo(decisions);
+    }
+
+    @Test
+    void resultsCoverBothOutcomes() {
+        // 防止比较退化成 "两边都拒绝"：挑几个结果写死
+        Secured compiled = proxy(AuthorizationManagerBeforeMethodInterceptor.preAuthorize(
+                new CompiledPreAuthorizeAuthorizationManager(new PreAuthorizeAuthorizationManager())));
+        Map<String, Authentication> callers = callers();
+
+        SecurityContextHolder.getContext().setAuthentication(callers.get("admin"));
+        assertThat(invoke(compiled, "hasRole")).isEqualTo("ok");
+        assertThat(invoke(compiled, "hasAuthority")).isEqualTo("AuthorizationDeniedException");
+
+        SecurityContextHolder.getContext().setAuthentication(callers.get("stateless user"));
+        assertThat(invoke(compiled, "hasAnyRole")).isEqualTo("ok");
+        assertThat(invoke(compiled, "hasRole")).isEqualTo("AuthorizationDeniedException");
+
+        SecurityContextHolder.getContext().setAuthentication(callers.get("anonymous"));
+        assertThat(invoke(compiled, "authenticated")).isEqualTo("AuthorizationDeniedException");
+        assertThat(invoke(compiled, "permitAll")).isEqualTo("ok");
+
+        SecurityContextHolder.clearContext();
+        assertThat(invoke(compiled, "hasRole")).isEqualTo("AuthenticationCredentialsNotFoundException");
+    }
+
+    /**
+     * 调用者：缓存里的 AppUserDetails、无状态模式下用 claims 构造的普通 User、匿名用户、
+     * 带角色但未认证的令牌、没有任何认证信息 (null)
+     */
+    private static Map<String, Authentication> callers() {
+        Map<String, Authentication> callers = new LinkedHashMap<>();
+        callers.put("admin", appUser("bob", "ROLE_ADMIN"));
+        callers.put("user", appUser("alice", "ROLE_USER"));
+        callers.put("admin and user", appUser("carol", "ROLE_ADMIN", "ROLE_USER"));
+        callers.put("no roles", appUser("dave"));
+
+        // 和 JwtAuthenticationFilter.authenticateFromClaims 一样
+        List<GrantedAuthority> claimRoles = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        callers.put("stateless user", new UsernamePasswordAuthenticationToken(
+                new User("alice", "", claimRoles), null, claimRoles));
+
+        callers.put("anonymous", new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        TestingAuthenticationToken unauthenticated = new TestingAuthenticationToken("eve", null, "ROLE_ADMIN");
+        unauthenticated.setAuthenticated(false);
+        callers.put("unauthenticated", unauthenticated);
+        callers.put("none", null);
+        return callers;
+    }
+
+    private static Authentication appUser(String username, String... roles) {
+        AppUserDetails user = new AppUserDetails(username, "", AuthorityUtils.createAuthorityList(roles), 0L);
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    private static Secured proxy(MethodInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(new Secured());
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return (Secured) factory.getProxy();
+    }
+
+    /**
+     * @return 方法的返回值，或者抛出的异常的类名
+     */
+    private static String invoke(Secured secured, String name) {
+        Function<Secured, String> call = switch (name) {
+            case "hasRole" -> Secured::hasRole;
+            case "hasRoleWithPrefix" -> Secured::hasRoleWithPrefix;
+            case "hasAnyRole" -> Secured::hasAnyRole;
+            case "hasAuthority" -> Secured::hasAuthority;
+            case "hasAnyAuthority" -> Secured::hasAnyAuthority;
+            case "or" -> Secured::or;
+            case "orSymbol" -> Secured::orSymbol;
+            case "and" -> Secured::and;
+            case "not" -> Secured::not;
+            case "authenticated" -> Secured::authenticated;
+            case "permitAll" -> Secured::permitAll;
+            case "denyAll" -> Secured::denyAll;
+            case "spel" -> Secured::spel;
+            default -> throw new IllegalArgumentException(name);
+        };
+        try {
+            return call.apply(secured);
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        return Stream.concat(first.stream(), second.stream()).toList();
+    }
+}
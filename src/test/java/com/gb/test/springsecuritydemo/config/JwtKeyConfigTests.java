@@ -0,0 +1,48 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.utils.JwtKeyRing;
+import com.gb.test.springsecuritydemo.utils.JwtUtil;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyConfigTests {
+
+    private static final String OLD_SECRET = "previous-production-hs256-secret-0123456789";
+
+    private final JwtKeyConfig config = new JwtKeyConfig();
+
+    @TempDir
+    Path keysDir;
+
+    @Test
+    void legacyTokensAreRejectedUnlessLegacySecretIsConfigured() {
+        // 切换前用 HS256 签发的、不带 kid 的令牌
+        String legacyToken = new JwtUtil(JwtKeyRing.hmac(OLD_SECRET)).generateToken("alice");
+
+        // 只配置了 jwt.secret (现在已经不使用)：拒绝
+        JwtUtil rejecting = new JwtUtil(keyRing(OLD_SECRET, ""));
+        assertThatThrownBy(() -> rejecting.parseToken(legacyToken)).isInstanceOf(JwtException.class);
+
+        // 显式配置 legacy-secret：接受
+        JwtUtil accepting = new JwtUtil(keyRing(JwtUtil.DEFAULT_SECRET, OLD_SECRET));
+        assertThat(accepting.parseToken(legacyToken).username()).isEqualTo("alice");
+        assertThat(accepting.parseToken(accepting.generateToken("bob")).username()).isEqualTo("bob");
+    }
+
+    @Test
+    void builtInSecretIsRefusedAsLegacySecret() {
+        assertThatThrownBy(() -> keyRing(JwtUtil.DEFAULT_SECRET, JwtUtil.DEFAULT_SECRET))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("jwt.keys.legacy-secret");
+    }
+
+    private JwtKeyRing keyRing(String secret, String legacySecret) {
+        return config.jwtKeyRing("ES256", secret, "key-1", keysDir.toString(), true, legacySecret);
+    }
+}
@@ -0,0 +1,40 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.entity.User;
+import com.gb.test.springsecuritydemo.model.UserAuthView;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeHintsConfigTests {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeHintsConfigTests() {
+        new NativeHintsConfig.SecurityRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registersJjwtImplementationsLoadedByName() {
+        // 确认名字没有写错：这些类必须真实存在于当前版本的 jjwt-impl 里
+        assertThat(Jwts.parser().getClass().getName()).isEqualTo("io.jsonwebtoken.impl.DefaultJwtParserBuilder");
+        assertThat(RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of("io.jsonwebtoken.impl.DefaultJwtParserBuilder"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(Jwts.SIG.get().getClass())).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/io.jsonwebtoken.io.Deserializer")).accepts(hints);
+    }
+
+    @Test
+    void registersJpqlConstructorExpressionAndEntities() throws NoSuchMethodException {
+        assertThat(RuntimeHintsPredicates.reflection().onConstructor(UserAuthView.class.getDeclaredConstructor(
+                String.class, String.class, String.class, Long.class, Integer.class, Instant.class))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onField(User.class, "tokenVersion")).accepts(hints);
+    }
+}
@@ -0,0 +1,45 @@
+package com.gb.test.springsecuritydemo.config;
+
+import com.gb.test.springsecuritydemo.utils.CostAwarePbkdf2PasswordEncoder;
+import com.gb.test.springsecuritydemo.utils.PasswordCostCalibrator;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordEncoderConfigTests {
+
+    private static final String PASSWORD = "s3cret-Password";
+
+    private final PasswordEncoderConfig config = new PasswordEncoderConfig();
+
+    @Test
+    void pbkdf2HashSurvivesRecalibration() {
+        // 上一次启动：校准出来的迭代次数和这次不同
+        int previousIterations = PasswordCostCalibrator.MIN_PBKDF2_ITERATIONS + 10_000;
+        PasswordEncoder before = config.passwordEncoder("pbkdf2", 10, previousIterations, false, Duration.ofMillis(1));
+        String hash = before.encode(PASSWORD);
+        assertThat(hash).startsWith("{pbkdf2}" + previousIterations + "$");
+
+        // 这一次启动：重新校准 (1ms 的目标会落到下限)
+        PasswordEncoder after = config.passwordEncoder("pbkdf2", 10, 310_000, true, Duration.ofMillis(1));
+        assertThat(after.matches(PASSWORD, hash)).isTrue();
+        assertThat(after.matches("wrong", hash)).isFalse();
+        assertThat(after.upgradeEncoding(hash)).isTrue();
+
+        String rehashed = after.encode(PASSWORD);
+        assertThat(after.matches(PASSWORD, rehashed)).isTrue();
+        assertThat(after.upgradeEncoding(rehashed)).isFalse();
+    }
+
+    @Test
+    void legacyPbkdf2HashUsesConfiguredIterationsAndIsUpgraded() {
+        String legacy = "{pbkdf2}" + CostAwarePbkdf2PasswordEncoder.pbkdf2(310_000).encode(PASSWORD);
+        PasswordEncoder encoder = config.passwordEncoder("pbkdf2", 10, 310_000, false, Duration.ofMillis(1));
+
+        assertThat(encoder.matches(PASSWORD, legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+    }
+}
@@ -0,0 +1,202 @@
+package com.gb.test.springsecuritydemo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PublicResponseCacheFilterTests {
+
+    private static final String PATH = "/api/posts/public/1";
+    private static final String BODY = "{\"title\":\"hello\"}";
+
+    private final PublicResponseCacheFilter filter = new PublicResponseCacheFilter(
+            true, new String[]{"/api/posts/public/**"}, Duration.ofMinutes(1), Duration.ofSeconds(30), 100,
+            new String[]{"page", "size"});
+
+    private final AtomicInteger controllerCalls = new AtomicInteger();
+
+    @Test
+    void secondGetIsServedFromCacheWithTheSameStrongEtag() throws Exception {
+        MockHttpServletResponse first = get(PATH, null, okJson());
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getContentAsString()).isEqualTo(BODY);
+        assertThat(first.getContentType()).startsWith("application/json");
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("\"").endsWith("\"");
+        assertThat(first.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=30");
+
+        MockHttpServletResponse second = get(PATH, null, okJson());
+        assertThat(second.getStatus()).isEqualTo(200);
+        assertThat(second.getContentAsString()).isEqualTo(BODY);
+        assertThat(second.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+        assertThat(controllerCalls).hasValue(1);
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304WithoutBody() throws Exception {
+        String etag = get(PATH, null, okJson()).getHeader(HttpHeaders.ETAG);
+
+        for (String ifNoneMatch : new String[]{etag, "W/" + etag, "\"other\", " + etag, "*"}) {
+            MockHttpServletResponse response = get(PATH, ifNoneMatch, okJson());
+            assertThat(response.getStatus()).as(ifNoneMatch).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+            assertThat(response.getContentAsByteArray()).as(ifNoneMatch).isEmpty();
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+        }
+
+        MockHttpServletResponse stale = get(PATH, "\"other\"", okJson());
+        assertThat(stale.getStatus()).isEqualTo(200);
+        assertThat(stale.getContentAsString()).isEqualTo(BODY);
+        assertThat(controllerCalls).hasValue(1);
+    }
+
+    @Test
+    void firstRequestWithMatchingEtagAlsoGets304() throws Exception {
+        // 缓存过期后，客户端仍然持有上一次的 ETag：控制器执行一次，内容没变就返回 304
+        String etag = get(PATH, null, okJson()).getHeader(HttpHeaders.ETAG);
+        filter.invalidateAll();
+
+        MockHttpServletResponse response = get(PATH, etag, okJson());
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(controllerCalls).hasValue(2);
+    }
+
+    @Test
+    void responsesWithSetCookieAreNeverCached() throws Exception {
+        FilterChain withCookie = (request, response) -> {
+            controllerCalls.incrementAndGet();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.addHeader(HttpHeaders.SET_COOKIE, "SESSION=abc; HttpOnly");
+            http.setContentType("application/json");
+            http.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+        };
+
+        MockHttpServletResponse first = get(PATH, null, withCookie);
+        assertThat(first.getContentAsString()).isEqualTo(BODY);
+        assertThat(first.getHeader(HttpHeaders.SET_COOKIE)).isEqualTo("SESSION=abc; HttpOnly");
+        assertThat(first.getHeader(HttpHeaders.ETAG)).isNull();
+
+        // 下一个请求 (可能是另一个用户) 不能拿到上一个响应
+        MockHttpServletResponse second = get(PATH, null, okJson());
+        assertThat(second.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+        assertThat(controllerCalls).hasValue(2);
+        assertThat(filter.getCache().size()).isEqualTo(1);
+    }
+
+    @Test
+    void errorsHeadAndOtherPathsBypassTheCache() throws Exception {
+        FilterChain notFound = (request, response) -> {
+            controllerCalls.incrementAndGet();
+            ((HttpServletResponse) response).sendError(404);
+        };
+        assertThat(get(PATH, null, notFound).getStatus()).isEqualTo(404);
+        assertThat(get(PATH, null, okJson()).getStatus()).isEqualTo(200);
+        assertThat(controllerCalls).hasValue(2);
+
+        // HEAD 命中 GET 的缓存：有 ETag 和长度，没有响应体
+        MockHttpServletRequest head = request("HEAD", PATH, null);
+        MockHttpServletResponse headResponse = new MockHttpServletResponse();
+        filter.doFilter(head, headResponse, okJson());
+        assertThat(headResponse.getHeader(HttpHeaders.ETAG)).isNotNull();
+        assertThat(headResponse.getContentLength()).isEqualTo(BODY.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(headResponse.getContentAsByteArray()).isEmpty();
+        assertThat(controllerCalls).hasValue(2);
+
+        // 不在配置范围内的路径：不加 ETag，每次都执行控制器
+        MockHttpServletResponse other = get("/api/posts/protected/my-favorites", null, okJson());
+        assertThat(other.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(controllerCalls).hasValue(3);
+    }
+
+    @Test
+    void allowedParametersShareOneEntryRegardlessOfOrder() throws Exception {
+        MockHttpServletRequest first = request("GET", PATH, null);
+        first.setParameter("page", "1");
+        first.setParameter("size", "20");
+        filter.doFilter(first, new MockHttpServletResponse(), okJson());
+
+        MockHttpServletRequest reordered = request("GET", PATH, null);
+        reordered.setParameter("size", "20");
+        reordered.setParameter("page", "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(reordered, response, okJson());
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+        assertThat(controllerCalls).hasValue(1);
+
+        MockHttpServletRequest otherPage = request("GET", PATH, null);
+        otherPage.setParameter("page", "2");
+        filter.doFilter(otherPage, new MockHttpServletResponse(), okJson());
+        assertThat(controllerCalls).hasValue(2);
+        assertThat(filter.getCache().size()).isEqualTo(2);
+    }
+
+    @Test
+    void unknownParametersAreNeverCached() throws Exception {
+        // 每次换一个随意的参数，不能在缓存里留下新条目
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = request("GET", PATH, null);
+            request.setParameter("cb", String.valueOf(i));
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, okJson());
+            assertThat(response.getContentAsString()).isEqualTo(BODY);
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+        }
+        assertThat(controllerCalls).hasValue(3);
+        assertThat(filter.getCache().size()).isZero();
+    }
+
+    @Test
+    void controllerHeadersAreReplayedExceptHopByHop() throws Exception {
+        FilterChain withHeaders = (request, response) -> {
+            controllerCalls.incrementAndGet();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.addHeader(HttpHeaders.VARY, "Accept-Encoding");
+            http.addHeader(HttpHeaders.VARY, "Accept-Language");
+            http.setHeader(HttpHeaders.CONTENT_LANGUAGE, "zh-CN");
+            http.setHeader(HttpHeaders.CONNECTION, "close");
+            http.setContentType("application/json");
+            http.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+        };
+        MockHttpServletResponse first = get(PATH, null, withHeaders);
+        assertThat(first.getHeaders(HttpHeaders.VARY)).containsExactly("Accept-Encoding", "Accept-Language");
+
+        MockHttpServletResponse cached = get(PATH, null, okJson());
+        assertThat(controllerCalls).hasValue(1);
+        assertThat(cached.getHeaders(HttpHeaders.VARY)).containsExactly("Accept-Encoding", "Accept-Language");
+        assertThat(cached.getHeader(HttpHeaders.CONTENT_LANGUAGE)).isEqualTo("zh-CN");
+        assertThat(cached.getHeader(HttpHeaders.CONNECTION)).isNull();
+        assertThat(cached.getContentType()).startsWith("application/json");
+    }
+
+    private FilterChain okJson() {
+        return (request, response) -> {
+            controllerCalls.incrementAndGet();
+            response.setContentType("application/json");
+            response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private MockHttpServletResponse get(String path, String ifNoneMatch, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", path, ifNoneMatch), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return request;
+    }
+}
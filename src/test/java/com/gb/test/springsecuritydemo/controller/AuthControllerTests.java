@@ -0,0 +1,161 @@
+package com.gb.test.springsecuritydemo.controller;
+
+import com.gb.test.springsecuritydemo.service.LoginExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 登录接口的状态码：401 (密码错误、账户锁定的响应相同) / 503 (线程池满、排队超时) / 500
+ * 登录线程池只有 1 个线程、1 个排队位置，用户名以 slow 开头的认证会卡住，直到 release
+ */
+@SpringBootTest(properties = {
+        "security.login.threads=1",
+        "security.login.queue-capacity=1",
+        "security.login.timeout=300ms"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class AuthControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoginExecutor loginExecutor;
+
+    @MockitoBean
+    private AuthenticationManager authenticationManager;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            Authentication request = invocation.getArgument(0);
+            String username = request.getName();
+            if (username.startsWith("slow")) {
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                throw new BadCredentialsException("Bad credentials");
+            }
+            if (username.startsWith("locked")) {
+                throw new LockedException("User account is locked");
+            }
+            if (username.startsWith("broken")) {
+                throw new InternalAuthenticationServiceException("database down");
+            }
+            throw new BadCredentialsException("Bad credentials");
+        });
+    }
+
+    @AfterEach
+    void releaseLoginThread() throws InterruptedException {
+        release.countDown();
+        // 等唯一的登录线程空出来，不影响下一个测试
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((loginExecutor.getActiveCount() > 0 || loginExecutor.getQueueSize() > 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void badCredentialsReturn401() throws Exception {
+        mockMvc.perform(asyncDispatch(login("alice")))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().string("Invalid username or password"));
+    }
+
+    @Test
+    void lockedAccountLooksLikeBadCredentials() throws Exception {
+        // 不能让对方看出这个用户名存在而且被锁定了
+        mockMvc.perform(asyncDispatch(login("locked")))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().string("Invalid username or password"));
+    }
+
+    @Test
+    void unexpectedErrorReturns500WithoutDetails() throws Exception {
+        mockMvc.perform(asyncDispatch(login("broken")))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.code").value(500))
+                .andExpect(content().string(not(containsString("database down"))));
+    }
+
+    @Test
+    void fullQueueReturns503WithRetryAfter() throws Exception {
+        MvcResult running = login("slow-1");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        login("slow-2"); // 占住唯一的排队位置
+
+        mockMvc.perform(asyncDispatch(login("slow-3")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+
+        // 卡住的那个也在 timeout 之后拿到 503
+        mockMvc.perform(asyncDispatch(running)).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void timedOutLoginReturns503AndIsNeverAuthenticated() throws Exception {
+        long expiredBefore = loginExecutor.getExpiredCount();
+        MvcResult running = login("slow-a");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        MvcResult queued = login("slow-b");
+
+        // 两个请求都在 timeout 之后拿到 503
+        mockMvc.perform(asyncDispatch(queued))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+        mockMvc.perform(asyncDispatch(running)).andExpect(status().isServiceUnavailable());
+
+        // 线程空出来后，排队超时的那个直接放弃，不再做认证 (密码哈希)
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loginExecutor.getExpiredCount() == expiredBefore && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(loginExecutor.getExpiredCount()).isEqualTo(expiredBefore + 1);
+        verify(authenticationManager, times(1)).authenticate(any());
+    }
+
+    private MvcResult login(String username) throws Exception {
+        return mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+}
@@ -0,0 +1,83 @@
+package com.gb.test.springsecuritydemo.repository;
+
+import com.gb.test.springsecuritydemo.entity.User;
+import com.gb.test.springsecuritydemo.model.UserAuthView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void authViewProjectionReturnsOnlyAuthenticationFields() {
+        userRepository.saveAndFlush(user("alice"));
+
+        UserAuthView view = userRepository.findAuthViewByUsername("alice").orElseThrow();
+
+        assertThat(view.username()).isEqualTo("alice");
+        assertThat(view.password()).isEqualTo("{noop}secret");
+        assertThat(view.role()).isEqualTo("ROLE_USER");
+        assertThat(view.currentTokenVersion()).isZero();
+        assertThat(userRepository.findAuthViewByUsername("nobody")).isEmpty();
+    }
+
+    @Test
+    void usernameLookupUsesUniqueIndex() {
+        userRepository.saveAndFlush(user("bob"));
+
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN SELECT username, password, role, token_version FROM users WHERE username = 'bob'", String.class);
+
+        // H2 会在执行计划里写出使用的索引，全表扫描时是 USERS.TABLESCAN
+        assertThat(String.join("\n", plan).toLowerCase()).contains("uk_users_username");
+    }
+
+    @Test
+    void duplicateUsernameIsRejected() {
+        userRepository.saveAndFlush(user("carol"));
+
+        assertThatThrownBy(() -> userRepository.saveAndFlush(user("carol")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void tokenVersionLookupTreatsNullAsZero() {
+        User legacy = user("dave");
+        legacy.setTokenVersion(null);
+        userRepository.saveAndFlush(legacy);
+        User current = user("erin");
+        current.setTokenVersion(7L);
+        userRepository.saveAndFlush(current);
+
+        assertThat(userRepository.findTokenVersionByUsername("dave")).contains(0L);
+        assertThat(userRepository.findTokenVersionByUsername("erin")).contains(7L);
+        assertThat(userRepository.findTokenVersionByUsername("nobody")).isEmpty();
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("{noop}secret");
+        user.setRole("ROLE_USER");
+        user.setTokenVersion(0L);
+        return user;
+    }
+}
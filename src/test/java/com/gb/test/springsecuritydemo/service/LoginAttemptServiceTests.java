@@ -0,0 +1,93 @@
+package com.gb.test.springsecuritydemo.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class LoginAttemptServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private LoginAttemptService service(Duration failureWindow, int maxTracked) {
+        return new LoginAttemptService(jdbcTemplate, true, 5, Duration.ofMinutes(15), failureWindow, maxTracked, 500);
+    }
+
+    @Test
+    void locksAfterMaxAttemptsWithinWindow() {
+        LoginAttemptService service = service(Duration.ofMinutes(15), 100);
+        for (int i = 0; i < 4; i++) {
+            service.loginFailed("bob");
+        }
+        assertThat(service.isLocked("bob")).isFalse();
+        service.loginFailed("BOB"); // 大小写不同也算同一个用户
+        assertThat(service.isLocked("bob")).isTrue();
+        assertThat(service.getLockoutCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failuresOutsideWindowStartOver() throws InterruptedException {
+        LoginAttemptService service = service(Duration.ofMillis(50), 100);
+        for (int i = 0; i < 4; i++) {
+            service.loginFailed("bob");
+        }
+        Thread.sleep(100);
+        for (int i = 0; i < 4; i++) {
+            service.loginFailed("bob");
+        }
+        assertThat(service.isLocked("bob")).isFalse();
+        service.loginFailed("bob");
+        assertThat(service.isLocked("bob")).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sweepWritesBackResetAndThenRemovesExpiredFailures() throws InterruptedException {
+        LoginAttemptService service = service(Duration.ofMillis(50), 100);
+        service.loginFailed("bob");
+        service.flush();
+        assertThat(service.getTrackedCount()).isEqualTo(1);
+
+        Thread.sleep(100);
+        service.flush(); // 失败次数清零，标记为待写回
+        service.flush(); // 写回 0 之后移除
+        assertThat(service.getTrackedCount()).isZero();
+
+        // 数据库里的失败次数也被清零，重启后 seed 不会再读回旧的次数
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeast(2)).batchUpdate(anyString(), batches.capture());
+        Object[] last = batches.getValue().get(0);
+        assertThat(last[0]).isEqualTo(0);
+        assertThat(last[3]).isEqualTo("bob");
+    }
+
+    @Test
+    void fullTableEvictsOldestStatesAndKeepsLockoutWorking() {
+        LoginAttemptService service = service(Duration.ofMinutes(15), 10);
+        for (int i = 0; i < 5; i++) {
+            service.loginFailed("victim");
+        }
+        assertThat(service.isLocked("victim")).isTrue();
+
+        for (int i = 0; i < 100; i++) {
+            service.loginFailed("user-" + i);
+        }
+        assertThat(service.getTrackedCount()).isLessThanOrEqualTo(10);
+        assertThat(service.getEvictedCount()).isPositive();
+        assertThat(service.isLocked("victim")).isTrue(); // 没有锁定的先被淘汰
+
+        // 表满之后新用户照样计数、锁定
+        for (int i = 0; i < 5; i++) {
+            service.loginFailed("alice");
+        }
+        assertThat(service.isLocked("alice")).isTrue();
+    }
+}
@@ -0,0 +1,148 @@
+package com.gb.test.springsecuritydemo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingServiceTests {
+
+    private final List<PasswordHashingService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(PasswordHashingService::shutdown);
+    }
+
+    @Test
+    void resultsKeepInputOrderAndProgressCountsEveryPassword() throws Exception {
+        // 每个密码耗时不同，完成顺序是乱的
+        PasswordHashingService service = service(new FakeEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                sleepMillis(ThreadLocalRandom.current().nextInt(3));
+                return super.encode(rawPassword);
+            }
+        }, 4);
+        List<String> passwords = IntStream.range(0, 200).mapToObj(i -> "pw-" + i).toList();
+        Set<Integer> reported = ConcurrentHashMap.newKeySet();
+        AtomicInteger maxTotal = new AtomicInteger();
+
+        List<String> hashes = service.encodeAll(passwords, (completed, total) -> {
+            reported.add(completed);
+            maxTotal.accumulateAndGet(total, Math::max);
+        }).get(10, TimeUnit.SECONDS);
+
+        assertThat(hashes).containsExactlyElementsOf(passwords.stream().map(p -> "hash:" + p).toList());
+        assertThat(reported).hasSize(200).contains(1, 200);
+        assertThat(maxTotal).hasValue(200);
+
+        List<Boolean> matches = service.matchesAll(List.of("pw-0", "wrong", "pw-2"),
+                List.of(hashes.get(0), hashes.get(1), hashes.get(2)), null).get(10, TimeUnit.SECONDS);
+        assertThat(matches).containsExactly(true, false, true);
+    }
+
+    @Test
+    void emptyBatchAndMismatchedSizes() throws Exception {
+        PasswordHashingService service = service(new FakeEncoder(), 2);
+        assertThat(service.encodeAll(List.of(), null).get()).isEmpty();
+        assertThatThrownBy(() -> service.matchesAll(List.of("a"), List.of(), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cancelStopsPasswordsThatHaveNotStarted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger encoded = new AtomicInteger();
+        PasswordHashingService service = service(new FakeEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                encoded.incrementAndGet();
+                started.countDown();
+                awaitQuietly(release);
+                return super.encode(rawPassword);
+            }
+        }, 1);
+
+        CompletableFuture<List<String>> future = service.encodeAll(
+                IntStream.range(0, 50).mapToObj(i -> "pw-" + i).toList(), null);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(future.cancel(true)).isTrue();
+        release.countDown();
+
+        // 唯一的工作线程算完手上这个之后就停下，不再继续
+        service.encodeAsync("probe").get(5, TimeUnit.SECONDS);
+        assertThat(encoded).hasValue(2); // 被取消前的 1 个 + probe
+        assertThat(future).isCancelled();
+    }
+
+    @Test
+    void firstFailureCompletesTheBatchExceptionally() {
+        PasswordHashingService service = service(new FakeEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                if (rawPassword.toString().equals("pw-7")) {
+                    throw new IllegalStateException("encoder failed");
+                }
+                return super.encode(rawPassword);
+            }
+        }, 2);
+
+        CompletableFuture<List<String>> future = service.encodeAll(
+                IntStream.range(0, 20).mapToObj(i -> "pw-" + i).toList(), null);
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(IllegalStateException.class).hasMessage("encoder failed");
+    }
+
+    private PasswordHashingService service(PasswordEncoder encoder, int threads) {
+        PasswordHashingService service = new PasswordHashingService(encoder, threads);
+        services.add(service);
+        assertThat(service.getParallelism()).isEqualTo(threads);
+        return service;
+    }
+
+    private static class FakeEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.gb.test.springsecuritydemo.entity.RefreshToken;
+import com.gb.test.springsecuritydemo.model.AppUserDetails;
+import com.gb.test.springsecuritydemo.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 用真实的 RefreshTokenRepository (H2)：markUsed / revokeFamily 的条件更新是检测重复使用的关键
+ * 每次调用后 flush + clear，模拟生产环境里每个请求各自一个事务
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RefreshTokenServiceTests {
+
+    @Autowired
+    private RefreshTokenRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final Map<String, UserDetails> users = new ConcurrentHashMap<>();
+    private RefreshTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RefreshTokenService(repository, username -> {
+            UserDetails user = users.get(username);
+            if (user == null) {
+                throw new UsernameNotFoundException(username);
+            }
+            return user;
+        }, Duration.ofDays(7));
+        users.put("alice", user("alice", 0L));
+    }
+
+    @Test
+    void rotationIssuesANewTokenInTheSameFamily() {
+        String first = issue("alice");
+        RefreshTokenService.Rotation rotation = rotate(first);
+
+        assertThat(rotation.user().getUsername()).isEqualTo("alice");
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        List<RefreshToken> family = repository.findAll();
+        assertThat(family).hasSize(2);
+        assertThat(family).extracting(RefreshToken::getFamilyId).containsOnly(family.get(0).getFamilyId());
+        // 数据库里只有摘要
+        assertThat(family).extracting(RefreshToken::getTokenHash).doesNotContain(first, rotation.refreshToken());
+
+        assertThat(rotate(rotation.refreshToken()).user().getUsername()).isEqualTo("alice");
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() {
+        String stolen = issue("alice");
+        String legitimate = rotate(stolen).refreshToken();
+        String otherDevice = issue("alice");
+
+        // 攻击者 (或者合法用户) 再次使用已经轮换过的令牌
+        assertThatThrownBy(() -> rotate(stolen))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("reuse");
+
+        // 同一个 family 里最新的令牌也不能用了；另一次登录不受影响
+        assertThatThrownBy(() -> rotate(legitimate)).isInstanceOf(BadCredentialsException.class);
+        assertThat(rotate(otherDevice).refreshToken()).isNotBlank();
+        assertThat(repository.findAll()).filteredOn(RefreshToken::isRevoked).hasSize(2);
+    }
+
+    @Test
+    void logoutRevokesTheFamily() {
+        String first = issue("alice");
+        String second = rotate(first).refreshToken();
+
+        service.revoke(second);
+        flushAndClear();
+
+        assertThatThrownBy(() -> rotate(second)).isInstanceOf(BadCredentialsException.class);
+        assertThat(repository.findAll()).allMatch(RefreshToken::isRevoked);
+    }
+
+    @Test
+    void tokenVersionChangeOrDeletedUserInvalidatesTheFamily() {
+        String token = issue("alice");
+        // 改了角色或密码：版本号 +1
+        users.put("alice", user("alice", 1L));
+        assertThatThrownBy(() -> rotate(token))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("no longer valid");
+        assertThat(repository.findAll()).allMatch(RefreshToken::isRevoked);
+
+        users.put("bob", user("bob", 0L));
+        String bobs = issue("bob");
+        users.remove("bob");
+        assertThatThrownBy(() -> rotate(bobs)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void lockedOrDisabledAccountCannotRefresh() {
+        String token = issue("alice");
+        users.put("alice", AppUserDetails.copyLocked(users.get("alice")));
+        assertThatThrownBy(() -> rotate(token))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("no longer valid");
+        assertThat(repository.findAll()).allMatch(RefreshToken::isRevoked);
+
+        users.put("bob", new AppUserDetails("bob", "", false, true, true, true,
+                AuthorityUtils.createAuthorityList("ROLE_USER"), 0L));
+        String bobs = issue("bob");
+        assertThatThrownBy(() -> rotate(bobs)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void unknownBlankAndExpiredTokensAreRejected() {
+        assertThatThrownBy(() -> rotate("not-a-token")).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> rotate(" ")).isInstanceOf(BadCredentialsException.class);
+
+        String token = issue("alice");
+        RefreshToken stored = repository.findAll().get(0);
+        stored.setExpiresAt(Instant.now().minusSeconds(1));
+        repository.save(stored);
+        flushAndClear();
+        assertThatThrownBy(() -> rotate(token))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessageContaining("expired");
+
+        service.purgeExpired();
+        assertThat(repository.count()).isZero();
+    }
+
+    private String issue(String username) {
+        String token = service.issue(users.get(username));
+        flushAndClear();
+        return token;
+    }
+
+    private RefreshTokenService.Rotation rotate(String token) {
+        try {
+            return service.rotate(token);
+        } finally {
+            flushAndClear();
+        }
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static AppUserDetails user(String username, long tokenVersion) {
+        return new AppUserDetails(username, "", AuthorityUtils.createAuthorityList("ROLE_USER"), tokenVersion);
+    }
+}
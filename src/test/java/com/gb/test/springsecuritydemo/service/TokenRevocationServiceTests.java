@@ -0,0 +1,132 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.gb.test.springsecuritydemo.event.InvalidationResyncRequestedEvent;
+import com.gb.test.springsecuritydemo.event.TokenRevokedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationServiceTests {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final List<Object> events = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void revokedTokensAreFoundAndBroadcastOnce() {
+        TokenRevocationService service = service(100, "");
+        long expiresAt = System.currentTimeMillis() + HOUR;
+
+        service.revoke("jti-1", expiresAt);
+        assertThat(service.isRevoked("jti-1")).isTrue();
+        assertThat(service.isRevoked("jti-2")).isFalse();
+        assertThat(service.isRevoked(null)).isFalse();
+        assertThat(events).containsExactly(new TokenRevokedEvent("jti-1", expiresAt, false));
+
+        // 其他节点转发过来的：只记在本地，不再广播；本节点自己的事件不重复处理
+        service.onTokenRevoked(new TokenRevokedEvent("jti-2", expiresAt, true));
+        service.onTokenRevoked(new TokenRevokedEvent("jti-3", expiresAt, false));
+        assertThat(service.isRevoked("jti-2")).isTrue();
+        assertThat(service.isRevoked("jti-3")).isFalse();
+        assertThat(events).hasSize(1);
+
+        // 已经过期的令牌不用记
+        service.revoke("jti-old", System.currentTimeMillis() - 1);
+        assertThat(service.isRevoked("jti-old")).isFalse();
+        assertThat(service.size()).isEqualTo(2);
+    }
+
+    @Test
+    void resyncRequestRepublishesLiveRevocationsForBroadcast() {
+        TokenRevocationService service = service(100, "");
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        service.revoke("jti-1", expiresAt);
+        service.onTokenRevoked(new TokenRevokedEvent("jti-2", expiresAt, true));
+        events.clear();
+
+        // 自己吊销的和从其他节点收到的都重新发布成本地事件 (remote = false)，由 InvalidationBus 广播
+        service.onResyncRequested(new InvalidationResyncRequestedEvent());
+        assertThat(events).containsExactlyInAnyOrder(
+                new TokenRevokedEvent("jti-1", expiresAt, false),
+                new TokenRevokedEvent("jti-2", expiresAt, false));
+    }
+
+    @Test
+    void growingPastBloomCapacityRebuildsWithoutLosingEntries() {
+        TokenRevocationService service = service(4, "");
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        for (int i = 0; i < 1_000; i++) {
+            service.revoke("jti-" + i, expiresAt);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(service.isRevoked("jti-" + i)).as("jti-%d", i).isTrue();
+        }
+        assertThat(service.size()).isEqualTo(1_000);
+    }
+
+    @Test
+    void purgeDropsExpiredEntriesAndKeepsTheRest() throws InterruptedException {
+        TokenRevocationService service = service(100, "");
+        long now = System.currentTimeMillis();
+        service.revoke("short", now + 50);
+        service.revoke("long", now + HOUR);
+
+        Thread.sleep(100);
+        service.purgeExpired();
+
+        assertThat(service.size()).isEqualTo(1);
+        assertThat(service.isRevoked("short")).isFalse();
+        assertThat(service.isRevoked("long")).isTrue();
+    }
+
+    @Test
+    void snapshotSurvivesRestart() throws Exception {
+        Path snapshot = dir.resolve("revoked.txt");
+        long now = System.currentTimeMillis();
+        TokenRevocationService before = service(100, snapshot.toString());
+        before.revoke("jti-a", now + HOUR);
+        before.revoke("jti-b", now + 2 * HOUR);
+        before.saveSnapshotOnShutdown();
+        assertThat(snapshot).exists();
+        assertThat(dir.resolve("revoked.txt.tmp")).doesNotExist();
+
+        // 手工追加：已过期的条目、格式不对的行都被跳过
+        Files.writeString(snapshot, Files.readString(snapshot, StandardCharsets.UTF_8)
+                + "jti-expired " + (now - 1) + "\n"
+                + "garbage\n"
+                + "\n", StandardCharsets.UTF_8);
+
+        TokenRevocationService after = service(100, snapshot.toString());
+        after.loadSnapshot();
+        assertThat(after.size()).isEqualTo(2);
+        assertThat(after.isRevoked("jti-a")).isTrue();
+        assertThat(after.isRevoked("jti-b")).isTrue();
+        assertThat(after.isRevoked("jti-expired")).isFalse();
+    }
+
+    @Test
+    void missingSnapshotStartsEmpty() {
+        TokenRevocationService service = service(100, dir.resolve("absent.txt").toString());
+        service.loadSnapshot();
+        assertThat(service.size()).isZero();
+
+        // 没有变化时不写文件
+        service.saveSnapshotOnShutdown();
+        assertThat(dir.resolve("absent.txt")).doesNotExist();
+    }
+
+    private TokenRevocationService service(int expectedInsertions, String snapshotFile) {
+        return new TokenRevocationService(expectedInsertions, 0.01, snapshotFile, events::add);
+    }
+}
@@ -0,0 +1,109 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.service.UserImportReader.Format;
+import com.gb.test.springsecuritydemo.service.UserImportReader.Row;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserImportReaderTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void csvHandlesBomReorderedColumnsQuotesAndEscapedQuotes() throws IOException {
+        String csv = "﻿role,Password,username\n"
+                + "ROLE_ADMIN,\"pa,ss\"\"word\",alice\n"
+                + "\n"
+                + ",plain,\"bob\"\n"
+                + "ROLE_USER,\"\",carol\n";
+
+        List<Row> rows = readAll(csv, Format.CSV);
+
+        assertThat(rows).containsExactly(
+                new Row(2, "alice", "pa,ss\"word", "ROLE_ADMIN", null),
+                // 空行被跳过，但行号照算，报错时能对上原文件
+                new Row(4, "bob", "plain", "", null),
+                new Row(5, "carol", "", "ROLE_USER", null));
+    }
+
+    @Test
+    void csvWithoutRoleColumnAndShortRows() throws IOException {
+        List<Row> rows = readAll("username,password\nalice,secret\nbob\n", Format.CSV);
+
+        assertThat(rows).containsExactly(
+                new Row(2, "alice", "secret", null, null),
+                new Row(3, "bob", null, null, null));
+    }
+
+    @Test
+    void csvHeaderMustNameUsernameAndPassword() {
+        assertThatThrownBy(() -> readAll("user,pass\nalice,secret\n", Format.CSV))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("username and password");
+    }
+
+    @Test
+    void parseCsvLineSplitsOnlyOutsideQuotes() {
+        assertThat(UserImportReader.parseCsvLine("a,\"b,c\",\"d\"\"e\",")).containsExactly("a", "b,c", "d\"e", "");
+        assertThat(UserImportReader.parseCsvLine("\"\"\"\"")).containsExactly("\"");
+    }
+
+    @Test
+    void malformedNdjsonLineOnlyAffectsThatLine() throws IOException {
+        String ndjson = "{\"username\":\"alice\",\"password\":\"a\"}\n"
+                + "{\"username\":\"bob\",\"password\":\n"
+                + "\n"
+                + "[1,2]\n"
+                + "{\"username\":\"carol\",\"password\":\"c\",\"role\":\"ROLE_ADMIN\"}\n";
+
+        List<Row> rows = readAll(ndjson, Format.NDJSON);
+
+        assertThat(rows).hasSize(4);
+        assertThat(rows.get(0)).isEqualTo(new Row(1, "alice", "a", null, null));
+        assertThat(rows.get(1).row()).isEqualTo(2);
+        assertThat(rows.get(1).error()).startsWith("Malformed JSON");
+        assertThat(rows.get(2)).isEqualTo(new Row(4, null, null, null, "Expected a JSON object"));
+        assertThat(rows.get(3)).isEqualTo(new Row(5, "carol", "c", "ROLE_ADMIN", null));
+    }
+
+    @Test
+    void jsonArrayIsStreamedElementByElement() throws IOException {
+        String json = "[{\"username\":\"alice\",\"password\":\"a\"}, \"oops\", {\"username\":\"bob\",\"password\":null}]";
+
+        assertThat(readAll(json, Format.JSON)).containsExactly(
+                new Row(1, "alice", "a", null, null),
+                new Row(2, null, null, null, "Expected a JSON object"),
+                new Row(3, "bob", null, null, null));
+        assertThatThrownBy(() -> readAll("{\"username\":\"alice\"}", Format.JSON)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void formatIsChosenFromContentType() {
+        assertThat(Format.fromContentType("application/x-ndjson")).isEqualTo(Format.NDJSON);
+        assertThat(Format.fromContentType("text/csv; charset=UTF-8")).isEqualTo(Format.CSV);
+        assertThat(Format.fromContentType("application/json")).isEqualTo(Format.JSON);
+        assertThatThrownBy(() -> Format.fromContentType("text/plain")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Format.fromContentType(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<Row> readAll(String body, Format format) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (UserImportReader reader = new UserImportReader(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format, objectMapper)) {
+            Row row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,153 @@
+package com.gb.test.springsecuritydemo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.service.UserImportReader.Format;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 每批一个真实的事务 (关掉测试自带的事务)，批量插入失败时整批回滚，再逐行插入
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<String> errors = new ArrayList<>();
+    private final List<UserImportService.ImportStats> progress = new ArrayList<>();
+    private final UserImportService.ImportListener listener = new UserImportService.ImportListener() {
+        @Override
+        public void onRowError(long row, String username, String message) {
+            errors.add(row + ":" + username + ":" + message);
+        }
+
+        @Override
+        public void onProgress(UserImportService.ImportStats stats) {
+            progress.add(stats);
+        }
+    };
+
+    private PasswordHashingService hashingService;
+    // true 时 "已存在" 查询什么都查不到，模拟校验之后、插入之前另一个请求插入了同名用户
+    private final AtomicBoolean hideExisting = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        hashingService = new PasswordHashingService(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return "{noop}" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        }, 2);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        hashingService.shutdown();
+        jdbcTemplate.update("delete from users");
+    }
+
+    @Test
+    void partialDuplicateBatchFallsBackToRowByRowInserts() throws Exception {
+        insert("taken");
+        hideExisting.set(true);
+
+        UserImportService.ImportStats stats = service(10).importUsers(ndjson("fresh-1", "taken", "fresh-2"),
+                Format.NDJSON, listener);
+
+        assertThat(stats).isEqualTo(new UserImportService.ImportStats(3, 2, 1));
+        assertThat(errors).containsExactly("2:taken:Username already exists");
+        // 批量插入回滚后逐行重试：不冲突的行都插进去了，且只插了一次
+        assertThat(usernames()).containsExactlyInAnyOrder("taken", "fresh-1", "fresh-2");
+    }
+
+    @Test
+    void validationAndExistingUsersAreReportedPerRow() throws Exception {
+        insert("taken");
+
+        String body = "username,password,role\n"
+                + "alice,a,ROLE_ADMIN\n"
+                + "taken,t,\n"
+                + "alice,again,\n"
+                + ",nopass,\n"
+                + "bob,,\n"
+                + "carol,c,admin\n"
+                + "dave,d,\n";
+        UserImportService.ImportStats stats = service(3).importUsers(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), Format.CSV, listener);
+
+        assertThat(stats).isEqualTo(new UserImportService.ImportStats(7, 2, 5));
+        // 同一批里先报格式 / 批内重复的错误，再报数据库里已存在的
+        assertThat(errors).containsExactly(
+                "4:alice:Duplicate username in request",
+                "3:taken:Username already exists",
+                "5::Username is required",
+                "6:bob:Password is required",
+                "7:carol:Role must look like ROLE_XXX");
+        // 每批 3 行报告一次进度
+        assertThat(progress).extracting(UserImportService.ImportStats::processed).containsExactly(3L, 6L, 7L);
+        assertThat(jdbcTemplate.queryForList("select role from users where username in ('alice', 'dave') order by username",
+                String.class)).containsExactly("ROLE_ADMIN", "ROLE_USER");
+    }
+
+    private UserImportService service(int batchSize) {
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate) {
+            @Override
+            public <T> List<T> queryForList(String sql, Map<String, ?> paramMap, Class<T> elementType) {
+                return hideExisting.get() ? List.of() : super.queryForList(sql, paramMap, elementType);
+            }
+        };
+        return new UserImportService(named, new TransactionTemplate(transactionManager), hashingService,
+                new ObjectMapper(), batchSize);
+    }
+
+    private void insert(String username) {
+        jdbcTemplate.update("insert into users (username, password, role, token_version) values (?, '{noop}x', 'ROLE_USER', 0)",
+                username);
+    }
+
+    private List<String> usernames() {
+        return jdbcTemplate.queryForList("select username from users", String.class);
+    }
+
+    private static ByteArrayInputStream ndjson(String... usernames) {
+        StringBuilder body = new StringBuilder();
+        for (String username : usernames) {
+            body.append("{\"username\":\"").append(username).append("\",\"password\":\"pw\"}\n");
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
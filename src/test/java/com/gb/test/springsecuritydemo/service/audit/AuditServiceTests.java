@@ -0,0 +1,216 @@
+package com.gb.test.springsecuritydemo.service.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用一个会卡住的 AuditSink 让后台线程停在第一批上，队列里剩下的空间就是确定的 (容量 8)
+ */
+class AuditServiceTests {
+
+    private final BlockingSink sink = new BlockingSink();
+    private final List<AuditService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() throws Exception {
+        sink.release.countDown();
+        for (AuditService service : services) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void dropPolicyDiscardsNewEventsWhenFull() throws Exception {
+        AuditService service = service("drop", Duration.ofMillis(10));
+        stallWriter(service);
+
+        publish(service, 8 + 5);
+        assertThat(service.getQueueSize()).isEqualTo(8);
+        assertThat(service.getDroppedCount()).isEqualTo(5);
+
+        sink.release.countDown();
+        awaitCount(service::getWrittenCount, 1 + 8);
+        assertThat(service.getPublishedCount()).isEqualTo(1 + 13);
+        assertThat(sink.events).hasSize(9);
+    }
+
+    @Test
+    void samplePolicyThinsOutEventsAboveThreeQuarters() throws Exception {
+        AuditService service = service("sample", Duration.ofMillis(10));
+        stallWriter(service);
+
+        // 前 6 个 (3/4) 全部进入队列；之后每 2 个只保留 1 个，剩下的 2 个空位用完后再丢弃
+        publish(service, 6 + 14);
+        assertThat(service.getSampledOutCount()).isEqualTo(7);
+        assertThat(service.getDroppedCount()).isEqualTo(5);
+        assertThat(service.getQueueSize()).isEqualTo(8);
+
+        sink.release.countDown();
+        awaitCount(service::getWrittenCount, 1 + 8);
+    }
+
+    @Test
+    void blockPolicyWaitsForSpaceUpToTheTimeout() throws Exception {
+        AuditService service = service("block", Duration.ofMillis(300));
+        stallWriter(service);
+        publish(service, 8);
+
+        // 后台线程一直卡着：等满 block-timeout 后丢弃
+        long started = System.nanoTime();
+        publish(service, 1);
+        assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(300));
+        assertThat(service.getDroppedCount()).isEqualTo(1);
+
+        // 等待期间后台线程恢复：腾出空间后放进去，不丢
+        Thread publisher = new Thread(() -> publish(service, 1));
+        publisher.start();
+        Thread.sleep(50);
+        sink.release.countDown();
+        publisher.join();
+        assertThat(service.getDroppedCount()).isEqualTo(1);
+        awaitCount(service::getWrittenCount, 1 + 8 + 1);
+    }
+
+    @Test
+    void sinkFailuresAreCountedAndLaterBatchesStillWritten() throws Exception {
+        FailingOnceSink failing = new FailingOnceSink();
+        AuditService service = new AuditService(failing, true, 8, 4, Duration.ofMillis(5), "drop", 2,
+                Duration.ofMillis(10));
+        services.add(service);
+
+        publish(service, 1);
+        awaitCount(service::getFailedCount, 1);
+        publish(service, 3);
+        awaitCount(service::getWrittenCount, 3);
+        assertThat(failing.events).hasSize(3);
+    }
+
+    @Test
+    void disabledServiceIgnoresEvents() throws Exception {
+        AuditService service = new AuditService(sink, false, 8, 1, Duration.ofMillis(5), "drop", 2,
+                Duration.ofMillis(10));
+        services.add(service);
+        publish(service, 3);
+        assertThat(service.getPublishedCount()).isZero();
+        assertThat(service.getQueueSize()).isZero();
+    }
+
+    @Test
+    void shutdownInterruptsAStuckWriterAndClosesTheSinkOnlyAfterItReturns() throws Exception {
+        AuditService service = service("drop", Duration.ofMillis(10));
+        stallWriter(service);
+        publish(service, 3);
+
+        service.shutdown(Duration.ofMillis(100));
+
+        // 卡住的写入被打断，剩下的 3 个事件被放弃；存储在 write 返回之后才关闭
+        assertThat(sink.closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(sink.closedWhileWriting).isFalse();
+        assertThat(service.getFailedCount()).isEqualTo(1);
+        assertThat(service.getWrittenCount()).isZero();
+        assertThat(sink.events).isEmpty();
+    }
+
+    @Test
+    void shutdownWritesQueuedEventsBeforeClosingTheSink() throws Exception {
+        AuditService service = service("drop", Duration.ofMillis(10));
+        stallWriter(service);
+        publish(service, 3);
+        sink.release.countDown();
+
+        service.shutdown(Duration.ofSeconds(5));
+
+        assertThat(sink.closed.getCount()).isZero();
+        assertThat(sink.closedWhileWriting).isFalse();
+        assertThat(sink.events).hasSize(4);
+    }
+
+    @Test
+    void disabledServiceClosesTheSinkOnShutdown() throws Exception {
+        new AuditService(sink, false, 8, 1, Duration.ofMillis(5), "drop", 2, Duration.ofMillis(10)).shutdown();
+        assertThat(sink.closed.getCount()).isZero();
+    }
+
+    private AuditService service(String overflow, Duration blockTimeout) {
+        AuditService service = new AuditService(sink, true, 8, 1, Duration.ofMillis(5), overflow, 2, blockTimeout);
+        services.add(service);
+        return service;
+    }
+
+    /**
+     * 发一个事件，等后台线程把它取走并卡在 sink.write 里
+     */
+    private void stallWriter(AuditService service) throws InterruptedException {
+        publish(service, 1);
+        assertThat(sink.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.getQueueSize()).isZero();
+    }
+
+    private static void publish(AuditService service, int count) {
+        for (int i = 0; i < count; i++) {
+            service.publish(new AuditEvent(System.currentTimeMillis(), AuditEvent.Type.LOGIN_FAILURE,
+                    "user-" + i, "127.0.0.1", "POST", "/api/auth/login", null));
+        }
+    }
+
+    private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.getAsLong() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(count.getAsLong()).isEqualTo(expected);
+    }
+
+    private static class BlockingSink implements AuditSink {
+
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final List<AuditEvent> events = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean inWrite;
+        volatile boolean closedWhileWriting;
+
+        @Override
+        public void write(List<AuditEvent> batch) throws InterruptedException {
+            inWrite = true;
+            try {
+                writing.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                events.addAll(batch);
+            } finally {
+                inWrite = false;
+            }
+        }
+
+        @Override
+        public void close() {
+            closedWhileWriting |= inWrite;
+            closed.countDown();
+        }
+    }
+
+    private static class FailingOnceSink implements AuditSink {
+
+        final List<AuditEvent> events = Collections.synchronizedList(new ArrayList<>());
+        private boolean failed;
+
+        @Override
+        public void write(List<AuditEvent> batch) {
+            if (!failed) {
+                failed = true;
+                throw new IllegalStateException("disk full");
+            }
+            events.addAll(batch);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gb.test.springsecuritydemo.event.InvalidationGapEvent;
+import com.gb.test.springsecuritydemo.event.InvalidationResyncRequestedEvent;
+import com.gb.test.springsecuritydemo.event.TokenRevokedEvent;
+import com.gb.test.springsecuritydemo.event.UserChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvalidationBusTests {
+
+    private static final String CHANNEL = "security-invalidation";
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void closeResources() throws Exception {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).close();
+        }
+    }
+
+    @Test
+    void changesAreCoalescedAndDeliveredToOtherNodesOnly() throws Exception {
+        RespPubSubServer server = track(new RespPubSubServer());
+        List<Object> eventsA = new CopyOnWriteArrayList<>();
+        List<Object> eventsB = new CopyOnWriteArrayList<>();
+        // 发送间隔要比下面连续几次调用长得多，否则机器繁忙时发送线程可能在两次调用之间跑一次，就合并不了
+        InvalidationBus nodeA = startBus(respTransport(server), eventsA, Duration.ofMillis(500));
+        startBus(respTransport(server), eventsB);
+        await(() -> server.subscriberCount(CHANNEL) == 2);
+
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        nodeA.onUserChanged(new UserChangedEvent("bob", 1));
+        nodeA.onUserChanged(new UserChangedEvent("bob", 3));
+        nodeA.onUserChanged(new UserChangedEvent("bob", 2));
+        nodeA.onTokenRevoked(new TokenRevokedEvent("jti-1", expiresAt, false));
+
+        await(() -> eventsB.size() >= 2);
+        assertThat(eventsB).containsExactlyInAnyOrder(
+                new UserChangedEvent("bob", 3, true),
+                new TokenRevokedEvent("jti-1", expiresAt, true));
+        assertThat(eventsA).isEmpty(); // 自己发的批次被忽略
+        assertThat(nodeA.getCoalescedCount()).isEqualTo(2);
+        assertThat(nodeA.getSentCount()).isEqualTo(2);
+    }
+
+    @Test
+    void remoteEventsAreNotBroadcastAgain() {
+        List<Object> eventsB = new CopyOnWriteArrayList<>();
+        InvalidationBus nodeA = startBus(new InJvmInvalidationTransport("in-jvm-test"), new CopyOnWriteArrayList<>());
+        InvalidationBus nodeB = startBus(new InJvmInvalidationTransport("in-jvm-test"), eventsB);
+
+        nodeA.onUserChanged(new UserChangedEvent("alice", 7));
+        await(() -> !eventsB.isEmpty());
+
+        // 转发出来的事件又回到 B 的监听方法上 (本地的所有监听者都会收到)，不能再发出去
+        nodeB.onUserChanged((UserChangedEvent) eventsB.get(0));
+        assertThat(nodeB.getPendingCount()).isZero();
+        assertThat(nodeB.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void resubscribingAfterDisconnectReportsAGapAndAsksPeersToResync() throws Exception {
+        RespPubSubServer server = track(new RespPubSubServer());
+        List<Object> eventsA = new CopyOnWriteArrayList<>();
+        List<Object> eventsB = new CopyOnWriteArrayList<>();
+        startBus(respTransport(server), eventsA);
+        startBus(respTransport(server), eventsB);
+        await(() -> server.subscriberCount(CHANNEL) == 2);
+
+        server.closeClients();
+
+        // 两个节点都断开过：各自清空缓存，并请求对方重新广播吊销
+        await(() -> eventsA.contains(new InvalidationGapEvent()) && eventsB.contains(new InvalidationGapEvent()));
+        await(() -> server.subscriberCount(CHANNEL) == 2);
+        await(() -> eventsA.contains(new InvalidationResyncRequestedEvent())
+                && eventsB.contains(new InvalidationResyncRequestedEvent()));
+    }
+
+    @Test
+    void silentConnectionIsDetectedByPingAndReplaced() throws Exception {
+        RespPubSubServer server = track(new RespPubSubServer());
+        List<Object> events = new CopyOnWriteArrayList<>();
+        startBus(respTransport(server), events);
+        await(() -> server.subscriberCount(CHANNEL) == 1);
+
+        // 连接没有断开，只是对方再也不回数据：PING 没有回应后主动重连
+        server.muteClients();
+
+        await(() -> events.contains(new InvalidationGapEvent()));
+    }
+
+    private RespInvalidationTransport respTransport(RespPubSubServer server) {
+        return new RespInvalidationTransport("127.0.0.1", server.port(), "", CHANNEL,
+                Duration.ofSeconds(2), Duration.ofMillis(200), Duration.ofMillis(200));
+    }
+
+    private InvalidationBus startBus(InvalidationTransport transport, List<Object> events) {
+        return startBus(transport, events, Duration.ofMillis(10));
+    }
+
+    private InvalidationBus startBus(InvalidationTransport transport, List<Object> events, Duration flushInterval) {
+        track(transport);
+        InvalidationBus bus = new InvalidationBus(transport, events::add, new ObjectMapper(),
+                true, flushInterval, 500);
+        bus.start();
+        track(bus::stop);
+        return bus;
+    }
+
+    private <T extends AutoCloseable> T track(T resource) {
+        resources.add(resource);
+        return resource;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() - deadline).as("condition not met within 10s").isNegative();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
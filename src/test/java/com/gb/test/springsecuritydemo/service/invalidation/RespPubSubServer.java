@@ -0,0 +1,169 @@
+package com.gb.test.springsecuritydemo.service.invalidation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 测试用的本地 RESP pub/sub 服务，代替 Redis
+ * 只支持 PING / AUTH / PUBLISH / SUBSCRIBE，每个连接一个线程；
+ * closeClients() 可以模拟网络中断，muteClients() 模拟半开的连接 (不关闭，但再也不回任何数据)
+ */
+class RespPubSubServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Set<Client>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+    RespPubSubServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "resp-stand-in-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Client client = new Client(serverSocket.accept());
+                clients.add(client);
+                Thread thread = new Thread(client::serve, "resp-stand-in-client");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return; // 服务已关闭
+            }
+        }
+    }
+
+    int subscriberCount(String channel) {
+        return subscribers.getOrDefault(channel, Set.of()).size();
+    }
+
+    /**
+     * 断开所有客户端连接 (服务本身继续监听)
+     */
+    void closeClients() {
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    /**
+     * 现有的连接保持打开，但不再回复、不再推送 (新连接不受影响)
+     */
+    void muteClients() {
+        for (Client client : clients) {
+            client.muted = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        closeClients();
+    }
+
+    private final class Client {
+
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private volatile boolean muted;
+
+        Client(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void serve() {
+            try {
+                while (true) {
+                    if (!(Resp.read(in) instanceof List<?> command) || command.isEmpty()) {
+                        writeRaw("-ERR protocol error\r\n");
+                        continue;
+                    }
+                    String name = text(command.get(0)).toUpperCase(Locale.ROOT);
+                    switch (name) {
+                        case "PING" -> writeRaw("+PONG\r\n");
+                        case "AUTH" -> writeRaw("+OK\r\n");
+                        case "SUBSCRIBE" -> {
+                            String channel = text(command.get(1));
+                            subscribers.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(this);
+                            write(Resp.utf8("subscribe"), Resp.utf8(channel), null);
+                        }
+                        case "PUBLISH" -> {
+                            String channel = text(command.get(1));
+                            byte[] payload = (byte[]) command.get(2);
+                            Set<Client> targets = subscribers.getOrDefault(channel, Set.of());
+                            for (Client target : targets) {
+                                target.write(Resp.utf8("message"), Resp.utf8(channel), payload);
+                            }
+                            writeRaw(":" + targets.size() + "\r\n");
+                        }
+                        default -> writeRaw("-ERR unknown command '" + name + "'\r\n");
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // 推送 [kind, channel, payload]；payload 为 null 时第三项是订阅数 1
+        synchronized void write(byte[] kind, byte[] channel, byte[] payload) throws IOException {
+            if (muted) {
+                return;
+            }
+            out.write(("*3\r\n$" + kind.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(kind);
+            out.write(("\r\n$" + channel.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(channel);
+            if (payload == null) {
+                out.write("\r\n:1\r\n".getBytes(StandardCharsets.US_ASCII));
+            } else {
+                out.write(("\r\n$" + payload.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(payload);
+                out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            out.flush();
+        }
+
+        synchronized void writeRaw(String reply) throws IOException {
+            if (muted) {
+                return;
+            }
+            out.write(reply.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        void close() {
+            clients.remove(this);
+            subscribers.values().forEach(set -> set.remove(this));
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 已经关闭
+            }
+        }
+
+        private static String text(Object value) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+    }
+}
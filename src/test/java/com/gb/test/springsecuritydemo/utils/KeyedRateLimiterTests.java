@@ -0,0 +1,56 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyedRateLimiterTests {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenEmitsOneTokenPerInterval() {
+        // 容量 5，50ms 补满：每 10ms 一个令牌
+        KeyedRateLimiter limiter = new KeyedRateLimiter(5, 50 * MS, 100);
+        long t0 = 1_000 * MS;
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("bob", t0)).isZero();
+        }
+        assertThat(limiter.tryAcquire("bob", t0)).isEqualTo(10 * MS);
+        assertThat(limiter.tryAcquire("bob", t0 + 4 * MS)).isEqualTo(6 * MS);
+
+        assertThat(limiter.tryAcquire("bob", t0 + 10 * MS)).isZero();
+        assertThat(limiter.tryAcquire("bob", t0 + 10 * MS)).isPositive();
+
+        // 其他 key 互不影响；空闲足够久后重新补满
+        assertThat(limiter.tryAcquire("alice", t0)).isZero();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("bob", t0 + 100 * MS)).isZero();
+        }
+        assertThat(limiter.tryAcquire("bob", t0 + 100 * MS)).isPositive();
+    }
+
+    @Test
+    void fullTableRejectsNewKeysAndSweepsAtMostOncePerInterval() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, 10 * MS, 2);
+        long t0 = 1_000 * MS;
+        assertThat(limiter.tryAcquire("a", t0)).isZero();
+        assertThat(limiter.tryAcquire("b", t0)).isZero();
+
+        // 表满且没有空闲的桶：新 key 被限流，而不是不受限制地放行
+        assertThat(limiter.tryAcquire("c", t0 + MS)).isPositive();
+        assertThat(limiter.getOverflowCount()).isEqualTo(1);
+        // 已有的 key 照常限流
+        assertThat(limiter.tryAcquire("a", t0 + MS)).isPositive();
+
+        // a、b 已经补满，但距离上次清理不到 1 秒：不会再扫一遍整张表
+        assertThat(limiter.tryAcquire("d", t0 + 20 * MS)).isPositive();
+        assertThat(limiter.size()).isEqualTo(2);
+
+        // 过了清理间隔：空闲的桶被删掉，新 key 可以建桶
+        assertThat(limiter.tryAcquire("e", t0 + 1_100 * MS)).isZero();
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,104 @@
+package com.gb.test.springsecuritydemo.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MpscRingBufferTests {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new MpscRingBuffer<>(2).capacity()).isEqualTo(2);
+        assertThat(new MpscRingBuffer<>(5).capacity()).isEqualTo(8);
+        assertThat(new MpscRingBuffer<>(8).capacity()).isEqualTo(8);
+        assertThatThrownBy(() -> new MpscRingBuffer<>(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void fifoRejectsWhenFullAndWrapsAround() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        // 转好几圈，每一圈都先填满再读空
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(buffer.offer(next++)).isTrue();
+            }
+            assertThat(buffer.offer(-1)).isFalse();
+            assertThat(buffer.size()).isEqualTo(4);
+
+            List<Integer> drained = new ArrayList<>();
+            assertThat(buffer.drainTo(drained, 3)).isEqualTo(3);
+            assertThat(buffer.offer(next++)).isTrue(); // 读走一个就能再写一个
+            assertThat(buffer.drainTo(drained, 10)).isEqualTo(2);
+            for (int value : drained) {
+                assertThat(value).isEqualTo(expected++);
+            }
+            assertThat(buffer.poll()).isNull();
+            assertThat(buffer.size()).isZero();
+        }
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepPerProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(256);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) {
+                        Thread.yield(); // 满了：让消费者先读
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        boolean ordered = true;
+        int received = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer) {
+            long[] element = buffer.poll();
+            if (element == null) {
+                if (System.nanoTime() > deadline) {
+                    break;
+                }
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) element[0];
+            ordered &= element[1] == lastSeen[producer] + 1; // 逐个用 assertThat 太慢
+            lastSeen[producer] = element[1];
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(received).isEqualTo(producers * perProducer);
+        assertThat(ordered).isTrue();
+        assertThat(buffer.poll()).isNull();
+        assertThat(lastSeen).containsOnly(perProducer - 1);
+    }
+}